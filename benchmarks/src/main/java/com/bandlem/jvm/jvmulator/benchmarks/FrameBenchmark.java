@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.benchmarks;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.bandlem.jvm.jvmulator.JVMFrame;
+import com.bandlem.jvm.jvmulator.Slot;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FieldRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.NameAndType;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class FrameBenchmark {
+	// Invoked and accessed reflectively by the emulated code, so must be public
+	public static class Target {
+		public static int counter;
+		public static int identity(final int i) {
+			return i;
+		}
+		public int value;
+		void references() {
+			counter = identity(value);
+			value = counter;
+		}
+	}
+	private static byte[] bytes(final short index) {
+		return new byte[] {
+				(byte) (index >> 8), (byte) index
+		};
+	}
+	private static short find(final ConstantPool pool, final Class<? extends Item> type, final String name) {
+		for (short i = 1; i < pool.size(); i++) {
+			final Item item = pool.getItem(i);
+			final short nat;
+			if (type == FieldRef.class && item instanceof FieldRef) {
+				nat = ((FieldRef) item).nameAndTypeIndex;
+			} else if (type == MethodRef.class && item instanceof MethodRef) {
+				nat = ((MethodRef) item).nameAndTypeIndex;
+			} else {
+				continue;
+			}
+			if (name.equals(pool.getString(((NameAndType) pool.getItem(nat)).nameIndex))) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Cannot find " + name + " of type " + type);
+	}
+	private static JavaClass load(final Class<?> type) throws IOException {
+		try (InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class")) {
+			return new JavaClass(new DataInputStream(in));
+		}
+	}
+	private byte[] code;
+	@Param({
+			"arithmetic", "loads", "branches", "arrays", "invokes", "fields"
+	})
+	String family;
+	private JavaClass javaClass;
+	// Each family is a stack-neutral unit repeated this many times between a prologue and a return
+	@Param({
+			"1", "16", "256"
+	})
+	int length;
+	private final Target target = new Target();
+	private byte[] unit() {
+		switch (family) {
+		case "arithmetic":
+			return new byte[] {
+					ICONST_1, ICONST_2, IADD, ICONST_3, IMUL, ICONST_1, ISUB, POP
+			};
+		case "loads":
+			return new byte[] {
+					ICONST_1, ISTORE_1, ILOAD_1, ISTORE_2, ILOAD_2, ISTORE_1
+			};
+		case "branches":
+			return new byte[] {
+					ICONST_0, IFNE, 0x00, 0x03, ICONST_1, IFEQ, 0x00, 0x03, GOTO, 0x00, 0x03
+			};
+		case "arrays":
+			return new byte[] {
+					ALOAD_1, ICONST_1, ICONST_2, IASTORE, ALOAD_1, ICONST_1, IALOAD, POP
+			};
+		case "invokes": {
+			final byte[] identity = bytes(find(javaClass.pool, MethodRef.class, "identity"));
+			return new byte[] {
+					ICONST_1, INVOKESTATIC, identity[0], identity[1], POP
+			};
+		}
+		case "fields": {
+			final byte[] counter = bytes(find(javaClass.pool, FieldRef.class, "counter"));
+			final byte[] value = bytes(find(javaClass.pool, FieldRef.class, "value"));
+			return new byte[] {
+					GETSTATIC, counter[0], counter[1], PUTSTATIC, counter[0], counter[1], //
+					ALOAD_0, ALOAD_0, GETFIELD, value[0], value[1], PUTFIELD, value[0], value[1]
+			};
+		}
+		default:
+			throw new IllegalArgumentException("Unknown opcode family " + family);
+		}
+	}
+	private JVMFrame newFrame() {
+		final JVMFrame frame = new JVMFrame(javaClass, 3, code);
+		frame.getLocals()[0] = Slot.of(target);
+		return frame;
+	}
+	@Benchmark
+	public Slot run() {
+		return newFrame().run();
+	}
+	@Setup
+	public void setup() throws IOException {
+		javaClass = load(Target.class);
+		final byte[] unit = unit();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// The array family works on an int[16] held in local 1
+		out.write(new byte[] {
+				BIPUSH, 0x10, NEWARRAY, 'I', ASTORE_1
+		});
+		for (int i = 0; i < length; i++) {
+			out.write(unit);
+		}
+		out.write(RETURN);
+		code = out.toByteArray();
+		if (newFrame().run() != null) {
+			throw new IllegalStateException("Sequence for " + family + " did not return void");
+		}
+	}
+	@Benchmark
+	public void step(final Blackhole blackhole) {
+		final JVMFrame frame = newFrame();
+		while (frame.step()) {
+			blackhole.consume(frame.getPC());
+		}
+	}
+}
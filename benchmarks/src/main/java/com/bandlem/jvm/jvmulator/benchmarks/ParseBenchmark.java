@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.benchmarks;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import com.bandlem.jvm.jvmulator.classfile.ClassReader;
+import com.bandlem.jvm.jvmulator.classfile.ClassVisitor;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+// One operation parses one class, so the gc profiler's alloc.rate.norm is the allocation per class
+@BenchmarkMode(Mode.Throughput)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class ParseBenchmark {
+	// Reported by JMH as rates alongside the score, giving classes and bytes per second
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Cursor {
+		public long bytes;
+		public long classes;
+		private int next;
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+			classes = 0;
+		}
+		@Setup(Level.Trial)
+		public void start(final ParseBenchmark benchmark, final ThreadParams thread) {
+			// Threads start spread across the corpus rather than all parsing the same class at once
+			next = (int) ((long) benchmark.classes.length * thread.getThreadIndex() / thread.getThreadCount());
+		}
+	}
+	public enum Parser {
+		BUFFER {
+			@Override
+			Object parse(final byte[] bytes) {
+				return new JavaClass(ByteBuffer.wrap(bytes));
+			}
+		},
+		STREAM {
+			@Override
+			Object parse(final byte[] bytes) {
+				return new JavaClass(new DataInputStream(new ByteArrayInputStream(bytes)));
+			}
+		},
+		VISITOR {
+			@Override
+			Object parse(final byte[] bytes) {
+				final ClassReader reader = new ClassReader();
+				reader.accept(new DataInputStream(new ByteArrayInputStream(bytes)), EVERYTHING);
+				return reader;
+			}
+		};
+		abstract Object parse(byte[] bytes);
+	}
+	// Asks the reader to decode every part of the class that JavaClass would
+	private static final ClassVisitor EVERYTHING = new ClassVisitor() {
+		@Override
+		public boolean visitAttribute(final String name, final int length) {
+			return true;
+		}
+		@Override
+		public boolean visitCode(final short maxStack, final short maxLocals, final int length) {
+			return true;
+		}
+		@Override
+		public boolean visitField(final short flags, final String name, final String descriptor) {
+			return true;
+		}
+		@Override
+		public boolean visitMethod(final short flags, final String name, final String descriptor) {
+			return true;
+		}
+		@Override
+		public boolean visitPool(final int size) {
+			return true;
+		}
+	};
+	private static List<byte[]> read(final Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(path -> path.toString().endsWith(".class")).map(path -> {
+				try {
+					return Files.readAllBytes(path);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).collect(Collectors.toList());
+		}
+	}
+	private byte[][] classes;
+	@Param({
+			"BUFFER", "STREAM", "VISITOR"
+	})
+	Parser parser;
+	// jrt:/ for the whole runtime image, jrt:/java.base for a single module, or the path of a jar
+	@Param({
+			"jrt:/"
+	})
+	String source;
+	private Object parse(final Cursor cursor) {
+		final byte[] bytes = classes[cursor.next];
+		cursor.next = cursor.next + 1 == classes.length ? 0 : cursor.next + 1;
+		cursor.bytes += bytes.length;
+		cursor.classes++;
+		return parser.parse(bytes);
+	}
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Object parseParallel(final Cursor cursor) {
+		return parse(cursor);
+	}
+	@Benchmark
+	public Object parseSingle(final Cursor cursor) {
+		return parse(cursor);
+	}
+	@Setup
+	public void setup() throws IOException {
+		final List<byte[]> corpus;
+		if (source.startsWith("jrt:/")) {
+			final FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+			corpus = read(jrt.getPath("/modules", source.substring("jrt:/".length())));
+		} else {
+			try (FileSystem jar = FileSystems.newFileSystem(Paths.get(source), (ClassLoader) null)) {
+				corpus = read(jar.getPath("/"));
+			}
+		}
+		// Classes using constants that the emulator cannot parse yet would fail every parser alike
+		final List<byte[]> parseable = new ArrayList<>();
+		for (final byte[] bytes : corpus) {
+			try {
+				Parser.BUFFER.parse(bytes);
+				parseable.add(bytes);
+			} catch (final RuntimeException e) {
+				// Left out of the corpus
+			}
+		}
+		if (parseable.isEmpty()) {
+			throw new IllegalStateException("No parseable classes found in " + source);
+		}
+		classes = parseable.toArray(new byte[0][]);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.benchmarks;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.bandlem.jvm.jvmulator.Slot;
+import com.bandlem.jvm.jvmulator.Stack;
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class StackBenchmark {
+	@Param({
+			"1", "16"
+	})
+	int depth;
+	private final Object reference = new Object();
+	private final Stack stack = new Stack();
+	@Benchmark
+	public void pushPopInt(final Blackhole blackhole) {
+		for (int i = 0; i < depth; i++) {
+			stack.push(i);
+		}
+		for (int i = 0; i < depth; i++) {
+			blackhole.consume(stack.popInt());
+		}
+	}
+	@Benchmark
+	public void pushPopLong(final Blackhole blackhole) {
+		for (int i = 0; i < depth; i++) {
+			stack.push((long) i);
+		}
+		for (int i = 0; i < depth; i++) {
+			blackhole.consume(stack.popLong());
+		}
+	}
+	@Benchmark
+	public void pushPopReference(final Blackhole blackhole) {
+		for (int i = 0; i < depth; i++) {
+			stack.push(reference);
+		}
+		for (int i = 0; i < depth; i++) {
+			blackhole.consume(stack.popReference());
+		}
+	}
+	@Benchmark
+	public Slot slotOfDouble() {
+		return Slot.of((double) depth);
+	}
+	@Benchmark
+	public Slot slotOfInt() {
+		return Slot.of(depth);
+	}
+	@Benchmark
+	public Slot slotOfLong() {
+		return Slot.of((long) depth);
+	}
+	@Benchmark
+	public Slot slotOfReference() {
+		return Slot.of(reference);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.benchmarks;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import com.bandlem.jvm.jvmulator.classfile.Symbol;
+// Every class and member parsed interns its names, so lookups of known names must scale across threads;
+// compare internParallel with internSingle to catch a table that serialises callers
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class SymbolBenchmark {
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+		@Setup(Level.Trial)
+		public void start(final SymbolBenchmark benchmark, final ThreadParams thread) {
+			next = (int) ((long) benchmark.names.length * thread.getThreadIndex() / thread.getThreadCount());
+		}
+	}
+	@Param({
+			"16384"
+	})
+	int count;
+	private String[] names;
+	// Held so that the symbols stay in the table and every lookup is a hit
+	private Symbol[] symbols;
+	private Symbol intern(final Cursor cursor) {
+		final String name = names[cursor.next];
+		cursor.next = cursor.next + 1 == names.length ? 0 : cursor.next + 1;
+		return Symbol.of(name);
+	}
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Symbol internParallel(final Cursor cursor) {
+		return intern(cursor);
+	}
+	@Benchmark
+	public Symbol internSingle(final Cursor cursor) {
+		return intern(cursor);
+	}
+	@Setup
+	public void setup() {
+		names = new String[count];
+		symbols = new Symbol[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = "com/example/Name" + i;
+			symbols[i] = Symbol.of(names[i]);
+		}
+	}
+}
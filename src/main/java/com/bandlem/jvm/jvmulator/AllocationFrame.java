@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.util.Arrays;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+// Each step is bracketed by reads of the thread's allocated bytes, so only run this when diagnosing churn
+public class AllocationFrame extends JVMFrame {
+	private final Allocations allocations;
+	private final long[] bytes = new long[256];
+	private final long[] counts = new long[256];
+	final String method;
+	public AllocationFrame(final JavaClass javaClass, final int locals, final byte[] code,
+			final Allocations allocations, final String method) {
+		super(javaClass, locals, code);
+		this.allocations = allocations;
+		this.method = method;
+	}
+	public AllocationFrame(final JavaClass javaClass, final Member.Method method, final Allocations allocations) {
+		super(javaClass, method);
+		this.allocations = allocations;
+		this.method = method.name + method.descriptor;
+	}
+	public long[] getBytes() {
+		return bytes.clone();
+	}
+	@Override
+	public boolean step() {
+		final int opcode = bytecode[getPC()] & 0xff;
+		counts[opcode]++;
+		boolean more = false;
+		final long start = allocations.allocated();
+		try {
+			more = super.step();
+			return more;
+		} finally {
+			bytes[opcode] += allocations.since(start);
+			if (!more) {
+				allocations.add(method, counts, bytes);
+				Arrays.fill(bytes, 0);
+				Arrays.fill(counts, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import com.sun.management.ThreadMXBean;
+public final class Allocations {
+	static final class Tally {
+		final LongAdder bytes = new LongAdder();
+		final LongAdder instructions = new LongAdder();
+		void add(final long bytes, final long instructions) {
+			this.bytes.add(bytes);
+			this.instructions.add(instructions);
+		}
+		long perMillion() {
+			final long count = instructions.sum();
+			return count == 0 ? 0 : bytes.sum() * 1_000_000 / count;
+		}
+	}
+	private static Map<String, Long> sorted(final Map<String, Tally> tallies) {
+		final List<Map.Entry<String, Tally>> entries = new ArrayList<>(tallies.entrySet());
+		entries.removeIf(entry -> entry.getValue().instructions.sum() == 0);
+		entries.sort((a, b) -> Long.compare(b.getValue().perMillion(), a.getValue().perMillion()));
+		final Map<String, Long> result = new LinkedHashMap<>();
+		for (final Map.Entry<String, Tally> entry : entries) {
+			result.put(entry.getKey(), entry.getValue().perMillion());
+		}
+		return result;
+	}
+	private final Map<String, Tally> methods = new ConcurrentHashMap<>();
+	private final Tally[] opcodes = new Tally[256];
+	// Bytes the measurement itself allocates between two readings, which are not the emulated code's
+	private final long overhead;
+	private final Tally total = new Tally();
+	private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+	public Allocations() {
+		for (int i = 0; i < opcodes.length; i++) {
+			opcodes[i] = new Tally();
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		final long start = allocated();
+		overhead = allocated() - start;
+	}
+	void add(final String method, final long[] counts, final long[] bytes) {
+		long frameBytes = 0;
+		long frameInstructions = 0;
+		for (int i = 0; i < opcodes.length; i++) {
+			if (counts[i] != 0) {
+				opcodes[i].add(bytes[i], counts[i]);
+				frameBytes += bytes[i];
+				frameInstructions += counts[i];
+			}
+		}
+		total.add(frameBytes, frameInstructions);
+		methods.computeIfAbsent(String.valueOf(method), name -> new Tally()).add(frameBytes, frameInstructions);
+	}
+	long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	public long bytes() {
+		return total.bytes.sum();
+	}
+	public long bytesPerMillion() {
+		return total.perMillion();
+	}
+	public long instructions() {
+		return total.instructions.sum();
+	}
+	// Bytes allocated per million instructions of each method, highest first
+	public Map<String, Long> methods() {
+		return sorted(methods);
+	}
+	// Bytes allocated per million executions of each opcode, highest first
+	public Map<String, Long> opcodes() {
+		final Map<String, Tally> named = new LinkedHashMap<>();
+		for (int i = 0; i < opcodes.length; i++) {
+			named.put(OpcodeCounters.nameOf(i), opcodes[i]);
+		}
+		return sorted(named);
+	}
+	long since(final long start) {
+		return Math.max(0, allocated() - start - overhead);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.util.concurrent.atomic.LongAdder;
+public final class EmulatorMetrics implements EmulatorMetricsMXBean {
+	private static final EmulatorMetrics GLOBAL = new EmulatorMetrics();
+	public static final String NAME = "com.bandlem.jvm.jvmulator:type=Emulator";
+	public static EmulatorMetrics global() {
+		return GLOBAL;
+	}
+	final LongAdder fieldAccesses = new LongAdder();
+	final LongAdder frames = new LongAdder();
+	// Frames add their total on return, so adders are touched once per frame rather than per instruction
+	final LongAdder instructions = new LongAdder();
+	final LongAdder invocations = new LongAdder();
+	@Override
+	public long getFieldAccesses() {
+		return fieldAccesses.sum();
+	}
+	@Override
+	public long getFramesCreated() {
+		return frames.sum();
+	}
+	@Override
+	public long getInstructionsExecuted() {
+		return instructions.sum();
+	}
+	@Override
+	public long getInvocations() {
+		return invocations.sum();
+	}
+}
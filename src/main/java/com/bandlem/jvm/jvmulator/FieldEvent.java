@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+@Name("com.bandlem.jvm.jvmulator.Field")
+@Label("Reflective Field Access")
+@Category("JVMulator")
+@Description("A field resolved and accessed through reflection by an emulated frame")
+@Threshold("10 ms")
+class FieldEvent extends Event {
+	@Label("Class")
+	String className;
+	@Label("Descriptor")
+	String descriptor;
+	@Label("Field")
+	String field;
+	@Label("Write")
+	boolean write;
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+@Name("com.bandlem.jvm.jvmulator.Frame")
+@Label("Emulated Frame")
+@Category("JVMulator")
+@Description("An emulated frame run from entry to return")
+@Threshold("1 ms")
+class FrameEvent extends Event {
+	@Label("Class")
+	String className;
+	@Label("Instructions")
+	long instructions;
+	@Label("Method")
+	String method;
+}
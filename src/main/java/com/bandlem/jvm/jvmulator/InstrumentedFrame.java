@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.util.Arrays;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+// Counting lives in a subclass so that uninstrumented frames pay nothing for it
+public class InstrumentedFrame extends JVMFrame {
+	private final long[] counts = new long[256];
+	private final OpcodeCounters counters;
+	public InstrumentedFrame(final JavaClass javaClass, final int locals, final byte[] code,
+			final OpcodeCounters counters) {
+		super(javaClass, locals, code);
+		this.counters = counters;
+	}
+	public InstrumentedFrame(final JavaClass javaClass, final Member.Method method, final OpcodeCounters counters) {
+		super(javaClass, method);
+		this.counters = counters;
+	}
+	public void flush() {
+		counters.add(counts);
+		Arrays.fill(counts, 0);
+	}
+	public long[] getCounts() {
+		return counts.clone();
+	}
+	@Override
+	public boolean step() {
+		counts[bytecode[getPC()] & 0xff]++;
+		boolean more = false;
+		try {
+			more = super.step();
+			return more;
+		} finally {
+			if (!more) {
+				flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+@Name("com.bandlem.jvm.jvmulator.Invoke")
+@Label("Reflective Invoke")
+@Category("JVMulator")
+@Description("A method called through reflection by an emulated frame")
+@Threshold("10 ms")
+class InvokeEvent extends Event {
+	@Label("Class")
+	String className;
+	@Label("Descriptor")
+	String descriptor;
+	@Label("Method")
+	String method;
+}
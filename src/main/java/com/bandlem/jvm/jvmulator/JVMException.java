@@ -0,0 +1,15 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+public class JVMException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	public JVMException(final Throwable thrown) {
+		super(thrown);
+	}
+}
@@ -8,8 +8,10 @@
  */
 package com.bandlem.jvm.jvmulator;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import com.bandlem.jvm.jvmulator.classfile.ClassRepository;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.DoubleConstant;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FieldRef;
@@ -20,7 +22,10 @@ import com.bandlem.jvm.jvmulator.classfile.ConstantPool.LongConstant;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodRef;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.NameAndType;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
 import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
 import com.bandlem.jvm.jvmulator.classfile.Member;
 public class JVMFrame {
 	static Slot getfield(final Object target, final String fieldName, final String descriptor, final String className,
@@ -57,6 +62,12 @@ public class JVMFrame {
 			throw new UnsupportedOperationException("Cannot instanceof " + className + " on " + target, e);
 		}
 	}
+	private static Object nonNull(final Object reference, final byte opcode) {
+		if (reference == null) {
+			throw new JVMException(new NullPointerException("Cannot " + Opcodes.name(opcode) + " on null"));
+		}
+		return reference;
+	}
 	static void putfield(final Slot value, final Object target, final String fieldName, final String descriptor,
 			final String className, final ClassLoader classLoader) {
 		try {
@@ -95,18 +106,50 @@ public class JVMFrame {
 			throw new UnsupportedOperationException("Cannot access field " + className + ":" + fieldName, e);
 		}
 	}
-	private final byte[] bytecode;
+	final byte[] bytecode;
+	private final ExceptionTable exceptionTable;
 	// private final JavaClass javaClass;
 	private final Slot[] locals;
+	private final String method;
+	private final String owner;
 	private int pc;
+	private boolean pinned;
 	private final ConstantPool pool;
+	private final ClassRepository repository;
 	private Slot returnValue;
 	final Stack stack = new Stack();
+	// The owning class stays pinned in the repository from creation until the frame returns or throws
+	public JVMFrame(final ClassRepository repository, final JavaClass javaClass, final Member.Method method) {
+		this(javaClass, method.getCodeAttribute(), method.name + method.descriptor, repository);
+	}
 	public JVMFrame(final JavaClass javaClass, final int locals, final byte[] code) {
+		this(javaClass, locals, code, new ExceptionTable());
+	}
+	JVMFrame(final JavaClass javaClass, final int locals, final byte[] code, final ExceptionTable exceptionTable) {
+		this(javaClass, locals, code, exceptionTable, null, null);
+	}
+	private JVMFrame(final JavaClass javaClass, final int locals, final byte[] code,
+			final ExceptionTable exceptionTable, final String method, final ClassRepository repository) {
 		this.bytecode = code;
+		this.exceptionTable = exceptionTable;
 		this.locals = new Slot[locals];
 		// this.javaClass = javaClass;
+		this.method = method;
+		this.owner = javaClass == null ? null : javaClass.this_class;
 		this.pool = javaClass == null ? null : javaClass.pool;
+		this.repository = repository;
+		if (repository != null) {
+			repository.pin(owner);
+			pinned = true;
+		}
+		EmulatorMetrics.global().frames.increment();
+	}
+	public JVMFrame(final JavaClass javaClass, final Member.Method method) {
+		this(javaClass, method.getCodeAttribute(), method.name + method.descriptor, null);
+	}
+	private JVMFrame(final JavaClass javaClass, final Code code, final String method,
+			final ClassRepository repository) {
+		this(javaClass, code.getMaxLocals(), code.getBytecode(), code.getExceptionTable(), method, repository);
 	}
 	private void getfield(final Object target, final int index) {
 		final FieldRef fieldRef = (FieldRef) pool.getItem(index);
@@ -114,7 +157,16 @@ public class JVMFrame {
 		final String fieldName = pool.getString(nat.nameIndex);
 		final String descriptor = pool.getString(nat.descriptorIndex);
 		final String className = pool.getClassName(fieldRef.classIndex);
+		EmulatorMetrics.global().fieldAccesses.increment();
+		final FieldEvent event = new FieldEvent();
+		event.begin();
 		final Slot result = getfield(target, fieldName, descriptor, className, JVMFrame.class.getClassLoader());
+		if (event.shouldCommit()) {
+			event.className = className;
+			event.descriptor = descriptor;
+			event.field = fieldName;
+			event.commit();
+		}
 		stack.pushSlot(result);
 	}
 	public Slot[] getLocals() {
@@ -135,7 +187,16 @@ public class JVMFrame {
 		final String methodName = pool.getString(nat.nameIndex);
 		final String descriptor = pool.getString(nat.descriptorIndex);
 		final String className = pool.getClassName(methodRef.classIndex);
+		EmulatorMetrics.global().invocations.increment();
+		final InvokeEvent event = new InvokeEvent();
+		event.begin();
 		final Slot result = invoke(methodName, descriptor, className, JVMFrame.class.getClassLoader());
+		if (event.shouldCommit()) {
+			event.className = className;
+			event.descriptor = descriptor;
+			event.method = methodName;
+			event.commit();
+		}
 		if (result != null) {
 			stack.pushSlot(result);
 		}
@@ -152,7 +213,15 @@ public class JVMFrame {
 				args[i] = stack.pop().toObject();
 			}
 			final Object target = isStatic ? null : stack.pop().toObject();
-			final Object result = method.invoke(target, args);
+			if (!isStatic && target == null) {
+				throw new JVMException(new NullPointerException("Cannot invoke " + methodName + " on null"));
+			}
+			final Object result;
+			try {
+				result = method.invoke(target, args);
+			} catch (final InvocationTargetException e) {
+				throw new JVMException(e.getCause());
+			}
 			final char last = descriptor.charAt(descriptor.length() - 1);
 			switch (last) {
 			case 'V':
@@ -172,10 +241,22 @@ public class JVMFrame {
 			default:
 				return Slot.of(result);
 			}
+		} catch (final JVMException e) {
+			throw e;
 		} catch (final Exception e) {
 			throw new UnsupportedOperationException("Cannot execute method " + className + ":" + methodName, e);
 		}
 	}
+	private void handle(final int start, final JVMException uncaught) {
+		final Throwable thrown = uncaught.getCause();
+		final Handler handler = exceptionTable.find(start, thrown);
+		if (handler == null) {
+			throw uncaught;
+		}
+		stack.clear();
+		stack.push(thrown);
+		pc = handler.handlerPC;
+	}
 	private Slot notWide(final Slot slot, final byte opcode) {
 		if (slot.isWide()) {
 			throw new IllegalStateException("Cannot use wide slot for opcode " + opcode);
@@ -205,18 +286,71 @@ public class JVMFrame {
 		final String fieldName = pool.getString(nat.nameIndex);
 		final String descriptor = pool.getString(nat.descriptorIndex);
 		final String className = pool.getClassName(fieldRef.classIndex);
+		EmulatorMetrics.global().fieldAccesses.increment();
+		final FieldEvent event = new FieldEvent();
+		event.begin();
 		putfield(value, target, fieldName, descriptor, className, JVMFrame.class.getClassLoader());
+		if (event.shouldCommit()) {
+			event.className = className;
+			event.descriptor = descriptor;
+			event.field = fieldName;
+			event.write = true;
+			event.commit();
+		}
+	}
+	private void release() {
+		if (pinned) {
+			pinned = false;
+			repository.unpin(owner);
+		}
 	}
 	public Slot run() {
+		final FrameEvent event = new FrameEvent();
+		event.begin();
 		returnValue = null;
-		while (step())
-			;
+		long instructions = 1;
+		while (step()) {
+			instructions++;
+		}
+		EmulatorMetrics.global().instructions.add(instructions);
 		if (stack.size() != 0) {
 			throw new IllegalStateException("Stack should be empty at return");
 		}
+		if (event.shouldCommit()) {
+			event.className = owner;
+			event.instructions = instructions;
+			event.method = method;
+			event.commit();
+		}
 		return returnValue;
 	}
 	public boolean step() {
+		boolean more = false;
+		try {
+			more = stepHandled();
+			return more;
+		} finally {
+			if (!more) {
+				release();
+			}
+		}
+	}
+	private boolean stepHandled() {
+		final int start = pc;
+		try {
+			return stepInstruction();
+		} catch (final JVMException e) {
+			// Only exceptions the emulated code raises, by athrow, a failed check or an invoked method, are handled
+			handle(start, e);
+		} catch (final IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+			throw e;
+		} catch (final RuntimeException e) {
+			// Anything else is a fault in the emulator or malformed bytecode, such as stack underflow
+			throw new IllegalStateException("Cannot execute instruction at " + start + " in " + method, e);
+		}
+		return true;
+	}
+	private boolean stepInstruction() {
 		final byte opcode = bytecode[pc++];
 		switch (opcode) {
 		case Opcodes.NOP:
@@ -301,26 +435,42 @@ public class JVMFrame {
 			return true;
 		// Division
 		case Opcodes.IDIV:
-			stack.push(stack.popInt() / stack.popInt());
+			try {
+				stack.push(stack.popInt() / stack.popInt());
+			} catch (final ArithmeticException e) {
+				throw new JVMException(e);
+			}
 			return true;
 		case Opcodes.FDIV:
 			stack.push(stack.popFloat() / stack.popFloat());
 			return true;
 		case Opcodes.LDIV:
-			stack.push(stack.popLong() / stack.popLong());
+			try {
+				stack.push(stack.popLong() / stack.popLong());
+			} catch (final ArithmeticException e) {
+				throw new JVMException(e);
+			}
 			return true;
 		case Opcodes.DDIV:
 			stack.push(stack.popDouble() / stack.popDouble());
 			return true;
 		// Remainder
 		case Opcodes.IREM:
-			stack.push(stack.popInt() % stack.popInt());
+			try {
+				stack.push(stack.popInt() % stack.popInt());
+			} catch (final ArithmeticException e) {
+				throw new JVMException(e);
+			}
 			return true;
 		case Opcodes.FREM:
 			stack.push(stack.popFloat() % stack.popFloat());
 			return true;
 		case Opcodes.LREM:
-			stack.push(stack.popLong() % stack.popLong());
+			try {
+				stack.push(stack.popLong() % stack.popLong());
+			} catch (final ArithmeticException e) {
+				throw new JVMException(e);
+			}
 			return true;
 		case Opcodes.DREM:
 			stack.push(stack.popDouble() % stack.popDouble());
@@ -689,6 +839,9 @@ public class JVMFrame {
 		case Opcodes.NEWARRAY: {
 			final int size = stack.popInt();
 			final char type = (char) bytecode[pc++];
+			if (size < 0) {
+				throw new JVMException(new NegativeArraySizeException(String.valueOf(size)));
+			}
 			Object array;
 			switch (type) {
 			case 'Z':
@@ -722,7 +875,7 @@ public class JVMFrame {
 			return true;
 		}
 		case Opcodes.ARRAYLENGTH: {
-			final Object array = stack.popReference();
+			final Object array = nonNull(stack.popReference(), opcode);
 			if (array instanceof boolean[]) {
 				stack.push(((boolean[]) array).length);
 			} else if (array instanceof byte[]) {
@@ -763,27 +916,31 @@ public class JVMFrame {
 		case Opcodes.AASTORE: {
 			final Slot value = stack.pop();
 			final int index = stack.popInt();
-			final Object array = stack.popReference();
-			if (array instanceof boolean[] && opcode == Opcodes.BASTORE) {
-				((boolean[]) array)[index] = value.intValue() != 0;
-			} else if (array instanceof byte[] && opcode == Opcodes.BASTORE) {
-				((byte[]) array)[index] = (byte) value.intValue();
-			} else if (array instanceof char[] && opcode == Opcodes.CASTORE) {
-				((char[]) array)[index] = (char) value.intValue();
-			} else if (array instanceof short[] && opcode == Opcodes.SASTORE) {
-				((short[]) array)[index] = (short) value.intValue();
-			} else if (array instanceof int[] && opcode == Opcodes.IASTORE) {
-				((int[]) array)[index] = value.intValue();
-			} else if (array instanceof long[] && opcode == Opcodes.LASTORE) {
-				((long[]) array)[index] = value.longValue();
-			} else if (array instanceof float[] && opcode == Opcodes.FASTORE) {
-				((float[]) array)[index] = value.floatValue();
-			} else if (array instanceof double[] && opcode == Opcodes.DASTORE) {
-				((double[]) array)[index] = value.doubleValue();
-//			} else if (array instanceof Object[]) {
-//				((Object[]) array)[index] = value.referenceValue();
-			} else {
-				throw new IllegalStateException("Unknown array type: " + array + " for aastore");
+			final Object array = nonNull(stack.popReference(), opcode);
+			try {
+				if (array instanceof boolean[] && opcode == Opcodes.BASTORE) {
+					((boolean[]) array)[index] = value.intValue() != 0;
+				} else if (array instanceof byte[] && opcode == Opcodes.BASTORE) {
+					((byte[]) array)[index] = (byte) value.intValue();
+				} else if (array instanceof char[] && opcode == Opcodes.CASTORE) {
+					((char[]) array)[index] = (char) value.intValue();
+				} else if (array instanceof short[] && opcode == Opcodes.SASTORE) {
+					((short[]) array)[index] = (short) value.intValue();
+				} else if (array instanceof int[] && opcode == Opcodes.IASTORE) {
+					((int[]) array)[index] = value.intValue();
+				} else if (array instanceof long[] && opcode == Opcodes.LASTORE) {
+					((long[]) array)[index] = value.longValue();
+				} else if (array instanceof float[] && opcode == Opcodes.FASTORE) {
+					((float[]) array)[index] = value.floatValue();
+				} else if (array instanceof double[] && opcode == Opcodes.DASTORE) {
+					((double[]) array)[index] = value.doubleValue();
+//				} else if (array instanceof Object[]) {
+//					((Object[]) array)[index] = value.referenceValue();
+				} else {
+					throw new IllegalStateException("Unknown array type: " + array + " for aastore");
+				}
+			} catch (final ArrayIndexOutOfBoundsException e) {
+				throw new JVMException(e);
 			}
 			return true;
 		}
@@ -803,27 +960,31 @@ public class JVMFrame {
 			// Fallthrough
 		case Opcodes.AALOAD: {
 			final int index = stack.popInt();
-			final Object array = stack.popReference();
-			if (array instanceof boolean[] && opcode == Opcodes.BALOAD) {
-				stack.push(((boolean[]) array)[index] ? 1 : 0);
-			} else if (array instanceof byte[] && opcode == Opcodes.BALOAD) {
-				stack.push(((byte[]) array)[index]);
-			} else if (array instanceof char[] && opcode == Opcodes.CALOAD) {
-				stack.push(((char[]) array)[index]);
-			} else if (array instanceof short[] && opcode == Opcodes.SALOAD) {
-				stack.push(((short[]) array)[index]);
-			} else if (array instanceof int[] && opcode == Opcodes.IALOAD) {
-				stack.push(((int[]) array)[index]);
-			} else if (array instanceof long[] && opcode == Opcodes.LALOAD) {
-				stack.push(((long[]) array)[index]);
-			} else if (array instanceof float[] && opcode == Opcodes.FALOAD) {
-				stack.push(((float[]) array)[index]);
-			} else if (array instanceof double[] && opcode == Opcodes.DALOAD) {
-				stack.push(((double[]) array)[index]);
-//			} else if (array instanceof Object[] && opcode == Opcodes.AALOAD) {
-//				stack.push(((Object[]) array).length);
-			} else {
-				throw new IllegalStateException("Unknown array type: " + array + " for " + Opcodes.name(opcode));
+			final Object array = nonNull(stack.popReference(), opcode);
+			try {
+				if (array instanceof boolean[] && opcode == Opcodes.BALOAD) {
+					stack.push(((boolean[]) array)[index] ? 1 : 0);
+				} else if (array instanceof byte[] && opcode == Opcodes.BALOAD) {
+					stack.push(((byte[]) array)[index]);
+				} else if (array instanceof char[] && opcode == Opcodes.CALOAD) {
+					stack.push(((char[]) array)[index]);
+				} else if (array instanceof short[] && opcode == Opcodes.SALOAD) {
+					stack.push(((short[]) array)[index]);
+				} else if (array instanceof int[] && opcode == Opcodes.IALOAD) {
+					stack.push(((int[]) array)[index]);
+				} else if (array instanceof long[] && opcode == Opcodes.LALOAD) {
+					stack.push(((long[]) array)[index]);
+				} else if (array instanceof float[] && opcode == Opcodes.FALOAD) {
+					stack.push(((float[]) array)[index]);
+				} else if (array instanceof double[] && opcode == Opcodes.DALOAD) {
+					stack.push(((double[]) array)[index]);
+//				} else if (array instanceof Object[] && opcode == Opcodes.AALOAD) {
+//					stack.push(((Object[]) array).length);
+				} else {
+					throw new IllegalStateException("Unknown array type: " + array + " for " + Opcodes.name(opcode));
+				}
+			} catch (final ArrayIndexOutOfBoundsException e) {
+				throw new JVMException(e);
 			}
 			return true;
 		}
@@ -992,7 +1153,22 @@ public class JVMFrame {
 		case Opcodes.LDC2_W:
 			pushConstant((bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
 			return true;
+		// Exceptions
+		case Opcodes.ATHROW: {
+			final Object thrown = stack.popReference();
+			throw new JVMException(thrown == null ? new NullPointerException() : (Throwable) thrown);
+		}
 		// Instances
+		case Opcodes.CHECKCAST: {
+			final String className = pool.getClassName((bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
+			final Object ref = stack.popReference();
+			if (ref != null && !instanceOf(ref, className)) {
+				throw new JVMException(
+						new ClassCastException(ref.getClass().getName() + " cannot be cast to " + className));
+			}
+			stack.push(ref);
+			return true;
+		}
 		case Opcodes.INSTANCEOF: {
 			final int index = (bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff);
 			final Object ref = stack.popReference();
@@ -1022,11 +1198,13 @@ public class JVMFrame {
 			return true;
 		}
 		case Opcodes.GETFIELD: {
-			getfield(stack.popReference(), (bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
+			getfield(nonNull(stack.popReference(), opcode), (bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
 			return true;
 		}
 		case Opcodes.PUTFIELD: {
-			putfield(stack.pop(), stack.popReference(), (bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
+			final Slot value = stack.pop();
+			final Object target = nonNull(stack.popReference(), opcode);
+			putfield(value, target, (bytecode[pc++] & 0xff) << 8 | (bytecode[pc++] & 0xff));
 			return true;
 		}
 		// Miscellaneous
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+public final class OpcodeCounters {
+	private static final OpcodeCounters GLOBAL = new OpcodeCounters();
+	public static OpcodeCounters global() {
+		return GLOBAL;
+	}
+	static String nameOf(final int opcode) {
+		final String name = Opcodes.name((byte) opcode);
+		return name == null ? String.format("0x%02x", opcode) : name;
+	}
+	// Frames fold whole arrays in, so adders are only contended once per frame rather than per instruction
+	private final LongAdder[] counters = new LongAdder[256];
+	public OpcodeCounters() {
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+	}
+	public void add(final long[] counts) {
+		for (int i = 0; i < counters.length; i++) {
+			if (counts[i] != 0) {
+				counters[i].add(counts[i]);
+			}
+		}
+	}
+	public long count(final byte opcode) {
+		return counters[opcode & 0xff].sum();
+	}
+	public Map<String, Long> histogram() {
+		final List<Integer> opcodes = new ArrayList<>();
+		final long[] sums = new long[counters.length];
+		for (int i = 0; i < counters.length; i++) {
+			sums[i] = counters[i].sum();
+			if (sums[i] != 0) {
+				opcodes.add(i);
+			}
+		}
+		opcodes.sort((a, b) -> Long.compare(sums[b], sums[a]));
+		final Map<String, Long> histogram = new LinkedHashMap<>();
+		for (final int opcode : opcodes) {
+			histogram.put(nameOf(opcode), sums[opcode]);
+		}
+		return histogram;
+	}
+	public void reset() {
+		for (final LongAdder counter : counters) {
+			counter.reset();
+		}
+	}
+}
@@ -471,6 +471,19 @@ public interface Opcodes {
 	public static final byte SWAP = (byte) 95;
 	public static final byte TABLESWITCH = (byte) 170;
 	public static final byte WIDE = (byte) 196;
+	static int length(final byte[] code, final int pc) {
+		final int aligned = (pc + 4) & ~3;
+		switch (code[pc]) {
+		case TABLESWITCH:
+			return aligned - pc + 12 + 4 * (readInt(code, aligned + 8) - readInt(code, aligned + 4) + 1);
+		case LOOKUPSWITCH:
+			return aligned - pc + 8 + 8 * readInt(code, aligned + 4);
+		case WIDE:
+			return code[pc + 1] == IINC ? 6 : 4;
+		default:
+			return 1 + operands(code[pc]);
+		}
+	}
 	public static String name(final byte i) {
 		return name[i & 0xff];
 	}
@@ -511,6 +524,7 @@ public interface Opcodes {
 		case IFGT:
 		case IFLE:
 		case IFLT:
+		case IFNE:
 		case IFNONNULL:
 		case IFNULL:
 		case IINC:
@@ -540,9 +554,14 @@ public interface Opcodes {
 		case TABLESWITCH:
 		case LOOKUPSWITCH:
 			operands = -1;
+			break;
 		default:
 			operands = 0;
 		}
 		return operands;
 	}
+	static int readInt(final byte[] code, final int offset) {
+		return (code[offset] & 0xff) << 24 | (code[offset + 1] & 0xff) << 16 | (code[offset + 2] & 0xff) << 8
+				| (code[offset + 3] & 0xff);
+	}
 }
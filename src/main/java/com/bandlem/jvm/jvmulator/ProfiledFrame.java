@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.util.concurrent.atomic.LongAdder;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+public class ProfiledFrame extends JVMFrame {
+	private final LongAdder exclusive;
+	final String method;
+	private final Profiler profiler;
+	private long start;
+	private Profiler.ThreadState thread;
+	public ProfiledFrame(final JavaClass javaClass, final int locals, final byte[] code, final Profiler profiler,
+			final String method) {
+		super(javaClass, locals, code);
+		this.profiler = profiler;
+		this.method = method;
+		this.exclusive = profiler.counter(method);
+	}
+	public ProfiledFrame(final JavaClass javaClass, final Member.Method method, final Profiler profiler,
+			final String name) {
+		super(javaClass, method);
+		this.profiler = profiler;
+		this.method = name;
+		this.exclusive = profiler.counter(name);
+	}
+	// The frame is on its thread's profiled stack from its first step until it returns or throws
+	@Override
+	public boolean step() {
+		if (thread == null) {
+			thread = profiler.enter(this);
+			start = thread.executed;
+		}
+		thread.executed++;
+		exclusive.increment();
+		boolean more = false;
+		try {
+			more = super.step();
+			return more;
+		} finally {
+			if (!more) {
+				profiler.exit(thread, this, start);
+				thread = null;
+			}
+		}
+	}
+}
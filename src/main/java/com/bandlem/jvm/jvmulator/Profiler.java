@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+public class Profiler implements AutoCloseable {
+	static class ThreadState {
+		long executed;
+		// Replaced rather than mutated, so the sampler always sees a consistent stack
+		volatile ProfiledFrame[] frames = NONE;
+	}
+	private static final ProfiledFrame[] NONE = new ProfiledFrame[0];
+	private static Map<String, Long> snapshot(final Map<String, LongAdder> counters) {
+		final Map<String, Long> snapshot = new TreeMap<>();
+		counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+		return snapshot;
+	}
+	private final Map<String, LongAdder> exclusive = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> inclusive = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> samples = new ConcurrentHashMap<>();
+	private ScheduledExecutorService sampler;
+	private final ThreadLocal<ThreadState> state = ThreadLocal.withInitial(this::register);
+	private final Map<Thread, ThreadState> threads = new ConcurrentHashMap<>();
+	@Override
+	public synchronized void close() {
+		if (sampler != null) {
+			sampler.shutdownNow();
+			sampler = null;
+		}
+	}
+	LongAdder counter(final String method) {
+		return exclusive.computeIfAbsent(method, name -> new LongAdder());
+	}
+	ThreadState enter(final ProfiledFrame frame) {
+		final ThreadState thread = state.get();
+		final ProfiledFrame[] frames = Arrays.copyOf(thread.frames, thread.frames.length + 1);
+		frames[frames.length - 1] = frame;
+		thread.frames = frames;
+		return thread;
+	}
+	public Map<String, Long> exclusive() {
+		return snapshot(exclusive);
+	}
+	void exit(final ThreadState thread, final ProfiledFrame frame, final long start) {
+		final ProfiledFrame[] frames = Arrays.copyOf(thread.frames, thread.frames.length - 1);
+		thread.frames = frames;
+		for (final ProfiledFrame caller : frames) {
+			// A recursive activation is already covered by the outermost one
+			if (caller.method.equals(frame.method)) {
+				return;
+			}
+		}
+		inclusive.computeIfAbsent(frame.method, name -> new LongAdder()).add(thread.executed - start);
+	}
+	public Map<String, Long> inclusive() {
+		return snapshot(inclusive);
+	}
+	private ThreadState register() {
+		final ThreadState thread = new ThreadState();
+		threads.put(Thread.currentThread(), thread);
+		return thread;
+	}
+	public void sample() {
+		threads.forEach((thread, each) -> {
+			if (!thread.isAlive()) {
+				threads.remove(thread);
+				return;
+			}
+			final ProfiledFrame[] frames = each.frames;
+			if (frames.length > 0) {
+				final StringJoiner stack = new StringJoiner(";");
+				for (final ProfiledFrame frame : frames) {
+					stack.add(frame.method);
+				}
+				stack.add("@" + frames[frames.length - 1].getPC());
+				samples.computeIfAbsent(stack.toString(), name -> new LongAdder()).increment();
+			}
+		});
+	}
+	public Map<String, Long> samples() {
+		return snapshot(samples);
+	}
+	public synchronized void start(final long period, final TimeUnit unit) {
+		if (sampler != null) {
+			throw new IllegalStateException("Profiler is already sampling");
+		}
+		sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "profiler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sampler.scheduleAtFixedRate(this::sample, period, period, unit);
+	}
+	// Collapsed stacks, one "outer;inner;@pc count" line each, as read by flame graph tools
+	public void writeCollapsed(final Appendable out) throws IOException {
+		for (final Map.Entry<String, Long> entry : samples().entrySet()) {
+			out.append(entry.getKey()).append(' ').append(String.valueOf(entry.getValue())).append('\n');
+		}
+	}
+}
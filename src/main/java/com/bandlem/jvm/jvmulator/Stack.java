@@ -15,6 +15,9 @@ public class Stack {
 	public Slot at(final int i) {
 		return internal.get(i);
 	}
+	public void clear() {
+		internal.clear();
+	}
 	public void dup() {
 		internal.add(internal.get(internal.size() - 1));
 	}
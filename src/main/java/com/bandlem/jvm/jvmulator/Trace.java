@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+public class Trace implements AutoCloseable {
+	private static final int COUNT = 8;
+	static final int HEADER = 16;
+	static final int MAGIC = 0x4a565452;
+	static final int RECORD = 8;
+	public static void decode(final Path path, final Appendable out) throws IOException {
+		final List<String> methods = Files.exists(names(path))
+				? Files.readAllLines(names(path), StandardCharsets.UTF_8)
+				: List.of();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IllegalArgumentException("Content is not an execution trace");
+			}
+			final int capacity = buffer.getInt(4);
+			final long count = buffer.getLong(COUNT);
+			for (long i = Math.max(0, count - capacity); i < count; i++) {
+				final long record = buffer.getLong(HEADER + (int) (i % capacity) * RECORD);
+				final int method = (int) (record >>> 40);
+				out.append(String.format("%s %5d: %-15s %d%n",
+						method < methods.size() ? methods.get(method) : "#" + method, record >>> 24 & 0xffff,
+						OpcodeCounters.nameOf((int) (record >>> 16 & 0xff)), record & 0xffff));
+			}
+		}
+	}
+	private static Path names(final Path path) {
+		return path.resolveSibling(path.getFileName() + ".methods");
+	}
+	public static Trace open(final Path path, final int capacity) throws IOException {
+		Files.write(names(path), new byte[0]);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return new Trace(path, channel.map(MapMode.READ_WRITE, 0, HEADER + (long) capacity * RECORD), capacity);
+		}
+	}
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+	private long count;
+	private final List<String> methods = new ArrayList<>();
+	private final Path path;
+	private Trace(final Path path, final MappedByteBuffer buffer, final int capacity) {
+		this.path = path;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, capacity);
+	}
+	@Override
+	public void close() {
+		buffer.force();
+	}
+	public long count() {
+		return count;
+	}
+	// Names are rare and written to a side file, so records stay fixed width
+	public int method(final String name) throws IOException {
+		Files.write(names(path), List.of(name), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		methods.add(name);
+		return methods.size() - 1;
+	}
+	// One packed long per instruction: method id (24 bits), pc (16), opcode (8) and stack depth (16)
+	public void record(final int method, final int pc, final byte opcode, final int depth) {
+		buffer.putLong(HEADER + (int) (count % capacity) * RECORD,
+				(long) method << 40 | (long) pc << 24 | (opcode & 0xffL) << 16 | depth & 0xffff);
+		buffer.putLong(COUNT, ++count);
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+public class TracingFrame extends JVMFrame {
+	private final int method;
+	private final Trace trace;
+	public TracingFrame(final JavaClass javaClass, final int locals, final byte[] code, final Trace trace,
+			final int method) {
+		super(javaClass, locals, code);
+		this.trace = trace;
+		this.method = method;
+	}
+	public TracingFrame(final JavaClass javaClass, final Member.Method method, final Trace trace, final int id) {
+		super(javaClass, method);
+		this.trace = trace;
+		this.method = id;
+	}
+	@Override
+	public boolean step() {
+		final int pc = getPC();
+		trace.record(method, pc, bytecode[pc], stack.size());
+		return super.step();
+	}
+}
@@ -13,21 +13,46 @@ import java.io.IOException;
 public abstract class Attribute {
 	public static class Code extends Attribute {
 		public static final String NAME = "Code";
+		private final Attribute[] attributes;
 		private final byte[] bytecode;
+		private final ExceptionTable exceptionTable;
 		private final short maxLocals;
 		private final short maxStack;
-		public Code(final DataInputStream dis) throws IOException {
+		public Code(final DataInputStream dis, final ConstantPool pool) throws IOException {
 			super(NAME);
 			maxStack = dis.readShort();
 			maxLocals = dis.readShort();
 			bytecode = new byte[dis.readInt()];
 			dis.readFully(bytecode);
-			// exception table
-			// code attributes
+			exceptionTable = new ExceptionTable(dis, pool);
+			attributes = JavaClass.readAttributes(dis, pool);
+		}
+		public Code(final short maxStack, final short maxLocals, final byte[] bytecode,
+				final ExceptionTable exceptionTable, final Attribute[] attributes) {
+			super(NAME);
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+			this.bytecode = bytecode;
+			this.exceptionTable = exceptionTable;
+			this.attributes = attributes;
+		}
+		public Attribute getAttribute(final String name) {
+			for (final Attribute attribute : attributes) {
+				if (name.equals(attribute.attributeName)) {
+					return attribute;
+				}
+			}
+			return null;
+		}
+		public Attribute[] getAttributes() {
+			return attributes;
 		}
 		public byte[] getBytecode() {
 			return bytecode;
 		}
+		public ExceptionTable getExceptionTable() {
+			return exceptionTable;
+		}
 		public short getMaxLocals() {
 			return maxLocals;
 		}
@@ -39,8 +64,11 @@ public abstract class Attribute {
 		public static final String NAME = "SourceFile";
 		public final String file;
 		public SourceFile(final DataInputStream dis, final ConstantPool pool) throws IOException {
+			this(pool.getString(dis.readShort()));
+		}
+		SourceFile(final String file) {
 			super(NAME);
-			this.file = pool.getString(dis.readShort());
+			this.file = file;
 		}
 		@Override
 		public String toString() {
@@ -58,7 +86,7 @@ public abstract class Attribute {
 		try {
 			final DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
 			if (Code.NAME.equals(attributeName)) {
-				return new Code(dis);
+				return new Code(dis, pool);
 			} else if (SourceFile.NAME.equals(attributeName)) {
 				return new SourceFile(dis, pool);
 			} else {
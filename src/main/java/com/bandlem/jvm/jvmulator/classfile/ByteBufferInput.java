@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+class ByteBufferInput implements DataInput {
+	private final ByteBuffer buffer;
+	ByteBufferInput(final ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	private ByteBuffer ensure(final int length) throws EOFException {
+		if (buffer.remaining() < length) {
+			throw new EOFException("Needed " + length + " bytes but only " + buffer.remaining() + " remain");
+		}
+		return buffer;
+	}
+	@Override
+	public boolean readBoolean() throws IOException {
+		return ensure(1).get() != 0;
+	}
+	@Override
+	public byte readByte() throws IOException {
+		return ensure(1).get();
+	}
+	@Override
+	public char readChar() throws IOException {
+		return ensure(2).getChar();
+	}
+	@Override
+	public double readDouble() throws IOException {
+		return ensure(8).getDouble();
+	}
+	@Override
+	public float readFloat() throws IOException {
+		return ensure(4).getFloat();
+	}
+	@Override
+	public void readFully(final byte[] bytes) throws IOException {
+		readFully(bytes, 0, bytes.length);
+	}
+	@Override
+	public void readFully(final byte[] bytes, final int offset, final int length) throws IOException {
+		ensure(length).get(bytes, offset, length);
+	}
+	@Override
+	public int readInt() throws IOException {
+		return ensure(4).getInt();
+	}
+	@Override
+	public String readLine() {
+		if (!buffer.hasRemaining()) {
+			return null;
+		}
+		final StringBuilder line = new StringBuilder();
+		while (buffer.hasRemaining()) {
+			final char c = (char) (buffer.get() & 0xff);
+			if (c == '\n') {
+				break;
+			} else if (c == '\r') {
+				if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+					buffer.get();
+				}
+				break;
+			}
+			line.append(c);
+		}
+		return line.toString();
+	}
+	@Override
+	public long readLong() throws IOException {
+		return ensure(8).getLong();
+	}
+	@Override
+	public short readShort() throws IOException {
+		return ensure(2).getShort();
+	}
+	@Override
+	public int readUnsignedByte() throws IOException {
+		return readByte() & 0xff;
+	}
+	@Override
+	public int readUnsignedShort() throws IOException {
+		return readShort() & 0xffff;
+	}
+	@Override
+	public String readUTF() throws IOException {
+		return DataInputStream.readUTF(this);
+	}
+	@Override
+	public int skipBytes(final int count) {
+		final int skipped = Math.min(count, buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+}
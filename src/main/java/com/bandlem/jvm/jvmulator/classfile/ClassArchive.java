@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.SourceFile;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ClassRepository.Stamp;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.UTFConstant;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+import com.bandlem.jvm.jvmulator.classfile.Member.Field;
+import com.bandlem.jvm.jvmulator.classfile.Member.Method;
+public class ClassArchive {
+	private static class Entry {
+		final int length;
+		final int offset;
+		final Stamp stamp;
+		Entry(final Stamp stamp, final int offset, final int length) {
+			this.stamp = stamp;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+	// Strings are shared across every class in the archive and stored once, so that
+	// names, descriptors and pool entries are decoded when the archive is opened
+	private static class Writer {
+		final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(data);
+		final Map<String, Integer> strings = new LinkedHashMap<>();
+		void writeAttributes(final Attribute[] attributes) throws IOException {
+			out.writeShort(attributes.length);
+			for (final Attribute attribute : attributes) {
+				if (attribute instanceof Code) {
+					final Code code = (Code) attribute;
+					out.writeByte(CODE);
+					writeString(attribute.attributeName);
+					out.writeShort(code.getMaxStack());
+					out.writeShort(code.getMaxLocals());
+					writeBytes(code.getBytecode());
+					out.writeShort(code.getExceptionTable().size());
+					for (final Handler handler : code.getExceptionTable().handlers) {
+						out.writeShort(handler.startPC);
+						out.writeShort(handler.endPC);
+						out.writeShort(handler.handlerPC);
+						writeString(handler.catchType);
+					}
+					writeAttributes(code.getAttributes());
+				} else if (attribute instanceof SourceFile) {
+					out.writeByte(SOURCE_FILE);
+					writeString(attribute.attributeName);
+					writeString(((SourceFile) attribute).file);
+				} else {
+					out.writeByte(UNKNOWN);
+					writeString(attribute.attributeName);
+					writeBytes(((Unknown) attribute).data);
+				}
+			}
+		}
+		void writeBytes(final byte[] bytes) throws IOException {
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		void writeClass(final JavaClass javaClass) throws IOException {
+			out.writeShort(javaClass.minor);
+			out.writeShort(javaClass.major);
+			writePool(javaClass.pool);
+			out.writeShort(javaClass.flags);
+			writeString(javaClass.this_class);
+			writeString(javaClass.super_class);
+			out.writeShort(javaClass.interfaces.length);
+			for (final String name : javaClass.interfaces) {
+				writeString(name);
+			}
+			writeMembers(javaClass.fields);
+			writeMembers(javaClass.methods);
+			writeAttributes(javaClass.classAttributes);
+		}
+		void writeMembers(final Member[] members) throws IOException {
+			out.writeShort(members.length);
+			for (final Member member : members) {
+				out.writeShort(member.flags);
+				writeString(member.name);
+				writeString(member.descriptor);
+				writeAttributes(member.attributes);
+			}
+		}
+		void writePool(final ConstantPool pool) throws IOException {
+			out.writeShort(pool.size());
+			for (int i = 1; i < pool.size(); i++) {
+				final Item item = pool.items[i];
+				if (item instanceof UTFConstant) {
+					out.writeByte(UTFConstant.TYPE);
+					writeString(((UTFConstant) item).value);
+				} else {
+					item.write(out);
+				}
+				if (item.isWide()) {
+					i++;
+				}
+			}
+		}
+		void writeString(final String value) throws IOException {
+			out.writeInt(value == null ? -1 : strings.computeIfAbsent(value, key -> strings.size()));
+		}
+	}
+	private static final byte CODE = 1;
+	static final int MAGIC = 0x4a564d41;
+	private static final byte SOURCE_FILE = 2;
+	private static final byte UNKNOWN = 0;
+	static final short VERSION = 4;
+	public static ClassArchive open(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new ClassArchive(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+	private static byte[] readBytes(final DataInput in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+	public static int write(final Path path, final ClassRepository repository) throws IOException {
+		final Writer writer = new Writer();
+		final ByteArrayOutputStream index = new ByteArrayOutputStream();
+		final DataOutputStream indexOut = new DataOutputStream(index);
+		int count = 0;
+		for (final String name : repository.names()) {
+			final int offset = writer.data.size();
+			writer.writeClass(repository.get(name));
+			final Stamp stamp = repository.stamp(name);
+			indexOut.writeInt(writer.strings.get(name));
+			indexOut.writeLong(stamp.size);
+			indexOut.writeLong(stamp.checksum);
+			indexOut.writeInt(offset);
+			indexOut.writeInt(writer.data.size() - offset);
+			count++;
+		}
+		try (OutputStream file = Files.newOutputStream(path); DataOutputStream out = new DataOutputStream(file)) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeInt(writer.strings.size());
+			for (final String string : writer.strings.keySet()) {
+				out.writeUTF(string);
+			}
+			out.writeInt(count);
+			index.writeTo(out);
+			writer.data.writeTo(out);
+		}
+		return count;
+	}
+	private final ByteBuffer buffer;
+	private final Map<String, Entry> entries = new HashMap<>();
+	private final String[] strings;
+	ClassArchive(final ByteBuffer buffer) throws IOException {
+		final ByteBuffer header = buffer.duplicate();
+		final ByteBufferInput in = new ByteBufferInput(header);
+		if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+			throw new IllegalArgumentException("Content is not a class archive of version " + VERSION);
+		}
+		strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+		final int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			final String name = strings[in.readInt()];
+			entries.put(name, new Entry(new Stamp(in.readLong(), in.readLong()), in.readInt(), in.readInt()));
+		}
+		this.buffer = header.slice();
+	}
+	// Each call decodes a new JavaClass and nothing is retained, so caching is left to the repository's
+	// bounded ClassCache and a class it evicts can be collected
+	public JavaClass get(final String name, final Stamp stamp) {
+		final Entry entry = entries.get(name);
+		if (entry == null || !entry.stamp.matches(stamp)) {
+			return null;
+		}
+		final ByteBuffer slice = buffer.duplicate().position(entry.offset).limit(entry.offset + entry.length);
+		try {
+			return readClass(new ByteBufferInput(slice));
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("Unable to read archived class " + name, e);
+		}
+	}
+	private Attribute[] readAttributes(final DataInput in) throws IOException {
+		final Attribute[] attributes = new Attribute[in.readUnsignedShort()];
+		for (int i = 0; i < attributes.length; i++) {
+			final byte kind = in.readByte();
+			final String name = readString(in);
+			if (kind == CODE) {
+				final short maxStack = in.readShort();
+				final short maxLocals = in.readShort();
+				final byte[] bytecode = readBytes(in);
+				final Handler[] handlers = new Handler[in.readUnsignedShort()];
+				for (int h = 0; h < handlers.length; h++) {
+					final int startPC = in.readUnsignedShort();
+					final int endPC = in.readUnsignedShort();
+					final int handlerPC = in.readUnsignedShort();
+					handlers[h] = new Handler(startPC, endPC, handlerPC, readString(in));
+				}
+				attributes[i] = new Code(maxStack, maxLocals, bytecode, new ExceptionTable(handlers),
+						readAttributes(in));
+			} else if (kind == SOURCE_FILE) {
+				attributes[i] = new SourceFile(readString(in));
+			} else {
+				attributes[i] = new Unknown(name, readBytes(in));
+			}
+		}
+		return attributes;
+	}
+	private JavaClass readClass(final DataInput in) throws IOException {
+		final short minor = in.readShort();
+		final short major = in.readShort();
+		final ConstantPool pool = readPool(in);
+		final short flags = in.readShort();
+		final String this_class = readString(in);
+		final String super_class = readString(in);
+		final String[] interfaces = new String[in.readUnsignedShort()];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = readString(in);
+		}
+		final Field[] fields = new Field[in.readUnsignedShort()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = new Field(in.readShort(), readString(in), readString(in), readAttributes(in));
+		}
+		final Method[] methods = new Method[in.readUnsignedShort()];
+		for (int i = 0; i < methods.length; i++) {
+			methods[i] = new Method(in.readShort(), readString(in), readString(in), readAttributes(in));
+		}
+		return new JavaClass(minor, major, pool, flags, this_class, super_class, interfaces, fields, methods,
+				readAttributes(in));
+	}
+	private ConstantPool readPool(final DataInput in) throws IOException {
+		final Item[] items = new Item[in.readUnsignedShort()];
+		for (int i = 1; i < items.length; i++) {
+			final byte type = in.readByte();
+			items[i] = type == UTFConstant.TYPE ? new UTFConstant(readString(in)) : Item.read(type, in);
+			if (items[i].isWide()) {
+				i++;
+			}
+		}
+		return new ConstantPool(items);
+	}
+	private String readString(final DataInput in) throws IOException {
+		final int index = in.readInt();
+		return index < 0 ? null : strings[index];
+	}
+	public int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.UTFConstant;
+public class ClassCache {
+	private static class Entry {
+		final JavaClass javaClass;
+		int pins;
+		final long size;
+		Entry(final JavaClass javaClass) {
+			this.javaClass = javaClass;
+			this.size = sizeOf(javaClass);
+		}
+	}
+	// Approximate per-object overhead of a header plus a few fields
+	private static final int OBJECT = 24;
+	private static final int REFERENCE = 8;
+	// Loads already parsed classes, such as those decoded from a ClassArchive
+	static ClassCache of(final long capacity, final Function<String, JavaClass> loader) {
+		return new ClassCache(loader, capacity);
+	}
+	private static long sizeOf(final Attribute[] attributes) {
+		long size = OBJECT + REFERENCE * attributes.length;
+		for (final Attribute attribute : attributes) {
+			size += OBJECT;
+			if (attribute instanceof Code) {
+				final Code code = (Code) attribute;
+				size += OBJECT + code.getBytecode().length + OBJECT * 2 * code.getExceptionTable().size()
+						+ sizeOf(code.getAttributes());
+			} else if (attribute instanceof Unknown) {
+				size += OBJECT + ((Unknown) attribute).data.length;
+			}
+		}
+		return size;
+	}
+	static long sizeOf(final JavaClass javaClass) {
+		long size = OBJECT * 2 + REFERENCE * (javaClass.interfaces.length + javaClass.pool.size());
+		for (int i = 1; i < javaClass.pool.size(); i++) {
+			final Item item = javaClass.pool.getItem(i);
+			if (item instanceof UTFConstant) {
+				size += OBJECT * 2 + ((UTFConstant) item).value.length();
+			} else if (item != null) {
+				size += OBJECT;
+			}
+		}
+		return size + sizeOf(javaClass.fields) + sizeOf(javaClass.methods) + sizeOf(javaClass.classAttributes);
+	}
+	private static long sizeOf(final Member[] members) {
+		long size = OBJECT + REFERENCE * members.length;
+		for (final Member member : members) {
+			size += OBJECT + sizeOf(member.attributes);
+		}
+		return size;
+	}
+	private long bytes;
+	private final long capacity;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+	private long evictions;
+	private long hits;
+	private final Function<String, JavaClass> loader;
+	private long misses;
+	public ClassCache(final long capacity, final Function<String, byte[]> source) {
+		this(name -> {
+			final byte[] bytes = source.apply(name);
+			return bytes == null ? null : new JavaClass(new DataInputStream(new ByteArrayInputStream(bytes)));
+		}, capacity);
+	}
+	private ClassCache(final Function<String, JavaClass> loader, final long capacity) {
+		this.capacity = capacity;
+		this.loader = loader;
+	}
+	public synchronized long bytes() {
+		return bytes;
+	}
+	private void evict() {
+		final Iterator<Entry> iterator = entries.values().iterator();
+		while (bytes > capacity && iterator.hasNext()) {
+			final Entry entry = iterator.next();
+			if (entry.pins == 0) {
+				iterator.remove();
+				bytes -= entry.size;
+				evictions++;
+				ClassMetrics.global().cached.decrement();
+				ClassMetrics.global().evictions.increment();
+			}
+		}
+	}
+	public synchronized long evictions() {
+		return evictions;
+	}
+	public JavaClass get(final String name) {
+		final Entry entry = load(name, false);
+		return entry == null ? null : entry.javaClass;
+	}
+	public synchronized long hits() {
+		return hits;
+	}
+	private Entry load(final String name, final boolean pin) {
+		synchronized (this) {
+			final Entry entry = entries.get(name);
+			if (entry != null) {
+				hits++;
+				ClassMetrics.global().hits.increment();
+				entry.pins += pin ? 1 : 0;
+				return entry;
+			}
+			misses++;
+			ClassMetrics.global().misses.increment();
+		}
+		// Parse outside the lock so that a slow load does not block hits on other classes
+		final JavaClass javaClass = loader.apply(name);
+		return javaClass == null ? null : store(name, new Entry(javaClass), pin);
+	}
+	public synchronized long misses() {
+		return misses;
+	}
+	public JavaClass pin(final String name) {
+		final Entry entry = load(name, true);
+		return entry == null ? null : entry.javaClass;
+	}
+	void put(final String name, final JavaClass javaClass) {
+		store(name, new Entry(javaClass), false);
+	}
+	public synchronized void remove(final String name) {
+		final Entry entry = entries.get(name);
+		if (entry == null) {
+			return;
+		}
+		if (entry.pins != 0) {
+			throw new IllegalStateException("Class " + name + " is in use");
+		}
+		entries.remove(name);
+		bytes -= entry.size;
+		ClassMetrics.global().cached.decrement();
+	}
+	public synchronized int size() {
+		return entries.size();
+	}
+	private synchronized Entry store(final String name, final Entry loaded, final boolean pin) {
+		Entry entry = entries.putIfAbsent(name, loaded);
+		if (entry == null) {
+			entry = loaded;
+			this.bytes += entry.size;
+			ClassMetrics.global().cached.increment();
+		}
+		entry.pins += pin ? 1 : 0;
+		evict();
+		return entry;
+	}
+	public synchronized void unpin(final String name) {
+		final Entry entry = entries.get(name);
+		if (entry == null || entry.pins == 0) {
+			throw new IllegalStateException("Class " + name + " is not pinned");
+		}
+		entry.pins--;
+		evict();
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.util.concurrent.atomic.LongAdder;
+public final class ClassMetrics implements ClassMetricsMXBean {
+	private static final ClassMetrics GLOBAL = new ClassMetrics();
+	public static final String NAME = "com.bandlem.jvm.jvmulator:type=Classes";
+	public static ClassMetrics global() {
+		return GLOBAL;
+	}
+	// Totals across every ClassCache, so that short-lived caches still show up
+	final LongAdder cached = new LongAdder();
+	final LongAdder evictions = new LongAdder();
+	final LongAdder hits = new LongAdder();
+	final LongAdder misses = new LongAdder();
+	final LongAdder parsed = new LongAdder();
+	@Override
+	public long getCacheEvictions() {
+		return evictions.sum();
+	}
+	@Override
+	public long getCacheHits() {
+		return hits.sum();
+	}
+	@Override
+	public long getCacheMisses() {
+		return misses.sum();
+	}
+	@Override
+	public long getClassesCached() {
+		return cached.sum();
+	}
+	@Override
+	public long getClassesParsed() {
+		return parsed.sum();
+	}
+}
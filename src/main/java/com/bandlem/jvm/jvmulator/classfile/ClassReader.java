@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import com.bandlem.jvm.jvmulator.Opcodes;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.ClassConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.DoubleConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FieldRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FloatConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.InterfaceMethodRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.InvokeDynamic;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.LongConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodHandle;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodType;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Module;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.NameAndType;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Package;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.UTFConstant;
+// The constant pool is copied as raw bytes with an offset per entry, and only the
+// entries that are asked for are decoded, so skipped sections cost no allocation
+public class ClassReader {
+	private static int lengthOf(final byte type) {
+		switch (type) {
+		case ClassConstant.TYPE:
+		case StringConstant.TYPE:
+		case MethodType.TYPE:
+		case Module.TYPE:
+		case Package.TYPE:
+			return 2;
+		case MethodHandle.TYPE:
+			return 3;
+		case IntConstant.TYPE:
+		case FloatConstant.TYPE:
+		case FieldRef.TYPE:
+		case MethodRef.TYPE:
+		case InterfaceMethodRef.TYPE:
+		case NameAndType.TYPE:
+		case InvokeDynamic.TYPE:
+			return 4;
+		case LongConstant.TYPE:
+		case DoubleConstant.TYPE:
+			return 8;
+		default:
+			throw new IllegalArgumentException("Unknown type " + type);
+		}
+	}
+	private static void skip(final DataInput di, final int length) throws IOException {
+		if (di.skipBytes(length) != length) {
+			throw new EOFException();
+		}
+	}
+	private byte[] code = new byte[0];
+	private int[] offsets = new int[0];
+	private byte[] pool = new byte[0];
+	private int size;
+	private String[] strings = new String[0];
+	public void accept(final DataInput di, final ClassVisitor visitor) throws IllegalArgumentException {
+		try {
+			if (di.readInt() != 0xcafebabe) {
+				throw new IllegalArgumentException("Content is not a class file");
+			}
+			final short minor = di.readShort();
+			final short major = di.readShort();
+			readPool(di);
+			if (visitor.visitPool(size)) {
+				for (int i = 1; i < size; i++) {
+					if (offsets[i] >= 0) {
+						visitor.visitConstant(i, Item.read(input(offsets[i])));
+					}
+				}
+			}
+			final short flags = di.readShort();
+			final String this_class = className(di.readShort());
+			final short superIndex = di.readShort();
+			final String super_class = superIndex == 0 ? null : className(superIndex);
+			final String[] interfaces = new String[di.readShort() & 0xffff];
+			for (int i = 0; i < interfaces.length; i++) {
+				interfaces[i] = className(di.readShort());
+			}
+			if (visitor.visitClass(minor, major, flags, this_class, super_class, interfaces)) {
+				readMembers(di, visitor, false);
+				readMembers(di, visitor, true);
+				readAttributes(di, visitor);
+			}
+			visitor.visitEnd();
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("Unable to parse bytecode", e);
+		}
+	}
+	private String className(final int index) throws IOException {
+		return string(input(offset(index, ClassConstant.TYPE) + 1).readShort());
+	}
+	private void ensurePool(final int length) {
+		if (pool.length < length) {
+			pool = Arrays.copyOf(pool, Math.max(length, pool.length * 2));
+		}
+	}
+	private ByteBufferInput input(final int offset) {
+		return new ByteBufferInput(ByteBuffer.wrap(pool, offset, pool.length - offset));
+	}
+	private int offset(final int index, final int type) {
+		final int i = index & 0xffff;
+		if (i == 0 || i >= size || offsets[i] < 0 || pool[offsets[i]] != type) {
+			throw new IllegalArgumentException("Constant " + i + " is not of type " + type);
+		}
+		return offsets[i];
+	}
+	private void readAttributes(final DataInput di, final ClassVisitor visitor) throws IOException {
+		final int count = di.readShort() & 0xffff;
+		for (int i = 0; i < count; i++) {
+			final String name = string(di.readShort());
+			final int length = di.readInt();
+			if (visitor.visitAttribute(name, length) && Code.NAME.equals(name)) {
+				readCode(di, visitor, length);
+			} else {
+				skip(di, length);
+			}
+		}
+	}
+	private void readCode(final DataInput di, final ClassVisitor visitor, final int length) throws IOException {
+		final short maxStack = di.readShort();
+		final short maxLocals = di.readShort();
+		final int codeLength = di.readInt();
+		if (!visitor.visitCode(maxStack, maxLocals, codeLength)) {
+			skip(di, length - 8);
+			return;
+		}
+		if (code.length < codeLength) {
+			code = new byte[codeLength];
+		}
+		di.readFully(code, 0, codeLength);
+		for (int pc = 0; pc < codeLength; pc += Opcodes.length(code, pc)) {
+			visitor.visitInstruction(pc, code[pc], code);
+		}
+		final int handlers = di.readShort() & 0xffff;
+		for (int i = 0; i < handlers; i++) {
+			final int startPC = di.readUnsignedShort();
+			final int endPC = di.readUnsignedShort();
+			final int handlerPC = di.readUnsignedShort();
+			final int catchIndex = di.readUnsignedShort();
+			visitor.visitHandler(startPC, endPC, handlerPC, catchIndex == 0 ? null : className(catchIndex));
+		}
+		readAttributes(di, visitor);
+	}
+	private void readMembers(final DataInput di, final ClassVisitor visitor, final boolean methods) throws IOException {
+		final int count = di.readShort() & 0xffff;
+		for (int i = 0; i < count; i++) {
+			final short flags = di.readShort();
+			final String name = string(di.readShort());
+			final String descriptor = string(di.readShort());
+			if (methods ? visitor.visitMethod(flags, name, descriptor) : visitor.visitField(flags, name, descriptor)) {
+				readAttributes(di, visitor);
+			} else {
+				final int attributes = di.readShort() & 0xffff;
+				for (int a = 0; a < attributes; a++) {
+					skip(di, 2);
+					skip(di, di.readInt());
+				}
+			}
+		}
+	}
+	private void readPool(final DataInput di) throws IOException {
+		size = di.readUnsignedShort();
+		if (offsets.length <= size) {
+			offsets = new int[size + 1];
+			strings = new String[size + 1];
+		} else {
+			Arrays.fill(strings, 0, size, null);
+		}
+		int length = 0;
+		for (int i = 1; i < size; i++) {
+			final byte type = di.readByte();
+			final int header = type == UTFConstant.TYPE ? 3 : 1 + lengthOf(type);
+			ensurePool(length + header);
+			pool[length] = type;
+			di.readFully(pool, length + 1, header - 1);
+			final int utf = type == UTFConstant.TYPE ? (pool[length + 1] & 0xff) << 8 | pool[length + 2] & 0xff : 0;
+			ensurePool(length + header + utf);
+			di.readFully(pool, length + header, utf);
+			offsets[i] = length;
+			length += header + utf;
+			if (type == LongConstant.TYPE || type == DoubleConstant.TYPE) {
+				offsets[++i] = -1;
+			}
+		}
+	}
+	private String string(final int index) throws IOException {
+		final int offset = offset(index, UTFConstant.TYPE);
+		final int i = index & 0xffff;
+		if (strings[i] == null) {
+			strings[i] = input(offset + 1).readUTF();
+		}
+		return strings[i];
+	}
+}
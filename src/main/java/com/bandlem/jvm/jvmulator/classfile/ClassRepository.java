@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+public class ClassRepository implements Closeable {
+	public static final class Stamp {
+		public static Stamp of(final byte[] bytes) {
+			final CRC32C crc = new CRC32C();
+			crc.update(bytes);
+			return new Stamp(bytes.length, crc.getValue());
+		}
+		public final long checksum;
+		public final long size;
+		public Stamp(final long size, final long checksum) {
+			this.size = size;
+			this.checksum = checksum;
+		}
+		public boolean matches(final Stamp other) {
+			return size == other.size && checksum == other.checksum;
+		}
+	}
+	private static final String CLASS = ".class";
+	private static final String MODULE_INFO = "module-info.class";
+	private static boolean isClass(final Path root, final Path path) {
+		final String name = String.valueOf(path.getFileName());
+		return name.endsWith(CLASS) && !name.equals(MODULE_INFO) && !root.relativize(path).startsWith("META-INF");
+	}
+	private static String nameOf(final Path root, final Path path) {
+		final String name = root.relativize(path).toString();
+		return name.substring(0, name.length() - CLASS.length()).replace(path.getFileSystem().getSeparator(), "/");
+	}
+	private static byte[] read(final Path path) {
+		try {
+			return Files.readAllBytes(path);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Unable to read " + path, e);
+		}
+	}
+	private final ClassArchive archive;
+	private final ClassCache cache;
+	private final Map<String, ByteBuffer> defined = new ConcurrentHashMap<>();
+	private final List<FileSystem> jars = new CopyOnWriteArrayList<>();
+	private final Map<String, Path> paths = new ConcurrentHashMap<>();
+	private final Map<String, Stamp> stamps = new ConcurrentHashMap<>();
+	public ClassRepository() {
+		this(null);
+	}
+	public ClassRepository(final ClassArchive archive) {
+		this(archive, Long.MAX_VALUE);
+	}
+	// Classes beyond the capacity are evicted and re-read from the archive or their class file on demand
+	public ClassRepository(final ClassArchive archive, final long capacity) {
+		this.archive = archive;
+		this.cache = ClassCache.of(capacity, this::reload);
+	}
+	public int add(final Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			return addTree(path);
+		}
+		// The jar stays open so that evicted classes can be read from it again
+		final FileSystem jar = FileSystems.newFileSystem(path, (ClassLoader) null);
+		jars.add(jar);
+		return addTree(jar.getPath("/"));
+	}
+	public int addModule(final String module) throws IOException {
+		final FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+		return addTree(jrt.getPath("/modules", module));
+	}
+	private int addTree(final Path root) throws IOException {
+		final List<Path> paths;
+		try (Stream<Path> walk = Files.walk(root)) {
+			paths = walk.filter(path -> isClass(root, path)).collect(Collectors.toList());
+		}
+		paths.parallelStream().forEach(path -> load(nameOf(root, path), path));
+		return paths.size();
+	}
+	public ClassCache cache() {
+		return cache;
+	}
+	@Override
+	public void close() throws IOException {
+		for (final FileSystem jar : jars) {
+			jar.close();
+		}
+		jars.clear();
+	}
+	// Classes defined from memory, such as compiler output, replace any earlier class of the same name.
+	// They are parsed on first use and again after eviction, and are not listed by names() as they have no stamp
+	public void define(final String name, final ByteBuffer buffer) {
+		cache.remove(name);
+		defined.put(name, buffer);
+	}
+	public JavaClass get(final String name) {
+		return cache.get(name);
+	}
+	private void load(final String name, final Path path) {
+		final byte[] bytes = read(path);
+		final Stamp stamp = Stamp.of(bytes);
+		final JavaClass javaClass = parse(name, bytes, stamp);
+		if (paths.putIfAbsent(javaClass.this_class, path) == null) {
+			stamps.put(javaClass.this_class, stamp);
+			cache.put(javaClass.this_class, javaClass);
+		}
+	}
+	public Set<String> names() {
+		return paths.keySet();
+	}
+	// An archive entry is only trusted when the class file's size and CRC32C both match,
+	// since reproducible builds can rewrite a class without changing its modification time
+	private JavaClass parse(final String name, final byte[] bytes, final Stamp stamp) {
+		final JavaClass javaClass = archive == null ? null : archive.get(name, stamp);
+		if (javaClass != null) {
+			return javaClass;
+		}
+		return new JavaClass(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+	public JavaClass pin(final String name) {
+		return cache.pin(name);
+	}
+	private JavaClass reload(final String name) {
+		final ByteBuffer buffer = defined.get(name);
+		if (buffer != null) {
+			return new JavaClass(buffer);
+		}
+		final Path path = paths.get(name);
+		if (path == null) {
+			return null;
+		}
+		final byte[] bytes = read(path);
+		final Stamp stamp = Stamp.of(bytes);
+		stamps.put(name, stamp);
+		return parse(name, bytes, stamp);
+	}
+	public int size() {
+		return paths.size();
+	}
+	public Stamp stamp(final String name) {
+		final Stamp stamp = stamps.get(name);
+		if (stamp == null) {
+			throw new IllegalArgumentException("Class " + name + " is not in the repository");
+		}
+		return stamp;
+	}
+	public void unpin(final String name) {
+		cache.unpin(name);
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+// Callbacks returning boolean decide whether the nested section is visited or skipped
+public interface ClassVisitor {
+	default boolean visitAttribute(final String name, final int length) {
+		return false;
+	}
+	default boolean visitClass(final short minor, final short major, final short flags, final String this_class,
+			final String super_class, final String[] interfaces) {
+		return true;
+	}
+	default boolean visitCode(final short maxStack, final short maxLocals, final int length) {
+		return false;
+	}
+	default void visitConstant(final int index, final Item item) {
+	}
+	default void visitEnd() {
+	}
+	default boolean visitField(final short flags, final String name, final String descriptor) {
+		return false;
+	}
+	default void visitHandler(final int startPC, final int endPC, final int handlerPC, final String catchType) {
+	}
+	default void visitInstruction(final int pc, final byte opcode, final byte[] code) {
+	}
+	default boolean visitMethod(final short flags, final String name, final String descriptor) {
+		return false;
+	}
+	default boolean visitPool(final int size) {
+		return false;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.SourceFile;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+public class ClassWriter {
+	public static void write(final JavaClass javaClass, final OutputStream stream) throws IOException {
+		new ClassWriter(javaClass.pool).writeClass(javaClass, stream);
+	}
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(body);
+	private final ConstantPoolBuilder pool;
+	private ClassWriter(final ConstantPool pool) {
+		this.pool = new ConstantPoolBuilder(pool);
+	}
+	private byte[] attributeBytes(final Attribute attribute) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(bytes);
+		if (attribute instanceof Code) {
+			final Code code = (Code) attribute;
+			data.writeShort(code.getMaxStack());
+			data.writeShort(code.getMaxLocals());
+			data.writeInt(code.getBytecode().length);
+			data.write(code.getBytecode());
+			data.writeShort(code.getExceptionTable().size());
+			for (final Handler handler : code.getExceptionTable().handlers) {
+				data.writeShort(handler.startPC);
+				data.writeShort(handler.endPC);
+				data.writeShort(handler.handlerPC);
+				data.writeShort(handler.catchType == null ? 0 : pool.addClass(handler.catchType));
+			}
+			writeAttributes(data, code.getAttributes());
+		} else if (attribute instanceof SourceFile) {
+			data.writeShort(pool.addUTF(((SourceFile) attribute).file));
+		} else {
+			data.write(((Unknown) attribute).data);
+		}
+		return bytes.toByteArray();
+	}
+	private void writeAttributes(final DataOutputStream data, final Attribute[] attributes) throws IOException {
+		data.writeShort(attributes.length);
+		for (final Attribute attribute : attributes) {
+			final byte[] bytes = attributeBytes(attribute);
+			data.writeShort(pool.addUTF(attribute.attributeName));
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+	private void writeClass(final JavaClass javaClass, final OutputStream stream) throws IOException {
+		out.writeShort(javaClass.flags);
+		out.writeShort(pool.addClass(javaClass.this_class));
+		out.writeShort(javaClass.super_class == null ? 0 : pool.addClass(javaClass.super_class));
+		out.writeShort(javaClass.interfaces.length);
+		for (final String name : javaClass.interfaces) {
+			out.writeShort(pool.addClass(name));
+		}
+		writeMembers(javaClass.fields);
+		writeMembers(javaClass.methods);
+		writeAttributes(out, javaClass.classAttributes);
+		final DataOutputStream header = new DataOutputStream(stream);
+		header.writeInt(0xcafebabe);
+		header.writeShort(javaClass.minor);
+		header.writeShort(javaClass.major);
+		pool.build().write(header);
+		body.writeTo(header);
+		header.flush();
+	}
+	private void writeMembers(final Member[] members) throws IOException {
+		out.writeShort(members.length);
+		for (final Member member : members) {
+			out.writeShort(member.flags);
+			out.writeShort(pool.addUTF(member.name));
+			out.writeShort(pool.addUTF(member.descriptor));
+			writeAttributes(out, member.attributes);
+		}
+	}
+}
@@ -8,6 +8,7 @@
  */
 package com.bandlem.jvm.jvmulator.classfile;
 import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 public class ConstantPool {
 	public static class ClassConstant extends Item {
@@ -17,6 +18,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.index = index;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(index);
+		}
 	}
 	public static class DoubleConstant extends Item {
 		public static final int TYPE = 6;
@@ -29,6 +34,10 @@ public class ConstantPool {
 		public boolean isWide() {
 			return true;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeDouble(value);
+		}
 	}
 	public static class FieldRef extends Item {
 		public static final int TYPE = 9;
@@ -39,6 +48,11 @@ public class ConstantPool {
 			this.classIndex = classIndex;
 			this.nameAndTypeIndex = nameAndTypeIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(classIndex);
+			out.writeShort(nameAndTypeIndex);
+		}
 	}
 	public static class FloatConstant extends Item {
 		public static final int TYPE = 4;
@@ -47,6 +61,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.value = value;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeFloat(value);
+		}
 	}
 	public static class IntConstant extends Item {
 		public static final int TYPE = 3;
@@ -55,6 +73,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.value = value;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeInt(value);
+		}
 	}
 	public static class InterfaceMethodRef extends Item {
 		public static final int TYPE = 11;
@@ -65,6 +87,11 @@ public class ConstantPool {
 			this.classIndex = classIndex;
 			this.nameAndTypeIndex = nameAndTypeIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(classIndex);
+			out.writeShort(nameAndTypeIndex);
+		}
 	}
 	public static class InvokeDynamic extends Item {
 		public static final int TYPE = 18;
@@ -75,10 +102,17 @@ public class ConstantPool {
 			this.bootstrapIndex = bootstrapIndex;
 			this.nameAndTypeIndex = nameAndTypeIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(bootstrapIndex);
+			out.writeShort(nameAndTypeIndex);
+		}
 	}
-	public static class Item {
+	public abstract static class Item {
 		public static Item read(final DataInput di) throws IOException {
-			final byte type = di.readByte();
+			return read(di.readByte(), di);
+		}
+		static Item read(final byte type, final DataInput di) throws IOException {
 			switch (type) {
 			case UTFConstant.TYPE: // 1
 				return new UTFConstant(di.readUTF());
@@ -126,6 +160,11 @@ public class ConstantPool {
 		public String stringValue() {
 			throw new IllegalArgumentException("Wrong type");
 		}
+		public void write(final DataOutput out) throws IOException {
+			out.writeByte(type);
+			writeValue(out);
+		}
+		abstract void writeValue(DataOutput out) throws IOException;
 	}
 	public static class LongConstant extends Item {
 		public static final int TYPE = 5;
@@ -138,6 +177,10 @@ public class ConstantPool {
 		public boolean isWide() {
 			return true;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeLong(value);
+		}
 	}
 	public static class MethodHandle extends Item {
 		public static final int TYPE = 15;
@@ -148,6 +191,11 @@ public class ConstantPool {
 			this.referenceKind = referenceKind;
 			this.referenceIndex = referenceIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeByte(referenceKind);
+			out.writeShort(referenceIndex);
+		}
 	}
 	public static class MethodRef extends Item {
 		public static final int TYPE = 10;
@@ -158,6 +206,11 @@ public class ConstantPool {
 			this.classIndex = classIndex;
 			this.nameAndTypeIndex = nameAndTypeIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(classIndex);
+			out.writeShort(nameAndTypeIndex);
+		}
 	}
 	public static class MethodType extends Item {
 		public static final int TYPE = 16;
@@ -166,6 +219,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.descriptorIndex = descriptorIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(descriptorIndex);
+		}
 	}
 	public static class Module extends Item {
 		public static final int TYPE = 19;
@@ -174,6 +231,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.nameIndex = nameIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(nameIndex);
+		}
 	}
 	public static class NameAndType extends Item {
 		public static final int TYPE = 12;
@@ -184,6 +245,11 @@ public class ConstantPool {
 			this.nameIndex = nameIndex;
 			this.descriptorIndex = descriptorIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+		}
 	}
 	public static class Package extends Item {
 		public static final int TYPE = 20;
@@ -192,6 +258,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.nameIndex = nameIndex;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(nameIndex);
+		}
 	}
 	public static class StringConstant extends Item {
 		public static final int TYPE = 8;
@@ -200,6 +270,10 @@ public class ConstantPool {
 			super(TYPE);
 			this.index = index;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeShort(index);
+		}
 	}
 	public static class UTFConstant extends Item {
 		public static final int TYPE = 1;
@@ -212,8 +286,12 @@ public class ConstantPool {
 		public String stringValue() {
 			return value;
 		}
+		@Override
+		void writeValue(final DataOutput out) throws IOException {
+			out.writeUTF(value);
+		}
 	}
-	private final Item[] items;
+	final Item[] items;
 	public ConstantPool(final short size, final DataInput di) throws IOException {
 		items = new Item[size & 0xffff];
 		for (int i = 1; i < items.length; i++) {
@@ -223,6 +301,9 @@ public class ConstantPool {
 			}
 		}
 	}
+	ConstantPool(final Item[] items) {
+		this.items = items;
+	}
 	public String getClassName(final int index) {
 		return getString(((ClassConstant) getItem(index)).index);
 	}
@@ -230,12 +311,24 @@ public class ConstantPool {
 		if (index == 0) {
 			throw new IllegalArgumentException("Constant Pool is 1-indexed");
 		}
-		return items[index & 0xfff];
+		return items[index & 0xffff];
 	}
 	public String getString(final int index) {
 		return getItem(index).stringValue();
 	}
+	public Symbol getSymbol(final int index) {
+		return Symbol.of(((UTFConstant) getItem(index)).value);
+	}
 	public int size() {
 		return items.length;
 	}
+	public void write(final DataOutput out) throws IOException {
+		out.writeShort(items.length);
+		for (int i = 1; i < items.length; i++) {
+			items[i].write(out);
+			if (items[i].isWide()) {
+				i++;
+			}
+		}
+	}
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.ClassConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.UTFConstant;
+// Existing entries keep their indexes so that bytecode and unparsed attributes stay valid
+public class ConstantPoolBuilder {
+	private static final int MAX_SIZE = 0xffff;
+	private final Map<String, Integer> classes = new HashMap<>();
+	private final Map<Integer, Integer> ints = new HashMap<>();
+	private final List<Item> items;
+	private final Map<String, Integer> utfs = new HashMap<>();
+	public ConstantPoolBuilder(final ConstantPool pool) {
+		items = new ArrayList<>(Arrays.asList(pool.items));
+		for (int i = 1; i < items.size(); i++) {
+			final Item item = items.get(i);
+			if (item instanceof UTFConstant) {
+				utfs.putIfAbsent(((UTFConstant) item).value, i);
+			} else if (item instanceof IntConstant) {
+				ints.putIfAbsent(((IntConstant) item).value, i);
+			}
+		}
+		for (int i = 1; i < items.size(); i++) {
+			if (items.get(i) instanceof ClassConstant) {
+				classes.putIfAbsent(pool.getClassName(i), i);
+			}
+		}
+	}
+	private int add(final Item item) {
+		if (items.size() >= MAX_SIZE) {
+			throw new IllegalStateException("Constant pool is full");
+		}
+		items.add(item);
+		return items.size() - 1;
+	}
+	public int addClass(final String name) {
+		return classes.computeIfAbsent(name, n -> add(new ClassConstant((short) addUTF(n))));
+	}
+	public int addInteger(final int value) {
+		return ints.computeIfAbsent(value, v -> add(new IntConstant(v)));
+	}
+	public int addUTF(final String value) {
+		return utfs.computeIfAbsent(value, v -> add(new UTFConstant(v)));
+	}
+	public ConstantPool build() {
+		return new ConstantPool(items.toArray(new Item[0]));
+	}
+	public Item getItem(final int index) {
+		if (index == 0) {
+			throw new IllegalArgumentException("Constant Pool is 1-indexed");
+		}
+		return items.get(index);
+	}
+	public String getString(final int index) {
+		return getItem(index).stringValue();
+	}
+	public int size() {
+		return items.size();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+public class ExceptionTable {
+	public static class Handler {
+		private volatile Class<?> catchClass;
+		public final String catchType;
+		public final int endPC;
+		public final int handlerPC;
+		public final int startPC;
+		public Handler(final int startPC, final int endPC, final int handlerPC, final String catchType) {
+			this.startPC = startPC;
+			this.endPC = endPC;
+			this.handlerPC = handlerPC;
+			this.catchType = catchType;
+		}
+		// Matched by internal name up the thrown object's hierarchy, so catch types defined by any class loader,
+		// including classes compiled in memory, are found; the matching class is cached for an isInstance check
+		public boolean catches(final Throwable throwable) {
+			if (catchType == null) {
+				return true;
+			}
+			final Class<?> cached = catchClass;
+			if (cached != null && cached.isInstance(throwable)) {
+				return true;
+			}
+			for (Class<?> type = throwable.getClass(); type != null; type = type.getSuperclass()) {
+				if (catchType.equals(type.getName().replace('.', '/'))) {
+					catchClass = type;
+					return true;
+				}
+			}
+			return false;
+		}
+		public boolean covers(final int pc) {
+			return startPC <= pc && pc < endPC;
+		}
+	}
+	private static final Handler[] NONE = new Handler[0];
+	private static Handler[] read(final DataInput di, final ConstantPool pool) throws IOException {
+		final Handler[] handlers = new Handler[di.readUnsignedShort()];
+		for (int i = 0; i < handlers.length; i++) {
+			final int startPC = di.readUnsignedShort();
+			final int endPC = di.readUnsignedShort();
+			final int handlerPC = di.readUnsignedShort();
+			final int catchIndex = di.readUnsignedShort();
+			handlers[i] = new Handler(startPC, endPC, handlerPC,
+					catchIndex == 0 ? null : pool.getClassName(catchIndex));
+		}
+		return handlers;
+	}
+	private final int[] boundaries;
+	public final Handler[] handlers;
+	private final Handler[][] ranges;
+	public ExceptionTable(final DataInput di, final ConstantPool pool) throws IOException {
+		this(read(di, pool));
+	}
+	public ExceptionTable(final Handler... handlers) {
+		this.handlers = handlers;
+		final TreeSet<Integer> pcs = new TreeSet<>();
+		for (final Handler handler : handlers) {
+			pcs.add(handler.startPC);
+			pcs.add(handler.endPC);
+		}
+		boundaries = pcs.stream().mapToInt(Integer::intValue).toArray();
+		ranges = new Handler[boundaries.length][];
+		for (int i = 0; i < boundaries.length; i++) {
+			final List<Handler> covering = new ArrayList<>();
+			for (final Handler handler : handlers) {
+				if (handler.covers(boundaries[i])) {
+					covering.add(handler);
+				}
+			}
+			ranges[i] = covering.toArray(NONE);
+		}
+	}
+	public Handler find(final int pc, final Throwable throwable) {
+		for (final Handler handler : handlersAt(pc)) {
+			if (handler.catches(throwable)) {
+				return handler;
+			}
+		}
+		return null;
+	}
+	public Handler[] handlersAt(final int pc) {
+		final int index = Arrays.binarySearch(boundaries, pc);
+		final int range = index >= 0 ? index : -index - 2;
+		return range < 0 ? NONE : ranges[range];
+	}
+	public int size() {
+		return handlers.length;
+	}
+}
@@ -9,9 +9,38 @@
 package com.bandlem.jvm.jvmulator.classfile;
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import com.bandlem.jvm.jvmulator.classfile.Member.Field;
 import com.bandlem.jvm.jvmulator.classfile.Member.Method;
 public class JavaClass {
+	private static String[] interfaces(final Symbol[] symbols) {
+		final String[] interfaces = new String[symbols.length - 2];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = symbols[i + 2].value;
+		}
+		return interfaces;
+	}
+	static Attribute[] readAttributes(final DataInput di, final ConstantPool pool) throws IOException {
+		final Attribute[] attributes = new Attribute[di.readShort() & 0xffff];
+		for (int i = 0; i < attributes.length; i++) {
+			final String name = pool.getString(di.readShort());
+			final int length = di.readInt();
+			final byte[] data = new byte[length];
+			di.readFully(data);
+			attributes[i] = Attribute.of(name, pool, data);
+		}
+		return attributes;
+	}
+	// The symbols are held by the class so that the interned names live as long as it does
+	private static Symbol[] symbols(final String this_class, final String super_class, final String[] interfaces) {
+		final Symbol[] symbols = new Symbol[interfaces.length + 2];
+		symbols[0] = Symbol.of(this_class);
+		symbols[1] = super_class == null ? null : Symbol.of(super_class);
+		for (int i = 0; i < interfaces.length; i++) {
+			symbols[i + 2] = Symbol.of(interfaces[i]);
+		}
+		return symbols;
+	}
 	public final Attribute[] classAttributes;
 	public final Field[] fields;
 	public final short flags;
@@ -22,7 +51,14 @@ public class JavaClass {
 	public final ConstantPool pool;
 	public final String super_class;
 	public final String this_class;
+	private final Symbol[] symbols;
+	public JavaClass(final ByteBuffer buffer) throws IllegalArgumentException {
+		this(new ByteBufferInput(buffer.duplicate()));
+	}
 	public JavaClass(final DataInput di) throws IllegalArgumentException {
+		ClassMetrics.global().parsed.increment();
+		final ParseEvent event = new ParseEvent();
+		event.begin();
 		try {
 			if (di.readInt() != 0xcafebabe) {
 				throw new IllegalArgumentException("Content is not a class file");
@@ -31,12 +67,17 @@ public class JavaClass {
 			this.major = di.readShort();
 			this.pool = new ConstantPool(di.readShort(), di);
 			this.flags = di.readShort();
-			this.this_class = pool.getClassName(di.readShort());
-			this.super_class = pool.getClassName(di.readShort());
-			this.interfaces = new String[di.readShort() & 0xffff];
+			final String this_class = pool.getClassName(di.readShort());
+			final short superIndex = di.readShort();
+			final String super_class = superIndex == 0 ? null : pool.getClassName(superIndex);
+			final String[] interfaces = new String[di.readShort() & 0xffff];
 			for (int i = 0; i < interfaces.length; i++) {
 				interfaces[i] = pool.getClassName(di.readShort());
 			}
+			this.symbols = symbols(this_class, super_class, interfaces);
+			this.this_class = symbols[0].value;
+			this.super_class = super_class == null ? null : symbols[1].value;
+			this.interfaces = interfaces(symbols);
 			this.fields = new Field[di.readShort() & 0xffff];
 			for (int i = 0; i < fields.length; i++) {
 				final short flags = di.readShort();
@@ -55,6 +96,25 @@ public class JavaClass {
 		} catch (final IOException e) {
 			throw new IllegalArgumentException("Unable to parse bytecode", e);
 		}
+		if (event.shouldCommit()) {
+			event.className = this_class;
+			event.commit();
+		}
+	}
+	public JavaClass(final short minor, final short major, final ConstantPool pool, final short flags,
+			final String this_class, final String super_class, final String[] interfaces, final Field[] fields,
+			final Method[] methods, final Attribute[] classAttributes) {
+		this.minor = minor;
+		this.major = major;
+		this.pool = pool;
+		this.flags = flags;
+		this.symbols = symbols(this_class, super_class, interfaces);
+		this.this_class = symbols[0].value;
+		this.super_class = super_class == null ? null : symbols[1].value;
+		this.interfaces = interfaces(symbols);
+		this.fields = fields;
+		this.methods = methods;
+		this.classAttributes = classAttributes;
 	}
 	public Attribute getAttribute(final String name) {
 		for (final var attribute : classAttributes) {
@@ -72,6 +132,14 @@ public class JavaClass {
 		}
 		return null;
 	}
+	public Field getField(final Symbol name, final Symbol descriptor) {
+		for (final Field field : fields) {
+			if (field.is(name, descriptor)) {
+				return field;
+			}
+		}
+		return null;
+	}
 	public Method getMethod(final String name) {
 		for (final Method method : methods) {
 			if (name.equals(method.name)) {
@@ -80,15 +148,12 @@ public class JavaClass {
 		}
 		return null;
 	}
-	private Attribute[] readAttributes(final DataInput di, final ConstantPool pool) throws IOException {
-		final Attribute[] attributes = new Attribute[di.readShort()];
-		for (int i = 0; i < attributes.length; i++) {
-			final String name = pool.getString(di.readShort());
-			final int length = di.readInt();
-			final byte[] data = new byte[length];
-			di.readFully(data);
-			attributes[i] = Attribute.of(name, pool, data);
+	public Method getMethod(final Symbol name, final Symbol descriptor) {
+		for (final Method method : methods) {
+			if (method.is(name, descriptor)) {
+				return method;
+			}
 		}
-		return attributes;
+		return null;
 	}
 }
@@ -80,12 +80,16 @@ public abstract class Member {
 	}
 	public final Attribute[] attributes;
 	public final String descriptor;
+	private final Symbol descriptorSymbol;
 	public final short flags;
 	public final String name;
+	private final Symbol nameSymbol;
 	public Member(final short flags, final String name, final String descriptor, final Attribute[] attributes) {
 		this.flags = flags;
-		this.name = name;
-		this.descriptor = descriptor;
+		this.nameSymbol = Symbol.of(name);
+		this.descriptorSymbol = Symbol.of(descriptor);
+		this.name = nameSymbol.value;
+		this.descriptor = descriptorSymbol.value;
 		this.attributes = attributes;
 	}
 	public Attribute getAttribute(final String name) {
@@ -96,6 +100,9 @@ public abstract class Member {
 		}
 		return null;
 	}
+	public boolean is(final Symbol name, final Symbol descriptor) {
+		return name == nameSymbol && descriptor == descriptorSymbol;
+	}
 	public Code getCodeAttribute() {
 		return (Code) getAttribute(Code.NAME);
 	}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+@Name("com.bandlem.jvm.jvmulator.Parse")
+@Label("Class Parse")
+@Category("JVMulator")
+@Description("A class file parsed into a JavaClass")
+class ParseEvent extends Event {
+	@Label("Class")
+	String className;
+}
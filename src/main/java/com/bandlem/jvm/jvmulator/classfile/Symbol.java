@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+// Symbols are held weakly, so a name leaves the table once no loaded class or member refers to it
+public final class Symbol {
+	static final class Entry extends WeakReference<Symbol> {
+		final String key;
+		Entry(final Symbol symbol) {
+			super(symbol, QUEUE);
+			this.key = symbol.value;
+		}
+	}
+	private static final ReferenceQueue<Symbol> QUEUE = new ReferenceQueue<>();
+	static final ConcurrentMap<String, Entry> SYMBOLS = new ConcurrentHashMap<>();
+	// Only a miss takes a lock, and then only on the table's bin for that name
+	static Symbol intern(final String value) {
+		final Symbol created = new Symbol(value);
+		final Symbol[] interned = {
+				created
+		};
+		SYMBOLS.merge(value, new Entry(created), (entry, fresh) -> {
+			// The name may have been interned by another thread, or left behind by a collected symbol
+			final Symbol existing = entry.get();
+			if (existing == null) {
+				return fresh;
+			}
+			interned[0] = existing;
+			return entry;
+		});
+		return interned[0];
+	}
+	public static Symbol of(final String value) {
+		purge();
+		final Entry entry = SYMBOLS.get(value);
+		final Symbol symbol = entry == null ? null : entry.get();
+		return symbol != null ? symbol : intern(value);
+	}
+	private static void purge() {
+		for (Reference<? extends Symbol> reference = QUEUE.poll(); reference != null; reference = QUEUE.poll()) {
+			final Entry entry = (Entry) reference;
+			SYMBOLS.remove(entry.key, entry);
+		}
+	}
+	public static int size() {
+		purge();
+		return SYMBOLS.size();
+	}
+	public final String value;
+	private Symbol(final String value) {
+		this.value = value;
+	}
+	public boolean is(final String value) {
+		return this.value == value;
+	}
+	@Override
+	public String toString() {
+		return value;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+public class BatchCompiler {
+	public static class Batch {
+		// Keyed by submission, as unrelated units may declare classes with the same name
+		public final Map<SourceFile, Map<String, ByteBuffer>> classes = new ConcurrentHashMap<>();
+		public final Map<SourceFile, List<String>> diagnostics = new ConcurrentHashMap<>();
+		public final Set<SourceFile> failed = ConcurrentHashMap.newKeySet();
+		public boolean isSuccess() {
+			return failed.isEmpty();
+		}
+	}
+	private static final Pattern IDENTIFIER = Pattern
+			.compile("[\\p{javaJavaIdentifierStart}][\\p{javaJavaIdentifierPart}]*");
+	private static int find(final int[] parents, int i) {
+		while (parents[i] != i) {
+			i = parents[i] = parents[parents[i]];
+		}
+		return i;
+	}
+	private static String name(final SourceFile source) {
+		final String name = source.getName();
+		return name.substring(name.indexOf('/') + 1, name.length() - JavaFileObject.Kind.SOURCE.extension.length());
+	}
+	// Units that mention other units' simple names are compiled together; false matches only merge groups
+	static List<List<SourceFile>> partition(final SourceFile... sources) {
+		final Map<String, List<Integer>> names = new HashMap<>();
+		final List<Set<String>> declared = new ArrayList<>();
+		for (int i = 0; i < sources.length; i++) {
+			names.computeIfAbsent(simpleName(sources[i]), name -> new ArrayList<>()).add(i);
+			declared.add(new HashSet<>(Set.of(name(sources[i]))));
+		}
+		final int[] parents = new int[sources.length];
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+		}
+		for (int i = 0; i < sources.length; i++) {
+			final String self = simpleName(sources[i]);
+			final Set<String> seen = new HashSet<>();
+			final Matcher matcher = IDENTIFIER.matcher(sources[i].getCharContent(false));
+			while (matcher.find()) {
+				final String name = matcher.group();
+				final List<Integer> units = names.get(name);
+				if (units != null && !name.equals(self) && seen.add(name)) {
+					for (final int unit : units) {
+						union(parents, declared, unit, i);
+					}
+				}
+			}
+		}
+		final Map<Integer, List<SourceFile>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < sources.length; i++) {
+			groups.computeIfAbsent(find(parents, i), root -> new ArrayList<>()).add(sources[i]);
+		}
+		return new ArrayList<>(groups.values());
+	}
+	private static String simpleName(final SourceFile source) {
+		final String name = source.getName();
+		final int extension = name.length() - JavaFileObject.Kind.SOURCE.extension.length();
+		return name.substring(name.lastIndexOf('/') + 1, extension);
+	}
+	// Groups that declare the same top-level class are never merged, since javac would reject the duplicate
+	private static void union(final int[] parents, final List<Set<String>> declared, final int a, final int b) {
+		final int rootA = find(parents, a);
+		final int rootB = find(parents, b);
+		if (rootA != rootB && Collections.disjoint(declared.get(rootA), declared.get(rootB))) {
+			parents[rootA] = rootB;
+			declared.get(rootB).addAll(declared.get(rootA));
+		}
+	}
+	private final CompilerPool pool;
+	public BatchCompiler(final CompilerPool pool) {
+		this.pool = pool;
+	}
+	private void compile(final InMemoryFileManager fileManager, final List<String> options,
+			final List<SourceFile> group, final Batch batch) {
+		final JavaC javac = pool.newJavaC(fileManager);
+		final boolean success = javac.compile(options, group.toArray(new SourceFile[0]));
+		final Map<SourceFile, List<String>> diagnostics = new HashMap<>();
+		for (final SourceFile source : group) {
+			batch.classes.put(source, javac.getClasses(source));
+			diagnostics.put(source, new ArrayList<>());
+		}
+		for (final Diagnostic<? extends JavaFileObject> diagnostic : javac.getDiagnostics()) {
+			// Diagnostics without a source, such as option errors, apply to every unit in the task
+			final List<String> list = diagnostics.get(diagnostic.getSource());
+			for (final List<String> each : list == null ? diagnostics.values() : List.of(list)) {
+				each.add(diagnostic.toString());
+			}
+		}
+		for (final SourceFile source : group) {
+			batch.diagnostics.put(source, Collections.unmodifiableList(diagnostics.get(source)));
+		}
+		if (!success) {
+			batch.failed.addAll(group);
+		}
+	}
+	public Batch compile(final List<String> options, final SourceFile... sources) {
+		final Queue<List<SourceFile>> groups = new ConcurrentLinkedQueue<>(partition(sources));
+		final Batch batch = new Batch();
+		final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		// One task per worker draining a shared queue balances uneven groups without flooding the backlog
+		for (int i = 0; i < Math.min(pool.workers(), groups.size()); i++) {
+			tasks.add(pool.submit(fileManager -> {
+				for (List<SourceFile> group = groups.poll(); group != null; group = groups.poll()) {
+					compile(fileManager, options, group, batch);
+				}
+				return null;
+			}));
+		}
+		CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+		return batch;
+	}
+	public Batch compile(final SourceFile... sources) {
+		return compile(List.of(), sources);
+	}
+}
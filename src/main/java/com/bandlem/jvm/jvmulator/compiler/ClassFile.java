@@ -7,17 +7,41 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.compiler;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 import javax.tools.SimpleJavaFileObject;
 public class ClassFile extends SimpleJavaFileObject {
+	private static URI uri(final String name) {
+		return URI.create("memory:///" + name.replace('.', '/') + Kind.CLASS.extension);
+	}
 	private final ByteArrayOutputStream baos;
-	ClassFile(final String name, final Consumer<byte[]> listener) {
-		super(URI.create("memory:///" + name + Kind.CLASS.extension), Kind.CLASS);
-		baos = new NotifyingByteArrayOutputStream(1024, listener);
+	final String binaryName;
+	private final ByteBuffer content;
+	ClassFile(final String name, final ByteBuffer content) {
+		super(uri(name), Kind.CLASS);
+		this.binaryName = name;
+		this.content = content;
+		this.baos = null;
+	}
+	ClassFile(final String name, final Consumer<ByteBuffer> listener) {
+		super(uri(name), Kind.CLASS);
+		this.binaryName = name;
+		this.content = null;
+		this.baos = new NotifyingByteArrayOutputStream(1024, listener);
+	}
+	@Override
+	public InputStream openInputStream() {
+		if (content == null) {
+			throw new UnsupportedOperationException("Class " + binaryName + " is only open for output");
+		}
+		return new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position(),
+				content.remaining());
 	}
 	@Override
 	public OutputStream openOutputStream() throws IOException {
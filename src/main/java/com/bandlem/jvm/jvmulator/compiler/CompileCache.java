@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+public class CompileCache implements AutoCloseable {
+	public static class Result {
+		private final Map<String, ByteBuffer> buffers;
+		public final Map<String, ByteBuffer> classes;
+		public final List<String> diagnostics;
+		public final boolean success;
+		Result(final boolean success, final JavaC javac) {
+			this(success, javac.getDiagnostics().stream().map(Object::toString).collect(Collectors.toList()),
+					javac.getBuffers());
+		}
+		Result(final boolean success, final List<String> diagnostics, final Map<String, ByteBuffer> buffers) {
+			this.success = success;
+			this.diagnostics = Collections.unmodifiableList(diagnostics);
+			this.buffers = buffers;
+			this.classes = InMemoryFileManager.toReadOnly(buffers);
+		}
+		public ByteBuffer getBuffer(final String name) {
+			final ByteBuffer buffer = classes.get(name);
+			return buffer == null ? null : buffer.duplicate();
+		}
+		public byte[] getBytes(final String name) {
+			final ByteBuffer buffer = classes.get(name);
+			return buffer == null ? null : InMemoryFileManager.toBytes(buffer);
+		}
+		public InMemoryClassLoader newClassLoader() {
+			return new InMemoryClassLoader(buffers, getClass().getClassLoader());
+		}
+	}
+	private static final String ALGORITHM = "SHA-256";
+	private static final int BACKLOG = 16;
+	private static final int CAPACITY = 64;
+	private static Result delete(final Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			// The entry is replaced when the compiled result is written
+		}
+		return null;
+	}
+	private static void digest(final MessageDigest digest, final String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	static String key(final String algorithm, final List<String> options, final SourceFile... sources) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance(algorithm);
+			// Class files depend on the compiler as well as the input, so a JDK upgrade invalidates the disk store
+			digest(digest, Runtime.version().toString());
+			for (final String option : options) {
+				digest(digest, option);
+			}
+			for (final SourceFile source : sources) {
+				digest(digest, source.toUri().toString());
+				digest(digest, source.getCharContent(false).toString());
+			}
+			final StringBuilder key = new StringBuilder();
+			for (final byte b : digest.digest()) {
+				key.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return key.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unable to hash compilation inputs", e);
+		}
+	}
+	static Result read(final Path file) {
+		final byte[] data;
+		try {
+			data = Files.readAllBytes(file);
+		} catch (final NoSuchFileException e) {
+			return null;
+		} catch (final IOException e) {
+			return delete(file);
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			final boolean success = in.readBoolean();
+			final List<String> diagnostics = new ArrayList<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				diagnostics.add(new String(readBytes(in), StandardCharsets.UTF_8));
+			}
+			final Map<String, ByteBuffer> classes = new HashMap<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				classes.put(in.readUTF(), ByteBuffer.wrap(readBytes(in)));
+			}
+			if (in.available() != 0) {
+				throw new IOException("Trailing data in " + file);
+			}
+			return new Result(success, diagnostics, classes);
+		} catch (final IOException | RuntimeException e) {
+			// A corrupt entry is a miss, and is removed so that it is rewritten rather than decoded again
+			return delete(file);
+		}
+	}
+	private static byte[] readBytes(final DataInputStream in) throws IOException {
+		final int length = in.readInt();
+		// Lengths are checked against what is left of the file before allocating
+		if (length < 0 || length > in.available()) {
+			throw new IOException("Invalid length " + length);
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+	// The disk store is best effort: a failed write leaves the result in memory only
+	private static boolean write(final Path file, final Result result) {
+		Path temp = null;
+		try {
+			Files.createDirectories(file.getParent());
+			temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try (OutputStream stream = Files.newOutputStream(temp);
+					DataOutputStream out = new DataOutputStream(stream)) {
+				out.writeBoolean(result.success);
+				out.writeInt(result.diagnostics.size());
+				for (final String diagnostic : result.diagnostics) {
+					writeBytes(out, diagnostic.getBytes(StandardCharsets.UTF_8));
+				}
+				out.writeInt(result.classes.size());
+				for (final Map.Entry<String, ByteBuffer> entry : result.buffers.entrySet()) {
+					final ByteBuffer buffer = entry.getValue();
+					out.writeUTF(entry.getKey());
+					out.writeInt(buffer.remaining());
+					out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (final IOException e) {
+			if (temp != null) {
+				delete(temp);
+			}
+			return false;
+		}
+	}
+	private static void writeBytes(final DataOutputStream out, final byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	private final Path directory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final boolean ownsPool;
+	private final CompilerPool pool;
+	private final Map<String, Result> results;
+	private final AtomicLong writeFailures = new AtomicLong();
+	public CompileCache() {
+		this(null);
+	}
+	public CompileCache(final Path directory) {
+		this(directory, CAPACITY);
+	}
+	// Without a pool the cache starts a single warm worker of its own, which close() shuts down
+	public CompileCache(final Path directory, final int capacity) {
+		this(directory, capacity, new CompilerPool(1, BACKLOG), true);
+	}
+	// Only the most recently used results are held in memory; older ones remain in the directory
+	public CompileCache(final Path directory, final int capacity, final CompilerPool pool) {
+		this(directory, capacity, pool, false);
+	}
+	private CompileCache(final Path directory, final int capacity, final CompilerPool pool, final boolean ownsPool) {
+		this.directory = directory;
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		this.results = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75F, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Result> eldest) {
+				return size() > capacity;
+			}
+		});
+	}
+	@Override
+	public void close() throws IOException {
+		if (ownsPool) {
+			pool.close();
+		}
+	}
+	public Result compile(final List<String> options, final SourceFile... sources) {
+		final String key = key(ALGORITHM, options, sources);
+		Result result = results.get(key);
+		if (result == null && directory != null) {
+			result = read(directory.resolve(key));
+			if (result != null) {
+				results.putIfAbsent(key, result);
+			}
+		}
+		if (result != null) {
+			hits.incrementAndGet();
+			CompilerMetrics.global().hits.increment();
+			return result;
+		}
+		misses.incrementAndGet();
+		CompilerMetrics.global().misses.increment();
+		result = pool.compile(options, sources).join();
+		if (directory != null && !write(directory.resolve(key), result)) {
+			writeFailures.incrementAndGet();
+			CompilerMetrics.global().writeFailures.increment();
+		}
+		results.putIfAbsent(key, result);
+		return result;
+	}
+	public Result compile(final SourceFile... sources) {
+		return compile(List.of(), sources);
+	}
+	public long hits() {
+		return hits.get();
+	}
+	public long misses() {
+		return misses.get();
+	}
+	public long writeFailures() {
+		return writeFailures.get();
+	}
+}
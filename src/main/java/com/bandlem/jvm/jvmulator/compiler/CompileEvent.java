@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+@Name("com.bandlem.jvm.jvmulator.Compile")
+@Label("Compile")
+@Category("JVMulator")
+@Description("A javac task run by JavaC")
+class CompileEvent extends Event {
+	@Label("Sources")
+	int sources;
+	@Label("Success")
+	boolean success;
+}
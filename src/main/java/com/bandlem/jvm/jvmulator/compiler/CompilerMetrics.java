@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import java.util.concurrent.atomic.LongAdder;
+public final class CompilerMetrics implements CompilerMetricsMXBean {
+	private static final CompilerMetrics GLOBAL = new CompilerMetrics();
+	public static final String NAME = "com.bandlem.jvm.jvmulator:type=Compiler";
+	public static CompilerMetrics global() {
+		return GLOBAL;
+	}
+	final LongAdder compiles = new LongAdder();
+	final LongAdder failures = new LongAdder();
+	final LongAdder hits = new LongAdder();
+	final LongAdder misses = new LongAdder();
+	final LongAdder nanos = new LongAdder();
+	final LongAdder writeFailures = new LongAdder();
+	@Override
+	public double getAverageCompileMillis() {
+		final long count = compiles.sum();
+		return count == 0 ? 0 : nanos.sum() / 1e6 / count;
+	}
+	@Override
+	public long getCacheHits() {
+		return hits.sum();
+	}
+	@Override
+	public long getCacheMisses() {
+		return misses.sum();
+	}
+	@Override
+	public long getCacheWriteFailures() {
+		return writeFailures.sum();
+	}
+	@Override
+	public long getCompiles() {
+		return compiles.sum();
+	}
+	@Override
+	public long getFailedCompiles() {
+		return failures.sum();
+	}
+}
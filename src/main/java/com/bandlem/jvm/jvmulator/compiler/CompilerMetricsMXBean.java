@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+public interface CompilerMetricsMXBean {
+	double getAverageCompileMillis();
+	long getCacheHits();
+	long getCacheMisses();
+	long getCacheWriteFailures();
+	long getCompiles();
+	long getFailedCompiles();
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache.Result;
+public class CompilerPool implements AutoCloseable {
+	private static final long TIMEOUT = 10;
+	static final SourceFile WARM_UP = new SourceFile("WarmUp", "class WarmUp { Object o = \"\"; }");
+	private final Map<String, ByteBuffer> classPath = new ConcurrentHashMap<>();
+	private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	private final ThreadPoolExecutor executor;
+	private final Queue<InMemoryFileManager> idle = new ConcurrentLinkedQueue<>();
+	private final boolean shareClasses;
+	private final int workers;
+	public CompilerPool(final int workers, final int backlog) {
+		this(workers, backlog, false);
+	}
+	// With shared classes, each compile sees the classes of the pool's earlier successful compiles on its class path
+	public CompilerPool(final int workers, final int backlog, final boolean shareClasses) {
+		final AtomicInteger threads = new AtomicInteger();
+		this.shareClasses = shareClasses;
+		this.workers = workers;
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(backlog), runnable -> {
+					final Thread thread = new Thread(runnable, "javac-" + threads.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		// Each worker owns a file manager; it only becomes available once its first compile has warmed it up
+		for (int i = 0; i < workers; i++) {
+			final InMemoryFileManager fileManager = new InMemoryFileManager(compiler, classPath);
+			executor.execute(() -> {
+				try {
+					newJavaC(fileManager).compile(List.of(), WARM_UP);
+				} catch (final RuntimeException e) {
+					// A failed warm-up only leaves the file manager cold; the next compile resets it anyway
+				} finally {
+					idle.add(fileManager);
+				}
+			});
+		}
+	}
+	@Override
+	public void close() throws IOException {
+		close(TIMEOUT, TimeUnit.SECONDS);
+	}
+	// Running compiles get a bounded time to finish before they are interrupted
+	void close(final long timeout, final TimeUnit unit) throws IOException {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(timeout, unit)) {
+				executor.shutdownNow();
+			}
+		} catch (final InterruptedException e) {
+			// Stop waiting for running compiles and leave the interrupt for the caller to see
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		for (final InMemoryFileManager fileManager : idle) {
+			fileManager.close();
+		}
+	}
+	private Result compile(final InMemoryFileManager fileManager, final List<String> options,
+			final SourceFile... sources) {
+		final JavaC javac = newJavaC(fileManager);
+		final boolean success = javac.compile(options, sources);
+		if (success && shareClasses) {
+			classPath.putAll(javac.getBuffers());
+		}
+		return new Result(success, javac);
+	}
+	public CompletableFuture<Result> compile(final List<String> options, final SourceFile... sources) {
+		return submit(fileManager -> compile(fileManager, options, sources));
+	}
+	public CompletableFuture<Result> compile(final SourceFile... sources) {
+		return compile(List.of(), sources);
+	}
+	// Only the outputs of the previous compile are cleared; the shared class path is kept
+	JavaC newJavaC(final InMemoryFileManager fileManager) {
+		fileManager.reset();
+		return new JavaC(new DiagnosticCollector<JavaFileObject>(), compiler, fileManager);
+	}
+	public void reset() {
+		classPath.clear();
+	}
+	<T> CompletableFuture<T> submit(final Function<InMemoryFileManager, T> task) {
+		// There are as many file managers as threads, so a running task always finds one idle
+		return CompletableFuture.supplyAsync(() -> {
+			final InMemoryFileManager fileManager = idle.poll();
+			try {
+				return task.apply(fileManager);
+			} finally {
+				idle.add(fileManager);
+			}
+		}, executor);
+	}
+	public int workers() {
+		return workers;
+	}
+}
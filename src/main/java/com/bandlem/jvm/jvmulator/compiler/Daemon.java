@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import com.bandlem.jvm.jvmulator.EmulatorMetrics;
+import com.bandlem.jvm.jvmulator.JVMFrame;
+import com.bandlem.jvm.jvmulator.Slot;
+import com.bandlem.jvm.jvmulator.classfile.ClassMetrics;
+import com.bandlem.jvm.jvmulator.classfile.ClassRepository;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member.Method;
+import com.bandlem.jvm.jvmulator.classfile.Symbol;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache.Result;
+public class Daemon implements AutoCloseable {
+	// Approximate retained size of the parsed classes kept between requests
+	private static final long CLASSES = 64L << 20;
+	static final byte COMPILE = 'C';
+	static final byte EMULATE = 'E';
+	static final byte ERROR = 2;
+	static final byte FAILED = 1;
+	static final byte OK = 0;
+	static final byte RESET = 'R';
+	public static void main(final String[] args) throws IOException {
+		final PrintStream out = System.out;
+		// Emulated code calls through to the real System.out, which must not interleave with responses
+		System.setOut(System.err);
+		register(ManagementFactory.getPlatformMBeanServer());
+		try (Daemon daemon = new Daemon()) {
+			daemon.serve(System.in, out);
+		}
+	}
+	static Slot readArgument(final DataInput in) throws IOException {
+		final char type = (char) in.readByte();
+		switch (type) {
+		case 'D':
+			return Slot.of(in.readDouble());
+		case 'F':
+			return Slot.of(in.readFloat());
+		case 'I':
+			return Slot.of(in.readInt());
+		case 'J':
+			return Slot.of(in.readLong());
+		case 'L':
+			return Slot.of(readString(in));
+		case 'Z':
+			return Slot.of(in.readBoolean());
+		default:
+			throw new IllegalArgumentException("Unknown argument type " + type);
+		}
+	}
+	static String readString(final DataInput in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	static void register(final MBeanServer server) {
+		final Map<String, Object> metrics = Map.of(ClassMetrics.NAME, ClassMetrics.global(), CompilerMetrics.NAME,
+				CompilerMetrics.global(), EmulatorMetrics.NAME, EmulatorMetrics.global());
+		try {
+			for (final Map.Entry<String, Object> entry : metrics.entrySet()) {
+				final ObjectName name = new ObjectName(entry.getKey());
+				if (!server.isRegistered(name)) {
+					server.registerMBean(entry.getValue(), name);
+				}
+			}
+		} catch (final JMException e) {
+			throw new IllegalStateException("Unable to register metrics", e);
+		}
+	}
+	static void writeResult(final DataOutput out, final char type, final Slot result) throws IOException {
+		switch (type) {
+		case 'V':
+			break;
+		case 'D':
+			out.writeDouble(result.doubleValue());
+			break;
+		case 'F':
+			out.writeFloat(result.floatValue());
+			break;
+		case 'J':
+			out.writeLong(result.longValue());
+			break;
+		case 'Z':
+			out.writeBoolean(result.booleanValue());
+			break;
+		case 'B':
+		case 'C':
+		case 'I':
+		case 'S':
+			out.writeInt(result.intValue());
+			break;
+		default:
+			writeString(out, String.valueOf(result.referenceValue()));
+		}
+	}
+	static void writeString(final DataOutput out, final String value) throws IOException {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	// Requests are served one at a time, so a single warm worker suffices; its class path holds earlier compiles
+	private final CompilerPool pool = new CompilerPool(1, 1, true);
+	private ClassRepository repository = new ClassRepository(null, CLASSES);
+	@Override
+	public void close() throws IOException {
+		pool.close();
+	}
+	private void compile(final DataInput in, final DataOutput out) throws IOException {
+		final List<String> options = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			options.add(readString(in));
+		}
+		final SourceFile[] sources = new SourceFile[in.readInt()];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = new SourceFile(readString(in), readString(in));
+		}
+		final Result result;
+		try {
+			result = pool.compile(options, sources).join();
+		} catch (final CompletionException e) {
+			error(out, e.getCause());
+			return;
+		}
+		final Map<String, ByteBuffer> written = new TreeMap<>(result.classes);
+		written.forEach((name, buffer) -> repository.define(name.replace('.', '/'), buffer));
+		out.writeByte(result.success ? OK : FAILED);
+		out.writeInt(result.diagnostics.size());
+		for (final String diagnostic : result.diagnostics) {
+			writeString(out, diagnostic);
+		}
+		out.writeInt(written.size());
+		for (final String name : written.keySet()) {
+			final byte[] bytes = result.getBytes(name);
+			writeString(out, name);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+	// Returns false when an argument cannot be read, as the rest of the request cannot be framed
+	private boolean emulate(final DataInput in, final DataOutput out) throws IOException {
+		final String className = readString(in);
+		final String methodName = readString(in);
+		final String descriptor = readString(in);
+		final Slot[] arguments = new Slot[in.readInt()];
+		try {
+			for (int i = 0; i < arguments.length; i++) {
+				arguments[i] = readArgument(in);
+			}
+		} catch (final IllegalArgumentException e) {
+			error(out, e);
+			return false;
+		}
+		final Slot result;
+		try {
+			result = emulate(className, methodName, descriptor, arguments);
+		} catch (final RuntimeException e) {
+			error(out, e);
+			return true;
+		}
+		out.writeByte(OK);
+		writeResult(out, descriptor.charAt(descriptor.indexOf(')') + 1), result);
+		return true;
+	}
+	Slot emulate(final String className, final String methodName, final String descriptor,
+			final Slot... arguments) {
+		final JavaClass javaClass = getJavaClass(className);
+		final Method method = javaClass.getMethod(Symbol.of(methodName), Symbol.of(descriptor));
+		if (method == null) {
+			throw new IllegalArgumentException("Method " + className + "." + methodName + descriptor + " not found");
+		}
+		final JVMFrame frame = new JVMFrame(repository, javaClass, method);
+		final Slot[] locals = frame.getLocals();
+		int local = 0;
+		for (final Slot argument : arguments) {
+			locals[local] = argument;
+			local += argument.isWide() ? 2 : 1;
+		}
+		return frame.run();
+	}
+	private void error(final DataOutput out, final Throwable e) throws IOException {
+		out.writeByte(ERROR);
+		writeString(out, e.toString());
+	}
+	JavaClass getJavaClass(final String className) {
+		final JavaClass javaClass = repository.get(className.replace('.', '/'));
+		if (javaClass == null) {
+			throw new IllegalArgumentException("Class " + className + " has not been compiled");
+		}
+		return javaClass;
+	}
+	// Returns false when the request type is unknown, as the rest of the input cannot be framed
+	private boolean handle(final int type, final DataInput in, final DataOutput out) throws IOException {
+		switch (type) {
+		case COMPILE:
+			compile(in, out);
+			return true;
+		case EMULATE:
+			return emulate(in, out);
+		case RESET:
+			pool.reset();
+			repository = new ClassRepository(null, CLASSES);
+			out.writeByte(OK);
+			return true;
+		default:
+			error(out, new IllegalArgumentException("Unknown request type " + type));
+			return false;
+		}
+	}
+	// Requests are a type byte followed by its fields; responses are a status byte followed by the result.
+	// Requests are not length prefixed, so serving stops after a request that cannot be framed, as well as at the
+	// end of the input, rather than reading its remaining fields as further requests
+	public void serve(final InputStream input, final OutputStream output) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+		for (int type = in.read(); type != -1; type = in.read()) {
+			final boolean framed = handle(type, in, out);
+			out.flush();
+			if (!framed) {
+				return;
+			}
+		}
+	}
+}
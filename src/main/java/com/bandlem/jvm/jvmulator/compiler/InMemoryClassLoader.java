@@ -7,19 +7,31 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.compiler;
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
 public class InMemoryClassLoader extends ClassLoader {
-	private final Map<String, byte[]> map;
-	public InMemoryClassLoader(final Map<String, byte[]> map, final ClassLoader parent) {
+	static {
+		// Locks per class name instead of on the loader, so concurrent loads of different classes do not serialise
+		registerAsParallelCapable();
+	}
+	private final Map<String, JavaClass> javaClasses = new ConcurrentHashMap<>();
+	private final Map<String, ByteBuffer> map;
+	public InMemoryClassLoader(final Map<String, ByteBuffer> map, final ClassLoader parent) {
 		super(parent);
 		this.map = map;
 	}
 	@Override
 	protected Class<?> findClass(final String name) throws ClassNotFoundException {
-		final byte[] bytes = map.get(name);
-		if (bytes == null) {
+		final ByteBuffer buffer = map.get(name);
+		if (buffer == null) {
 			throw new ClassNotFoundException(name);
 		}
-		return defineClass(name, bytes, 0, bytes.length);
+		return defineClass(name, buffer.duplicate(), null);
+	}
+	public JavaClass getJavaClass(final String name) {
+		final ByteBuffer buffer = map.get(name);
+		return buffer == null ? null : javaClasses.computeIfAbsent(name, key -> new JavaClass(buffer));
 	}
 }
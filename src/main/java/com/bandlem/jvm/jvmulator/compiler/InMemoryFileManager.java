@@ -8,33 +8,117 @@
  */
 package com.bandlem.jvm.jvmulator.compiler;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 public class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
-	private final Map<String, byte[]> classes = Collections.synchronizedMap(new HashMap<>());
+	static boolean inPackage(final String className, final String packageName, final boolean recurse) {
+		final int dot = className.lastIndexOf('.');
+		final String classPackage = dot < 0 ? "" : className.substring(0, dot);
+		if (classPackage.equals(packageName)) {
+			return true;
+		}
+		return recurse && (packageName.isEmpty() || classPackage.startsWith(packageName + "."));
+	}
+	static byte[] toBytes(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+	static Map<String, ByteBuffer> toReadOnly(final Map<String, ByteBuffer> buffers) {
+		final Map<String, ByteBuffer> views = new HashMap<>();
+		buffers.forEach((name, buffer) -> views.put(name, buffer.asReadOnlyBuffer()));
+		return Collections.unmodifiableMap(views);
+	}
+	// Writable views of the compiler output, so that defineClass can use the backing array without a copy
+	private final Map<String, ByteBuffer> classes = Collections.synchronizedMap(new HashMap<>());
+	private final Map<String, ByteBuffer> classPath;
+	private final Map<String, FileObject> sources = Collections.synchronizedMap(new HashMap<>());
 	public InMemoryFileManager() {
 		this(ToolProvider.getSystemJavaCompiler());
 	}
 	public InMemoryFileManager(final JavaCompiler javaCompiler) {
+		this(javaCompiler, Map.of());
+	}
+	// The class path holds classes compiled elsewhere, which are listed alongside this manager's own outputs
+	InMemoryFileManager(final JavaCompiler javaCompiler, final Map<String, ByteBuffer> classPath) {
 		super(javaCompiler.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+		this.classPath = classPath;
+	}
+	public ByteBuffer getBuffer(final String name) {
+		final ByteBuffer buffer = classes.get(name);
+		return buffer == null ? null : buffer.asReadOnlyBuffer();
+	}
+	Map<String, ByteBuffer> getBuffers() {
+		synchronized (classes) {
+			return new HashMap<>(classes);
+		}
 	}
 	public byte[] getBytes(final String name) {
-		return classes.get(name);
+		final ByteBuffer buffer = classes.get(name);
+		return buffer == null ? null : toBytes(buffer);
+	}
+	public Map<String, ByteBuffer> getClasses() {
+		return toReadOnly(getBuffers());
+	}
+	// Classes compiled from the given source, including its nested and secondary top-level classes
+	public Map<String, ByteBuffer> getClasses(final FileObject source) {
+		final Map<String, ByteBuffer> buffers = getBuffers();
+		synchronized (sources) {
+			buffers.keySet().removeIf(name -> sources.get(name) != source);
+		}
+		return toReadOnly(buffers);
 	}
 	@Override
 	public JavaFileObject getJavaFileForOutput(final Location location, final String className,
 			final JavaFileObject.Kind kind, final FileObject sibling) throws IOException {
-		return new ClassFile(className, bytes -> classes.put(className, bytes));
+		sources.put(className, sibling);
+		return new ClassFile(className, buffer -> classes.put(className, buffer));
+	}
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+		if (file instanceof ClassFile) {
+			return ((ClassFile) file).binaryName;
+		}
+		return super.inferBinaryName(location, file);
 	}
-	public ClassLoader newClassLoader() {
+	// Classes from earlier compiles are visible on the class path, so dependents need not be recompiled with them
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set<Kind> kinds,
+			final boolean recurse) throws IOException {
+		final Iterable<JavaFileObject> delegated = super.list(location, packageName, kinds, recurse);
+		if (location != StandardLocation.CLASS_PATH || !kinds.contains(Kind.CLASS)) {
+			return delegated;
+		}
+		final List<JavaFileObject> files = new ArrayList<>();
+		final Map<String, ByteBuffer> buffers = new HashMap<>(classPath);
+		buffers.putAll(getBuffers());
+		buffers.forEach((name, buffer) -> {
+			if (inPackage(name, packageName, recurse)) {
+				files.add(new ClassFile(name, buffer));
+			}
+		});
+		delegated.forEach(files::add);
+		return files;
+	}
+	public InMemoryClassLoader newClassLoader() {
 		return new InMemoryClassLoader(classes, getClass().getClassLoader());
 	}
+	public void reset() {
+		classes.clear();
+		sources.clear();
+	}
 }
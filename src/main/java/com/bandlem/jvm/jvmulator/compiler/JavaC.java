@@ -7,8 +7,10 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.compiler;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
@@ -30,17 +32,48 @@ public class JavaC {
 		this.compiler = Objects.requireNonNull(compiler);
 		this.fileManager = Objects.requireNonNull(fileManager);
 	}
+	public boolean compile(final Iterable<String> options, final SourceFile... source) {
+		final CompilationTask task = compiler.getTask(null, fileManager, collector, options, null,
+				Arrays.asList(source));
+		final CompileEvent event = new CompileEvent();
+		event.begin();
+		final long start = System.nanoTime();
+		final boolean success = task.call();
+		final CompilerMetrics metrics = CompilerMetrics.global();
+		metrics.nanos.add(System.nanoTime() - start);
+		metrics.compiles.increment();
+		if (!success) {
+			metrics.failures.increment();
+		}
+		if (event.shouldCommit()) {
+			event.sources = source.length;
+			event.success = success;
+			event.commit();
+		}
+		return success;
+	}
 	public boolean compile(final SourceFile... source) {
-		final CompilationTask task = compiler.getTask(null, fileManager, collector, null, null, Arrays.asList(source));
-		return task.call();
+		return compile(null, source);
+	}
+	public ByteBuffer getBuffer(final String name) {
+		return fileManager.getBuffer(name);
+	}
+	Map<String, ByteBuffer> getBuffers() {
+		return fileManager.getBuffers();
 	}
 	public byte[] getBytes(final String name) {
 		return fileManager.getBytes(name);
 	}
+	public Map<String, ByteBuffer> getClasses() {
+		return fileManager.getClasses();
+	}
+	public Map<String, ByteBuffer> getClasses(final JavaFileObject source) {
+		return fileManager.getClasses(source);
+	}
 	public List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
 		return collector.getDiagnostics();
 	}
-	public ClassLoader newClassLoader() {
+	public InMemoryClassLoader newClassLoader() {
 		return fileManager.newClassLoader();
 	}
 }
@@ -9,10 +9,11 @@
 package com.bandlem.jvm.jvmulator.compiler;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 public class NotifyingByteArrayOutputStream extends ByteArrayOutputStream {
-	private final Consumer<byte[]> listener;
-	public NotifyingByteArrayOutputStream(final int intialSize, final Consumer<byte[]> listener) {
+	private final Consumer<ByteBuffer> listener;
+	public NotifyingByteArrayOutputStream(final int intialSize, final Consumer<ByteBuffer> listener) {
 		super(intialSize);
 		if (listener == null) {
 			throw new IllegalArgumentException("Listener must be supplied");
@@ -22,6 +23,7 @@ public class NotifyingByteArrayOutputStream extends ByteArrayOutputStream {
 	@Override
 	public void close() throws IOException {
 		super.close();
-		listener.accept(toByteArray());
+		// Hands over a view of the internal buffer rather than the copy made by toByteArray
+		listener.accept(ByteBuffer.wrap(buf, 0, count));
 	}
 }
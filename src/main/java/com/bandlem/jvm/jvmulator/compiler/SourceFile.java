@@ -7,7 +7,6 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.compiler;
-import java.io.IOException;
 import java.net.URI;
 import javax.tools.SimpleJavaFileObject;
 public class SourceFile extends SimpleJavaFileObject {
@@ -17,7 +16,7 @@ public class SourceFile extends SimpleJavaFileObject {
 		this.source = source;
 	}
 	@Override
-	public CharSequence getCharContent(final boolean ignoreEncodingErrors) throws IOException {
+	public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
 		return source;
 	}
 }
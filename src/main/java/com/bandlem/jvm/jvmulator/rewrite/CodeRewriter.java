@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member.Method;
+public class CodeRewriter {
+	public static CodeRewriter optimiser() {
+		return new CodeRewriter(new ConstantFolding(), new Peephole(), new DeadCodeElimination());
+	}
+	private final Pass[] passes;
+	public CodeRewriter(final Pass... passes) {
+		this.passes = passes;
+	}
+	public Code rewrite(final Code code, final ConstantPoolBuilder pool) {
+		final Instructions instructions = new Instructions(code, pool);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (final Pass pass : passes) {
+				changed |= pass.apply(instructions);
+			}
+		}
+		return instructions.toCode();
+	}
+	public JavaClass rewrite(final JavaClass javaClass) {
+		final ConstantPoolBuilder pool = new ConstantPoolBuilder(javaClass.pool);
+		final Method[] methods = new Method[javaClass.methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			final Method method = javaClass.methods[i];
+			final Attribute[] attributes = method.attributes.clone();
+			for (int a = 0; a < attributes.length; a++) {
+				if (attributes[a] instanceof Code) {
+					attributes[a] = rewrite((Code) attributes[a], pool);
+				}
+			}
+			methods[i] = new Method(method.flags, method.name, method.descriptor, attributes);
+		}
+		return new JavaClass(javaClass.minor, javaClass.major, pool.build(), javaClass.flags, javaClass.this_class,
+				javaClass.super_class, javaClass.interfaces, javaClass.fields, methods, javaClass.classAttributes);
+	}
+}
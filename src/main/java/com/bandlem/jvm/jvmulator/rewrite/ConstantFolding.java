@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import com.bandlem.jvm.jvmulator.Opcodes;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+public class ConstantFolding implements Pass {
+	static Integer fold(final byte opcode, final int left, final int right) {
+		switch (opcode) {
+		case Opcodes.IADD:
+			return left + right;
+		case Opcodes.ISUB:
+			return left - right;
+		case Opcodes.IMUL:
+			return left * right;
+		case Opcodes.IDIV:
+			return right == 0 ? null : left / right;
+		case Opcodes.IREM:
+			return right == 0 ? null : left % right;
+		case Opcodes.IAND:
+			return left & right;
+		case Opcodes.IOR:
+			return left | right;
+		case Opcodes.IXOR:
+			return left ^ right;
+		case Opcodes.ISHL:
+			return left << right;
+		case Opcodes.ISHR:
+			return left >> right;
+		case Opcodes.IUSHR:
+			return left >>> right;
+		default:
+			return null;
+		}
+	}
+	static Instruction push(final int value, final ConstantPoolBuilder pool) {
+		if (value >= -1 && value <= 5) {
+			return new Instruction((byte) (Opcodes.ICONST_0 + value));
+		} else if (value == (byte) value) {
+			return new Instruction(Opcodes.BIPUSH, (byte) value);
+		} else if (value == (short) value) {
+			return new Instruction(Opcodes.SIPUSH, (byte) (value >> 8), (byte) value);
+		}
+		final int index = pool.addInteger(value);
+		if (index < 256) {
+			return new Instruction(Opcodes.LDC, (byte) index);
+		} else {
+			return new Instruction(Opcodes.LDC_W, (byte) (index >> 8), (byte) index);
+		}
+	}
+	static Boolean taken(final byte opcode, final int value) {
+		switch (opcode) {
+		case Opcodes.IFEQ:
+			return value == 0;
+		case Opcodes.IFNE:
+			return value != 0;
+		case Opcodes.IFLT:
+			return value < 0;
+		case Opcodes.IFGE:
+			return value >= 0;
+		case Opcodes.IFGT:
+			return value > 0;
+		case Opcodes.IFLE:
+			return value <= 0;
+		default:
+			return null;
+		}
+	}
+	static Integer value(final Instruction instruction, final ConstantPoolBuilder pool) {
+		switch (instruction.opcode) {
+		case Opcodes.ICONST_M1:
+		case Opcodes.ICONST_0:
+		case Opcodes.ICONST_1:
+		case Opcodes.ICONST_2:
+		case Opcodes.ICONST_3:
+		case Opcodes.ICONST_4:
+		case Opcodes.ICONST_5:
+			return instruction.opcode - Opcodes.ICONST_0;
+		case Opcodes.BIPUSH:
+			return (int) instruction.operands[0];
+		case Opcodes.SIPUSH:
+			return (int) (short) instruction.index();
+		case Opcodes.LDC:
+		case Opcodes.LDC_W:
+			final Item item = pool.getItem(instruction.index());
+			return item instanceof IntConstant ? ((IntConstant) item).value : null;
+		default:
+			return null;
+		}
+	}
+	@Override
+	public boolean apply(final Instructions code) {
+		boolean changed = false;
+		for (int i = 0; i + 1 < code.size(); i++) {
+			final Integer value = value(code.get(i), code.pool);
+			final Instruction next = code.get(i + 1);
+			if (value == null || code.isTarget(next)) {
+				continue;
+			}
+			final Boolean taken = taken(next.opcode, value);
+			final Integer right = value(next, code.pool);
+			final Instruction operator = i + 2 < code.size() ? code.get(i + 2) : null;
+			final Integer result = right == null || operator == null || code.isTarget(operator) ? null
+					: fold(operator.opcode, value, right);
+			if (next.opcode == Opcodes.INEG) {
+				code.replace(i, 2, push(-value, code.pool));
+			} else if (taken != null) {
+				code.replace(i, 2, taken ? new Instruction[] {
+						new Instruction(Opcodes.GOTO, next.target)
+				} : new Instruction[0]);
+			} else if (result != null) {
+				code.replace(i, 3, push(result, code.pool));
+			} else {
+				continue;
+			}
+			changed = true;
+			i--;
+		}
+		return changed;
+	}
+}
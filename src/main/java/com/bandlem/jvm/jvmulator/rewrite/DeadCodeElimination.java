@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+public class DeadCodeElimination implements Pass {
+	@Override
+	public boolean apply(final Instructions code) {
+		final int[] depths = code.depths();
+		boolean changed = false;
+		for (int i = depths.length - 1; i >= 0; i--) {
+			if (depths[i] < 0) {
+				code.replace(i, 1);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import com.bandlem.jvm.jvmulator.Opcodes;
+public class Instruction {
+	private static final byte[] NONE = new byte[0];
+	static boolean isBranch(final byte opcode) {
+		final int op = opcode & 0xff;
+		return op >= (Opcodes.IFEQ & 0xff) && op <= (Opcodes.JSR & 0xff)
+				|| op >= (Opcodes.IFNULL & 0xff) && op <= (Opcodes.JSR_W & 0xff);
+	}
+	static boolean isSwitch(final byte opcode) {
+		return opcode == Opcodes.TABLESWITCH || opcode == Opcodes.LOOKUPSWITCH;
+	}
+	final int[] keys;
+	public final byte opcode;
+	final byte[] operands;
+	int pc;
+	Instruction target;
+	final Instruction[] targets;
+	public Instruction(final byte opcode, final byte... operands) {
+		this(opcode, operands, null, null, null);
+	}
+	Instruction(final byte opcode, final byte[] operands, final Instruction target, final Instruction[] targets,
+			final int[] keys) {
+		this.opcode = opcode;
+		this.operands = operands;
+		this.target = target;
+		this.targets = targets;
+		this.keys = keys;
+	}
+	public Instruction(final byte opcode, final Instruction target) {
+		this(opcode, NONE, target, null, null);
+	}
+	boolean fallsThrough() {
+		switch (opcode) {
+		case Opcodes.GOTO:
+		case Opcodes.GOTO_W:
+		case Opcodes.RET:
+		case Opcodes.TABLESWITCH:
+		case Opcodes.LOOKUPSWITCH:
+		case Opcodes.IRETURN:
+		case Opcodes.LRETURN:
+		case Opcodes.FRETURN:
+		case Opcodes.DRETURN:
+		case Opcodes.ARETURN:
+		case Opcodes.RETURN:
+		case Opcodes.ATHROW:
+			return false;
+		default:
+			return true;
+		}
+	}
+	int index() {
+		return operands.length == 1 ? operands[0] & 0xff : (operands[0] & 0xff) << 8 | (operands[1] & 0xff);
+	}
+	boolean references(final Instruction instruction) {
+		if (target == instruction) {
+			return true;
+		}
+		if (targets != null) {
+			for (final Instruction each : targets) {
+				if (each == instruction) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	void retarget(final Instruction from, final Instruction to) {
+		if (target == from) {
+			target = to;
+		}
+		if (targets != null) {
+			for (int i = 0; i < targets.length; i++) {
+				if (targets[i] == from) {
+					targets[i] = to;
+				}
+			}
+		}
+	}
+	int size(final int pc) {
+		switch (opcode) {
+		case Opcodes.TABLESWITCH:
+			return ((pc + 4) & ~3) - pc + 12 + 4 * targets.length;
+		case Opcodes.LOOKUPSWITCH:
+			return ((pc + 4) & ~3) - pc + 8 + 8 * targets.length;
+		case Opcodes.GOTO_W:
+		case Opcodes.JSR_W:
+			return 5;
+		default:
+			return target == null ? 1 + operands.length : 3;
+		}
+	}
+	@Override
+	public String toString() {
+		return Opcodes.name(opcode);
+	}
+}
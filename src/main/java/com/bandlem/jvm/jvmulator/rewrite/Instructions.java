@@ -0,0 +1,585 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.bandlem.jvm.jvmulator.Opcodes;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FieldRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.InterfaceMethodRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.InvokeDynamic;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodRef;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.NameAndType;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+// Decoded Code attribute with branches, handlers and line numbers held as instruction references
+public class Instructions {
+	static class Range {
+		final String catchType;
+		Instruction end;
+		Instruction handler;
+		Instruction start;
+		Range(final Instruction start, final Instruction end, final Instruction handler, final String catchType) {
+			this.start = start;
+			this.end = end;
+			this.handler = handler;
+			this.catchType = catchType;
+		}
+	}
+	static final String LINE_NUMBERS = "LineNumberTable";
+	private static Instruction at(final Instruction[] pcs, final int pc) {
+		if (pc < 0 || pc >= pcs.length || pcs[pc] == null) {
+			throw new IllegalArgumentException("Invalid branch target " + pc);
+		}
+		return pcs[pc];
+	}
+	private static void putInt(final byte[] code, final int offset, final int value) {
+		code[offset] = (byte) (value >> 24);
+		code[offset + 1] = (byte) (value >> 16);
+		code[offset + 2] = (byte) (value >> 8);
+		code[offset + 3] = (byte) value;
+	}
+	private static int readShort(final byte[] code, final int offset) {
+		return (short) ((code[offset] & 0xff) << 8 | (code[offset + 1] & 0xff));
+	}
+	static int slots(final char type) {
+		return type == 'V' ? 0 : type == 'J' || type == 'D' ? 2 : 1;
+	}
+	static int slots(final String descriptor, final boolean arguments) {
+		if (descriptor.charAt(0) != '(') {
+			return slots(descriptor.charAt(0));
+		}
+		final int close = descriptor.indexOf(')');
+		if (!arguments) {
+			return slots(descriptor.charAt(close + 1));
+		}
+		int slots = 0;
+		for (int i = 1; i < close; i++) {
+			final char type = descriptor.charAt(i);
+			slots += slots(type);
+			while (descriptor.charAt(i) == '[') {
+				i++;
+			}
+			if (descriptor.charAt(i) == 'L') {
+				i = descriptor.indexOf(';', i);
+			}
+		}
+		return slots;
+	}
+	private boolean changed;
+	private final List<Instruction> instructions = new ArrayList<>();
+	private final Map<Instruction, Integer> lines = new HashMap<>();
+	private final Code original;
+	public final ConstantPoolBuilder pool;
+	final List<Range> ranges = new ArrayList<>();
+	// Number of branches, switches and handler ranges that refer to each instruction
+	private final Map<Instruction, Integer> referenced = new HashMap<>();
+	public Instructions(final Code code, final ConstantPoolBuilder pool) {
+		this.original = code;
+		this.pool = pool;
+		final byte[] bytecode = code.getBytecode();
+		final Instruction[] pcs = new Instruction[bytecode.length];
+		for (int pc = 0; pc < bytecode.length; pc += Opcodes.length(bytecode, pc)) {
+			pcs[pc] = decode(bytecode, pc);
+			pcs[pc].pc = pc;
+			instructions.add(pcs[pc]);
+		}
+		for (final Instruction instruction : instructions) {
+			resolve(bytecode, instruction, pcs);
+		}
+		for (final Handler handler : code.getExceptionTable().handlers) {
+			final Instruction end = handler.endPC == bytecode.length ? null : at(pcs, handler.endPC);
+			ranges.add(new Range(at(pcs, handler.startPC), end, at(pcs, handler.handlerPC), handler.catchType));
+		}
+		for (final Instruction instruction : instructions) {
+			countBranches(instruction, 1);
+		}
+		for (final Range range : ranges) {
+			countRange(range, 1);
+		}
+		for (final Attribute attribute : code.getAttributes()) {
+			if (LINE_NUMBERS.equals(attribute.attributeName)) {
+				final byte[] data = ((Unknown) attribute).data;
+				for (int i = 2; i < data.length; i += 4) {
+					lines.put(at(pcs, readShort(data, i) & 0xffff), readShort(data, i + 2) & 0xffff);
+				}
+			}
+		}
+	}
+	private void count(final Instruction target, final int delta) {
+		if (target != null) {
+			referenced.merge(target, delta, (a, b) -> a + b == 0 ? null : a + b);
+		}
+	}
+	private void countBranches(final Instruction instruction, final int delta) {
+		count(instruction.target, delta);
+		if (instruction.targets != null) {
+			for (final Instruction target : instruction.targets) {
+				count(target, delta);
+			}
+		}
+	}
+	private void countRange(final Range range, final int delta) {
+		count(range.start, delta);
+		count(range.end, delta);
+		count(range.handler, delta);
+	}
+	private Instruction decode(final byte[] bytecode, final int pc) {
+		final byte opcode = bytecode[pc];
+		final int length = Opcodes.length(bytecode, pc);
+		if (Instruction.isSwitch(opcode)) {
+			final int aligned = (pc + 4) & ~3;
+			final int count = opcode == Opcodes.TABLESWITCH
+					? Opcodes.readInt(bytecode, aligned + 8) - Opcodes.readInt(bytecode, aligned + 4) + 1
+					: Opcodes.readInt(bytecode, aligned + 4);
+			return new Instruction(opcode, null, null, new Instruction[count], new int[count]);
+		} else if (Instruction.isBranch(opcode)) {
+			return new Instruction(opcode, null, null, null, null);
+		} else {
+			return new Instruction(opcode, Arrays.copyOfRange(bytecode, pc + 1, pc + length), null, null, null);
+		}
+	}
+	int[] depths() {
+		final Map<Instruction, Integer> index = new HashMap<>();
+		for (int i = 0; i < instructions.size(); i++) {
+			index.put(instructions.get(i), i);
+		}
+		final int[] depths = new int[instructions.size()];
+		Arrays.fill(depths, -1);
+		final Deque<Integer> work = new ArrayDeque<>();
+		visit(work, depths, 0, 0);
+		while (!work.isEmpty()) {
+			while (!work.isEmpty()) {
+				final int i = work.pop();
+				final Instruction instruction = instructions.get(i);
+				final int depth = depths[i] + effect(instruction);
+				if (instruction.fallsThrough()) {
+					final boolean jsr = instruction.opcode == Opcodes.JSR || instruction.opcode == Opcodes.JSR_W;
+					visit(work, depths, i + 1, jsr ? depth - 1 : depth);
+				}
+				if (instruction.target != null) {
+					visit(work, depths, index.get(instruction.target), depth);
+				}
+				if (instruction.targets != null) {
+					for (final Instruction target : instruction.targets) {
+						visit(work, depths, index.get(target), depth);
+					}
+				}
+			}
+			for (final Range range : ranges) {
+				final int end = range.end == null ? instructions.size() : index.get(range.end);
+				for (int i = index.get(range.start); i < end; i++) {
+					if (depths[i] >= 0) {
+						visit(work, depths, index.get(range.handler), 1);
+					}
+				}
+			}
+		}
+		return depths;
+	}
+	private String descriptor(final Instruction instruction) {
+		final Item item = pool.getItem(instruction.index());
+		final int nameAndType;
+		if (item instanceof FieldRef) {
+			nameAndType = ((FieldRef) item).nameAndTypeIndex;
+		} else if (item instanceof MethodRef) {
+			nameAndType = ((MethodRef) item).nameAndTypeIndex;
+		} else if (item instanceof InterfaceMethodRef) {
+			nameAndType = ((InterfaceMethodRef) item).nameAndTypeIndex;
+		} else {
+			nameAndType = ((InvokeDynamic) item).nameAndTypeIndex;
+		}
+		return pool.getString(((NameAndType) pool.getItem(nameAndType)).descriptorIndex);
+	}
+	private int effect(final Instruction instruction) {
+		switch (instruction.opcode) {
+		case Opcodes.ACONST_NULL:
+		case Opcodes.ICONST_M1:
+		case Opcodes.ICONST_0:
+		case Opcodes.ICONST_1:
+		case Opcodes.ICONST_2:
+		case Opcodes.ICONST_3:
+		case Opcodes.ICONST_4:
+		case Opcodes.ICONST_5:
+		case Opcodes.FCONST_0:
+		case Opcodes.FCONST_1:
+		case Opcodes.FCONST_2:
+		case Opcodes.BIPUSH:
+		case Opcodes.SIPUSH:
+		case Opcodes.LDC:
+		case Opcodes.LDC_W:
+		case Opcodes.ILOAD:
+		case Opcodes.FLOAD:
+		case Opcodes.ALOAD:
+		case Opcodes.ILOAD_0:
+		case Opcodes.ILOAD_1:
+		case Opcodes.ILOAD_2:
+		case Opcodes.ILOAD_3:
+		case Opcodes.FLOAD_0:
+		case Opcodes.FLOAD_1:
+		case Opcodes.FLOAD_2:
+		case Opcodes.FLOAD_3:
+		case Opcodes.ALOAD_0:
+		case Opcodes.ALOAD_1:
+		case Opcodes.ALOAD_2:
+		case Opcodes.ALOAD_3:
+		case Opcodes.DUP:
+		case Opcodes.DUP_X1:
+		case Opcodes.DUP_X2:
+		case Opcodes.I2L:
+		case Opcodes.I2D:
+		case Opcodes.F2L:
+		case Opcodes.F2D:
+		case Opcodes.JSR:
+		case Opcodes.JSR_W:
+		case Opcodes.NEW:
+			return 1;
+		case Opcodes.LCONST_0:
+		case Opcodes.LCONST_1:
+		case Opcodes.DCONST_0:
+		case Opcodes.DCONST_1:
+		case Opcodes.LDC2_W:
+		case Opcodes.LLOAD:
+		case Opcodes.DLOAD:
+		case Opcodes.LLOAD_0:
+		case Opcodes.LLOAD_1:
+		case Opcodes.LLOAD_2:
+		case Opcodes.LLOAD_3:
+		case Opcodes.DLOAD_0:
+		case Opcodes.DLOAD_1:
+		case Opcodes.DLOAD_2:
+		case Opcodes.DLOAD_3:
+		case Opcodes.DUP2:
+		case Opcodes.DUP2_X1:
+		case Opcodes.DUP2_X2:
+			return 2;
+		case Opcodes.IALOAD:
+		case Opcodes.FALOAD:
+		case Opcodes.AALOAD:
+		case Opcodes.BALOAD:
+		case Opcodes.CALOAD:
+		case Opcodes.SALOAD:
+		case Opcodes.ISTORE:
+		case Opcodes.FSTORE:
+		case Opcodes.ASTORE:
+		case Opcodes.ISTORE_0:
+		case Opcodes.ISTORE_1:
+		case Opcodes.ISTORE_2:
+		case Opcodes.ISTORE_3:
+		case Opcodes.FSTORE_0:
+		case Opcodes.FSTORE_1:
+		case Opcodes.FSTORE_2:
+		case Opcodes.FSTORE_3:
+		case Opcodes.ASTORE_0:
+		case Opcodes.ASTORE_1:
+		case Opcodes.ASTORE_2:
+		case Opcodes.ASTORE_3:
+		case Opcodes.POP:
+		case Opcodes.IADD:
+		case Opcodes.FADD:
+		case Opcodes.ISUB:
+		case Opcodes.FSUB:
+		case Opcodes.IMUL:
+		case Opcodes.FMUL:
+		case Opcodes.IDIV:
+		case Opcodes.FDIV:
+		case Opcodes.IREM:
+		case Opcodes.FREM:
+		case Opcodes.ISHL:
+		case Opcodes.LSHL:
+		case Opcodes.ISHR:
+		case Opcodes.LSHR:
+		case Opcodes.IUSHR:
+		case Opcodes.LUSHR:
+		case Opcodes.IAND:
+		case Opcodes.IOR:
+		case Opcodes.IXOR:
+		case Opcodes.L2I:
+		case Opcodes.L2F:
+		case Opcodes.D2I:
+		case Opcodes.D2F:
+		case Opcodes.FCMPL:
+		case Opcodes.FCMPG:
+		case Opcodes.IFEQ:
+		case Opcodes.IFNE:
+		case Opcodes.IFLT:
+		case Opcodes.IFGE:
+		case Opcodes.IFGT:
+		case Opcodes.IFLE:
+		case Opcodes.TABLESWITCH:
+		case Opcodes.LOOKUPSWITCH:
+		case Opcodes.IRETURN:
+		case Opcodes.FRETURN:
+		case Opcodes.ARETURN:
+		case Opcodes.ATHROW:
+		case Opcodes.MONITORENTER:
+		case Opcodes.MONITOREXIT:
+		case Opcodes.IFNULL:
+		case Opcodes.IFNONNULL:
+			return -1;
+		case Opcodes.LSTORE:
+		case Opcodes.DSTORE:
+		case Opcodes.LSTORE_0:
+		case Opcodes.LSTORE_1:
+		case Opcodes.LSTORE_2:
+		case Opcodes.LSTORE_3:
+		case Opcodes.DSTORE_0:
+		case Opcodes.DSTORE_1:
+		case Opcodes.DSTORE_2:
+		case Opcodes.DSTORE_3:
+		case Opcodes.POP2:
+		case Opcodes.LADD:
+		case Opcodes.DADD:
+		case Opcodes.LSUB:
+		case Opcodes.DSUB:
+		case Opcodes.LMUL:
+		case Opcodes.DMUL:
+		case Opcodes.LDIV:
+		case Opcodes.DDIV:
+		case Opcodes.LREM:
+		case Opcodes.DREM:
+		case Opcodes.LAND:
+		case Opcodes.LOR:
+		case Opcodes.LXOR:
+		case Opcodes.IF_ICMPEQ:
+		case Opcodes.IF_ICMPNE:
+		case Opcodes.IF_ICMPLT:
+		case Opcodes.IF_ICMPGE:
+		case Opcodes.IF_ICMPGT:
+		case Opcodes.IF_ICMPLE:
+		case Opcodes.IF_ACMPEQ:
+		case Opcodes.IF_ACMPNE:
+		case Opcodes.LRETURN:
+		case Opcodes.DRETURN:
+			return -2;
+		case Opcodes.IASTORE:
+		case Opcodes.FASTORE:
+		case Opcodes.AASTORE:
+		case Opcodes.BASTORE:
+		case Opcodes.CASTORE:
+		case Opcodes.SASTORE:
+		case Opcodes.LCMP:
+		case Opcodes.DCMPL:
+		case Opcodes.DCMPG:
+			return -3;
+		case Opcodes.LASTORE:
+		case Opcodes.DASTORE:
+			return -4;
+		case Opcodes.GETSTATIC:
+			return slots(descriptor(instruction), false);
+		case Opcodes.PUTSTATIC:
+			return -slots(descriptor(instruction), false);
+		case Opcodes.GETFIELD:
+			return slots(descriptor(instruction), false) - 1;
+		case Opcodes.PUTFIELD:
+			return -slots(descriptor(instruction), false) - 1;
+		case Opcodes.INVOKEVIRTUAL:
+		case Opcodes.INVOKESPECIAL:
+		case Opcodes.INVOKEINTERFACE:
+			return slots(descriptor(instruction), false) - slots(descriptor(instruction), true) - 1;
+		case Opcodes.INVOKESTATIC:
+		case Opcodes.INVOKEDYNAMIC:
+			return slots(descriptor(instruction), false) - slots(descriptor(instruction), true);
+		case Opcodes.MULTIANEWARRAY:
+			return 1 - (instruction.operands[2] & 0xff);
+		case Opcodes.WIDE:
+			return effect(new Instruction(instruction.operands[0]));
+		default:
+			return 0;
+		}
+	}
+	private byte[] encode() {
+		int length = 0;
+		for (final Instruction instruction : instructions) {
+			instruction.pc = length;
+			length += instruction.size(length);
+		}
+		final byte[] code = new byte[length];
+		for (final Instruction instruction : instructions) {
+			final int pc = instruction.pc;
+			code[pc] = instruction.opcode;
+			if (Instruction.isSwitch(instruction.opcode)) {
+				final int aligned = (pc + 4) & ~3;
+				putInt(code, aligned, instruction.target.pc - pc);
+				if (instruction.opcode == Opcodes.TABLESWITCH) {
+					putInt(code, aligned + 4, instruction.keys[0]);
+					putInt(code, aligned + 8, instruction.keys[0] + instruction.targets.length - 1);
+					for (int i = 0; i < instruction.targets.length; i++) {
+						putInt(code, aligned + 12 + 4 * i, instruction.targets[i].pc - pc);
+					}
+				} else {
+					putInt(code, aligned + 4, instruction.targets.length);
+					for (int i = 0; i < instruction.targets.length; i++) {
+						putInt(code, aligned + 8 + 8 * i, instruction.keys[i]);
+						putInt(code, aligned + 12 + 8 * i, instruction.targets[i].pc - pc);
+					}
+				}
+			} else if (instruction.size(pc) == 5 && instruction.target != null) {
+				putInt(code, pc + 1, instruction.target.pc - pc);
+			} else if (instruction.target != null) {
+				final int offset = instruction.target.pc - pc;
+				if (offset != (short) offset) {
+					throw new IllegalStateException("Branch offset " + offset + " out of range at " + pc);
+				}
+				code[pc + 1] = (byte) (offset >> 8);
+				code[pc + 2] = (byte) offset;
+			} else {
+				System.arraycopy(instruction.operands, 0, code, pc + 1, instruction.operands.length);
+			}
+		}
+		return code;
+	}
+	public Instruction get(final int index) {
+		return instructions.get(index);
+	}
+	public int indexOf(final Instruction instruction) {
+		for (int i = 0; i < instructions.size(); i++) {
+			if (instructions.get(i) == instruction) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	public boolean isChanged() {
+		return changed;
+	}
+	public boolean isTarget(final Instruction instruction) {
+		return referenced.containsKey(instruction);
+	}
+	int maxStack() {
+		final int[] depths = depths();
+		int max = 0;
+		for (int i = 0; i < depths.length; i++) {
+			if (depths[i] >= 0) {
+				max = Math.max(max, Math.max(depths[i], depths[i] + effect(instructions.get(i))));
+			}
+		}
+		return max;
+	}
+	public void replace(final int index, final int count, final Instruction... replacements) {
+		final List<Instruction> removed = new ArrayList<>(instructions.subList(index, index + count));
+		instructions.subList(index, index + count).clear();
+		instructions.addAll(index, Arrays.asList(replacements));
+		final int following = index + replacements.length;
+		final Instruction next = replacements.length > 0 ? replacements[0]
+				: following < instructions.size() ? instructions.get(following) : null;
+		for (final Instruction instruction : removed) {
+			countBranches(instruction, -1);
+		}
+		for (final Instruction replacement : replacements) {
+			countBranches(replacement, 1);
+		}
+		for (final Instruction instruction : removed) {
+			// Only instructions that are branched to need their referrers moved on to the next one
+			final Integer references = referenced.remove(instruction);
+			if (references != null) {
+				count(next, references);
+				for (final Instruction each : instructions) {
+					each.retarget(instruction, next);
+				}
+				for (final Range range : ranges) {
+					range.start = range.start == instruction ? next : range.start;
+					range.end = range.end == instruction ? next : range.end;
+					range.handler = range.handler == instruction ? next : range.handler;
+				}
+			}
+			final Integer line = lines.remove(instruction);
+			if (line != null && next != null) {
+				lines.putIfAbsent(next, line);
+			}
+		}
+		ranges.removeIf(range -> {
+			final boolean empty = range.start == null || range.handler == null || range.start == range.end;
+			if (empty) {
+				countRange(range, -1);
+			}
+			return empty;
+		});
+		changed = true;
+	}
+	public void retarget(final Instruction branch, final Instruction target) {
+		count(branch.target, -1);
+		count(target, 1);
+		branch.target = target;
+		changed = true;
+	}
+	private void resolve(final byte[] bytecode, final Instruction instruction, final Instruction[] pcs) {
+		final int pc = instruction.pc;
+		if (Instruction.isSwitch(instruction.opcode)) {
+			final int aligned = (pc + 4) & ~3;
+			instruction.target = at(pcs, pc + Opcodes.readInt(bytecode, aligned));
+			for (int i = 0; i < instruction.targets.length; i++) {
+				if (instruction.opcode == Opcodes.TABLESWITCH) {
+					instruction.keys[i] = Opcodes.readInt(bytecode, aligned + 4) + i;
+					instruction.targets[i] = at(pcs, pc + Opcodes.readInt(bytecode, aligned + 12 + 4 * i));
+				} else {
+					instruction.keys[i] = Opcodes.readInt(bytecode, aligned + 8 + 8 * i);
+					instruction.targets[i] = at(pcs, pc + Opcodes.readInt(bytecode, aligned + 12 + 8 * i));
+				}
+			}
+		} else if (instruction.opcode == Opcodes.GOTO_W || instruction.opcode == Opcodes.JSR_W) {
+			instruction.target = at(pcs, pc + Opcodes.readInt(bytecode, pc + 1));
+		} else if (Instruction.isBranch(instruction.opcode)) {
+			instruction.target = at(pcs, pc + readShort(bytecode, pc + 1));
+		}
+	}
+	public int size() {
+		return instructions.size();
+	}
+	public Code toCode() {
+		if (!changed) {
+			return original;
+		}
+		final byte[] bytecode = encode();
+		final Handler[] handlers = new Handler[ranges.size()];
+		for (int i = 0; i < handlers.length; i++) {
+			final Range range = ranges.get(i);
+			handlers[i] = new Handler(range.start.pc, range.end == null ? bytecode.length : range.end.pc,
+					range.handler.pc, range.catchType);
+		}
+		final List<Instruction> numbered = new ArrayList<>();
+		for (final Instruction instruction : instructions) {
+			if (lines.containsKey(instruction)) {
+				numbered.add(instruction);
+			}
+		}
+		final Attribute[] attributes;
+		if (numbered.isEmpty()) {
+			attributes = new Attribute[0];
+		} else {
+			final byte[] data = new byte[2 + 4 * numbered.size()];
+			data[0] = (byte) (numbered.size() >> 8);
+			data[1] = (byte) numbered.size();
+			for (int i = 0; i < numbered.size(); i++) {
+				final int line = lines.get(numbered.get(i));
+				putInt(data, 2 + 4 * i, numbered.get(i).pc << 16 | line);
+			}
+			attributes = new Attribute[] {
+					new Unknown(LINE_NUMBERS, data)
+			};
+		}
+		return new Code((short) maxStack(), original.getMaxLocals(), bytecode, new ExceptionTable(handlers),
+				attributes);
+	}
+	private void visit(final Deque<Integer> work, final int[] depths, final int index, final int depth) {
+		if (index < depths.length && depths[index] < 0) {
+			depths[index] = depth;
+			work.push(index);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import java.util.HashSet;
+import java.util.Set;
+import com.bandlem.jvm.jvmulator.Opcodes;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FloatConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+public class Peephole implements Pass {
+	// Follows a chain of GOTOs to its end, stopping at the first instruction seen twice when the chain loops
+	static Instruction destination(final Instruction branch) {
+		final Set<Instruction> seen = new HashSet<>();
+		Instruction target = branch.target;
+		while (target.opcode == Opcodes.GOTO && seen.add(target)) {
+			target = target.target;
+		}
+		return target;
+	}
+	static int pushed(final Instruction instruction, final ConstantPoolBuilder pool) {
+		switch (instruction.opcode) {
+		case Opcodes.ACONST_NULL:
+		case Opcodes.ICONST_M1:
+		case Opcodes.ICONST_0:
+		case Opcodes.ICONST_1:
+		case Opcodes.ICONST_2:
+		case Opcodes.ICONST_3:
+		case Opcodes.ICONST_4:
+		case Opcodes.ICONST_5:
+		case Opcodes.FCONST_0:
+		case Opcodes.FCONST_1:
+		case Opcodes.FCONST_2:
+		case Opcodes.BIPUSH:
+		case Opcodes.SIPUSH:
+		case Opcodes.ILOAD:
+		case Opcodes.FLOAD:
+		case Opcodes.ALOAD:
+		case Opcodes.ILOAD_0:
+		case Opcodes.ILOAD_1:
+		case Opcodes.ILOAD_2:
+		case Opcodes.ILOAD_3:
+		case Opcodes.FLOAD_0:
+		case Opcodes.FLOAD_1:
+		case Opcodes.FLOAD_2:
+		case Opcodes.FLOAD_3:
+		case Opcodes.ALOAD_0:
+		case Opcodes.ALOAD_1:
+		case Opcodes.ALOAD_2:
+		case Opcodes.ALOAD_3:
+		case Opcodes.DUP:
+			return 1;
+		case Opcodes.LCONST_0:
+		case Opcodes.LCONST_1:
+		case Opcodes.DCONST_0:
+		case Opcodes.DCONST_1:
+		case Opcodes.LLOAD:
+		case Opcodes.DLOAD:
+		case Opcodes.LLOAD_0:
+		case Opcodes.LLOAD_1:
+		case Opcodes.LLOAD_2:
+		case Opcodes.LLOAD_3:
+		case Opcodes.DLOAD_0:
+		case Opcodes.DLOAD_1:
+		case Opcodes.DLOAD_2:
+		case Opcodes.DLOAD_3:
+		case Opcodes.LDC2_W:
+			return 2;
+		case Opcodes.LDC:
+		case Opcodes.LDC_W:
+			final Item item = pool.getItem(instruction.index());
+			return item instanceof IntConstant || item instanceof FloatConstant || item instanceof StringConstant ? 1
+					: 0;
+		default:
+			return 0;
+		}
+	}
+	@Override
+	public boolean apply(final Instructions code) {
+		boolean changed = false;
+		for (int i = 0; i < code.size(); i++) {
+			final Instruction instruction = code.get(i);
+			final Instruction next = i + 1 < code.size() ? code.get(i + 1) : null;
+			final int pushed = pushed(instruction, code.pool);
+			if (instruction.opcode == Opcodes.NOP) {
+				code.replace(i, 1);
+			} else if (instruction.opcode == Opcodes.GOTO && instruction.target == next) {
+				code.replace(i, 1);
+			} else if (instruction.target != null && instruction.targets == null
+					&& destination(instruction) != instruction.target) {
+				code.retarget(instruction, destination(instruction));
+			} else if (pushed > 0 && next != null && next.opcode == (pushed == 1 ? Opcodes.POP : Opcodes.POP2)
+					&& !code.isTarget(next)) {
+				code.replace(i, 2);
+			} else {
+				continue;
+			}
+			changed = true;
+			i--;
+		}
+		return changed;
+	}
+}
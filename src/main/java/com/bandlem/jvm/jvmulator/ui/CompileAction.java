@@ -1,15 +1,19 @@
 package com.bandlem.jvm.jvmulator.ui;
 import java.awt.event.ActionEvent;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.nio.file.Paths;
 import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
-import javax.tools.Diagnostic;
-import javax.tools.JavaFileObject;
-import com.bandlem.jvm.jvmulator.compiler.JavaC;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache.Result;
+import com.bandlem.jvm.jvmulator.compiler.InMemoryClassLoader;
 import com.bandlem.jvm.jvmulator.compiler.SourceFile;
 class CompileAction extends AbstractAction {
+	static final String EXAMPLE = "Example";
+	private static final CompileCache CACHE = newCache(System.getProperty("jvmulator.compile.cache"));
 	private static final long serialVersionUID = 1L;
+	private static CompileCache newCache(final String directory) {
+		return new CompileCache(directory == null ? null : Paths.get(directory));
+	}
 	private final GUI gui;
 	CompileAction(final GUI gui) {
 		super("Compile");
@@ -18,20 +22,19 @@ class CompileAction extends AbstractAction {
 	@Override
 	public void actionPerformed(final ActionEvent event) {
 		gui.clearMethods();
-		final JavaC compiler = new JavaC();
-		final boolean success = compiler.compile(new SourceFile("Example", gui.getSource()));
-		final List<Diagnostic<? extends JavaFileObject>> diagnostics = compiler.getDiagnostics();
-		if (!success || !diagnostics.isEmpty()) {
-			final List<String> messages = diagnostics.stream().map(Object::toString).collect(Collectors.toList());
-			JOptionPane.showMessageDialog(gui, String.join("\n", messages), "Compiler Error",
+		final Result result = CACHE.compile(new SourceFile(EXAMPLE, gui.getSource()));
+		if (!result.success || !result.diagnostics.isEmpty()) {
+			JOptionPane.showMessageDialog(gui, String.join("\n", result.diagnostics), "Compiler Error",
 					JOptionPane.ERROR_MESSAGE);
 		} else {
 			try {
-				final Class<?> exampleClass = compiler.newClassLoader().loadClass("Example");
+				// The loader is kept so that emulation parses the same class bytes once, through getJavaClass
+				final InMemoryClassLoader classLoader = result.newClassLoader();
+				final Class<?> exampleClass = classLoader.loadClass(EXAMPLE);
 				for (final var method : exampleClass.getMethods()) {
 					gui.addMethod(method);
 				}
-				gui.setClassBytes(compiler.getBytes("Example"));
+				gui.setClassLoader(classLoader);
 			} catch (final ClassNotFoundException e) {
 				JOptionPane.showMessageDialog(gui, "Unable to load class", "Compiler Error", JOptionPane.ERROR_MESSAGE);
 			}
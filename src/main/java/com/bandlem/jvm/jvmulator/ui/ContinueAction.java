@@ -0,0 +1,15 @@
+package com.bandlem.jvm.jvmulator.ui;
+import java.awt.event.ActionEvent;
+import javax.swing.AbstractAction;
+class ContinueAction extends AbstractAction {
+	private static final long serialVersionUID = 1L;
+	private final JVMulator jvmulator;
+	ContinueAction(final JVMulator jvmulator) {
+		super("Continue");
+		this.jvmulator = jvmulator;
+	}
+	@Override
+	public void actionPerformed(final ActionEvent event) {
+		jvmulator.run(-1);
+	}
+}
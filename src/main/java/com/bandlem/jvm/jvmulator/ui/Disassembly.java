@@ -0,0 +1,63 @@
+package com.bandlem.jvm.jvmulator.ui;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.AbstractListModel;
+import com.bandlem.jvm.jvmulator.Opcodes;
+class Disassembly extends AbstractListModel<String> {
+	private static final long serialVersionUID = 1L;
+	// Read by the background runner while the EDT toggles them
+	private final Set<Integer> breakpoints = ConcurrentHashMap.newKeySet();
+	private int current = -1;
+	private final String[] lines;
+	private final int[] offsets;
+	Disassembly(final byte[] code) {
+		int count = 0;
+		for (int pc = 0; pc < code.length; pc += Opcodes.length(code, pc)) {
+			count++;
+		}
+		lines = new String[count];
+		offsets = new int[count];
+		int line = 0;
+		for (int pc = 0; pc < code.length; pc += Opcodes.length(code, pc)) {
+			offsets[line] = pc;
+			lines[line++] = String.format("%3d: %2x %s", pc, code[pc], Opcodes.name(code[pc]));
+		}
+	}
+	@Override
+	public String getElementAt(final int index) {
+		return (breakpoints.contains(offsets[index]) ? "*" : " ") + (index == current ? "=> " : "   ")
+				+ lines[index];
+	}
+	@Override
+	public int getSize() {
+		return lines.length;
+	}
+	boolean isBreakpoint(final int pc) {
+		return breakpoints.contains(pc);
+	}
+	int indexOf(final int pc) {
+		return Arrays.binarySearch(offsets, pc);
+	}
+	int offsetAt(final int index) {
+		return offsets[index];
+	}
+	// Only the rows gaining and losing the marker are repainted
+	int setCurrent(final int pc) {
+		final int previous = current;
+		current = indexOf(pc);
+		if (previous >= 0) {
+			fireContentsChanged(this, previous, previous);
+		}
+		if (current >= 0) {
+			fireContentsChanged(this, current, current);
+		}
+		return current;
+	}
+	void toggleBreakpoint(final int index) {
+		if (!breakpoints.remove(offsets[index])) {
+			breakpoints.add(offsets[index]);
+		}
+		fireContentsChanged(this, index, index);
+	}
+}
@@ -1,7 +1,5 @@
 package com.bandlem.jvm.jvmulator.ui;
 import java.awt.event.ActionEvent;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import javax.swing.AbstractAction;
 import javax.swing.JFrame;
 import com.bandlem.jvm.jvmulator.classfile.JavaClass;
@@ -15,7 +13,7 @@ class EmulateAction extends AbstractAction {
 	}
 	@Override
 	public void actionPerformed(final ActionEvent e) {
-		final JavaClass javaClass = new JavaClass(new DataInputStream(new ByteArrayInputStream(gui.getClassBytes())));
+		final JavaClass javaClass = gui.getClassLoader().getJavaClass(CompileAction.EXAMPLE);
 		final JVMulator jvmulator = new JVMulator(javaClass);
 		final JFrame jvmulatorFrame = new JFrame("JVMulator");
 		jvmulatorFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
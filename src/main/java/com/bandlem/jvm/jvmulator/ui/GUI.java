@@ -13,6 +13,7 @@ import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
+import com.bandlem.jvm.jvmulator.compiler.InMemoryClassLoader;
 public class GUI extends JPanel {
 	private static final long serialVersionUID = 1L;
 	static GridBagConstraints constraints(final int x, final int y) {
@@ -27,7 +28,7 @@ public class GUI extends JPanel {
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.setVisible(true);
 	}
-	private byte[] classBytes;
+	private InMemoryClassLoader classLoader;
 	private final Action compile = new CompileAction(this);
 	private final JTextArea console = new JTextArea("", 100, 100);
 	private final Action emulate = new EmulateAction(this);
@@ -70,8 +71,8 @@ public class GUI extends JPanel {
 		methods.setEnabled(enabled);
 		emulate.setEnabled(enabled);
 	}
-	public byte[] getClassBytes() {
-		return classBytes;
+	public InMemoryClassLoader getClassLoader() {
+		return classLoader;
 	}
 	private String getExample() {
 		return "public class Example {\n" //
@@ -104,8 +105,8 @@ public class GUI extends JPanel {
 		final Class<?>[] types = method.getParameterTypes();
 		return getValues(method.getName(), types);
 	}
-	public void setClassBytes(final byte[] bytes) {
-		this.classBytes = bytes;
+	public void setClassLoader(final InMemoryClassLoader classLoader) {
+		this.classLoader = classLoader;
 	}
 	private Object toObject(final Class<?> type, final String value) {
 		if (type == Integer.TYPE || type == Integer.class //
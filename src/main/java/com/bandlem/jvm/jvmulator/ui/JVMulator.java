@@ -2,82 +2,164 @@ package com.bandlem.jvm.jvmulator.ui;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.GridBagLayout;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.swing.Action;
 import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
 import javax.swing.JButton;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
 import com.bandlem.jvm.jvmulator.JVMFrame;
-import com.bandlem.jvm.jvmulator.Opcodes;
 import com.bandlem.jvm.jvmulator.Slot;
 import com.bandlem.jvm.jvmulator.Stack;
 import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
 import com.bandlem.jvm.jvmulator.classfile.JavaClass;
 import com.bandlem.jvm.jvmulator.classfile.Member.Method;
 public class JVMulator extends JPanel {
+	// Runs the frame off the EDT until it returns, reaches the target or hits a breakpoint
+	private class Runner extends SwingWorker<Boolean, Snapshot> {
+		private final int target;
+		Runner(final int target) {
+			this.target = target;
+		}
+		@Override
+		protected Boolean doInBackground() {
+			long refresh = System.nanoTime() + REFRESH_NANOS;
+			while (frame.step()) {
+				final int at = frame.getPC();
+				if (at == target || disassembly.isBreakpoint(at)) {
+					return true;
+				}
+				if (System.nanoTime() >= refresh) {
+					publish(new Snapshot(frame));
+					refresh = System.nanoTime() + REFRESH_NANOS;
+				}
+			}
+			return false;
+		}
+		@Override
+		protected void done() {
+			runner = null;
+			enableActions(true);
+			try {
+				if (get()) {
+					pc = frame.getPC();
+					display(new Snapshot(frame));
+				} else {
+					returned();
+				}
+			} catch (final InterruptedException | ExecutionException e) {
+				pc = -1;
+				JOptionPane.showMessageDialog(null, String.valueOf(e.getCause()), "Runtime Error",
+						JOptionPane.ERROR_MESSAGE);
+			}
+		}
+		@Override
+		protected void process(final List<Snapshot> snapshots) {
+			display(snapshots.get(snapshots.size() - 1));
+		}
+	}
+	// Copies the frame state on the worker, so the EDT never reads a frame that is still running
+	private static class Snapshot {
+		final Slot[] locals;
+		final int pc;
+		final Slot[] stack;
+		Snapshot(final JVMFrame frame) {
+			final Stack s = frame.getStack();
+			locals = frame.getLocals().clone();
+			pc = frame.getPC();
+			stack = new Slot[s.size()];
+			for (int i = 0; i < stack.length; i++) {
+				stack[i] = s.at(i);
+			}
+		}
+	}
+	private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 	private static final long serialVersionUID = 1L;
-	private final JTextArea bytecode = new JTextArea("", 100, 100);
-	private byte[] code;
+	// Rows are only replaced when their text changes, so a step repaints what it touched
+	private static void update(final DefaultListModel<String> model, final Slot[] slots) {
+		final int size = slots.length;
+		for (int i = 0; i < size; i++) {
+			final String row = String.format("[%02d] %s", i, slots[i]);
+			if (i >= model.size()) {
+				model.addElement(row);
+			} else if (!row.equals(model.get(i))) {
+				model.set(i, row);
+			}
+		}
+		if (model.size() > size) {
+			model.removeRange(size, model.size() - 1);
+		}
+	}
+	private final JList<String> bytecode = new JList<>();
+	private final Action continueAction = new ContinueAction(this);
+	private Disassembly disassembly;
 	private JVMFrame frame;
 	private final JavaClass javaClass;
-	private final JTextArea locals = new JTextArea("", 100, 100);
+	private final DefaultListModel<String> locals = new DefaultListModel<>();
+	private final JList<String> localsList = new JList<>(locals);
 	private int pc;
-	private final JTextArea stack = new JTextArea("", 100, 100);
+	private Runner runner;
+	private final Action runToCursor = new RunToCursorAction(this);
+	private final DefaultListModel<String> stack = new DefaultListModel<>();
+	private final JList<String> stackList = new JList<>(stack);
+	private final Action step = new StepAction(this);
 	public JVMulator(final JavaClass javaClass) {
 		this.javaClass = javaClass;
 		final Font monospaced = new Font(Font.MONOSPACED, Font.PLAIN, 24);
 		if (monospaced != null) {
 			bytecode.setFont(monospaced);
-			locals.setFont(monospaced);
-			stack.setFont(monospaced);
+			localsList.setFont(monospaced);
+			stackList.setFont(monospaced);
 		}
-		bytecode.setEditable(false);
-		locals.setEditable(false);
-		stack.setEditable(false);
+		bytecode.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 		bytecode.setBorder(BorderFactory.createTitledBorder("Bytecode"));
-		locals.setBorder(BorderFactory.createTitledBorder("Locals"));
-		stack.setBorder(BorderFactory.createTitledBorder("Stack"));
+		localsList.setBorder(BorderFactory.createTitledBorder("Locals"));
+		stackList.setBorder(BorderFactory.createTitledBorder("Stack"));
 		setLayout(new GridBagLayout());
 		add(bytecode, GUI.constraints(0, 0));
-		add(locals, GUI.constraints(1, 0));
-		add(stack, GUI.constraints(2, 0));
+		add(localsList, GUI.constraints(1, 0));
+		add(stackList, GUI.constraints(2, 0));
 		final Dimension minimumSize = new Dimension(400, 400);
 		bytecode.setMinimumSize(minimumSize);
-		locals.setMinimumSize(minimumSize);
-		stack.setMinimumSize(minimumSize);
-		add(new JButton(new StepAction(this)), GUI.constraints(0, 1));
-	}
-	private void displayCode() {
-		final StringBuilder builder = new StringBuilder(code.length * 10);
-		int i = 0;
-		while (i < code.length) {
-			final byte opcode = code[i];
-			builder.append(String.format("%3s%3d: %2x %s\n", pc == i ? "=>" : "", i, opcode, Opcodes.name(opcode)));
-			i++;
-			final int operands = Opcodes.operands(opcode);
-			if (operands < 0) {
-				throw new UnsupportedOperationException("Unknown opcode " + opcode);
-			} else {
-				i += operands;
+		localsList.setMinimumSize(minimumSize);
+		stackList.setMinimumSize(minimumSize);
+		add(new JButton(step), GUI.constraints(0, 1));
+		add(new JButton(continueAction), GUI.constraints(1, 1));
+		add(new JButton(runToCursor), GUI.constraints(2, 1));
+		bytecode.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(final MouseEvent event) {
+				final int index = bytecode.locationToIndex(event.getPoint());
+				if (event.getClickCount() == 2 && index >= 0) {
+					disassembly.toggleBreakpoint(index);
+				}
 			}
-		}
-		bytecode.setText(builder.toString());
+		});
 	}
-	private void displayLocals() {
-		final Slot[] l = frame.getLocals();
-		final StringBuilder builder = new StringBuilder(l.length * 10);
-		for (int s = 0; s < l.length; s++) {
-			builder.append(String.format("[%02d] %s\n", s, l[s].toString()));
+	private void display(final Snapshot snapshot) {
+		final int index = disassembly.setCurrent(snapshot.pc);
+		if (index >= 0) {
+			bytecode.ensureIndexIsVisible(index);
 		}
-		locals.setText(builder.toString());
+		update(locals, snapshot.locals);
+		update(stack, snapshot.stack);
 	}
-	private void displayStack() {
-		final Stack s = frame.getStack();
-		final StringBuilder builder = new StringBuilder(s.size() * 10);
-		for (int ss = 0; ss < s.size(); ss++) {
-			builder.append(String.format("[%02d] %s\n", ss, s.at(ss).toString()));
-		}
-		stack.setText(builder.toString());
+	private void enableActions(final boolean enabled) {
+		step.setEnabled(enabled);
+		continueAction.setEnabled(enabled);
+		runToCursor.setEnabled(enabled);
+	}
+	int getSelectedOffset() {
+		final int index = bytecode.getSelectedIndex();
+		return index < 0 ? -1 : disassembly.offsetAt(index);
 	}
 	private String[] getValues(final String methodName, final Class<?>[] types) {
 		final String[] values = new String[types.length];
@@ -92,15 +174,16 @@ public class JVMulator extends JPanel {
 	public void setName(final String name) {
 		final Method method = javaClass.getMethod(name);
 		if (method == null) {
-			code = new byte[0];
+			disassembly = new Disassembly(new byte[0]);
+			bytecode.setModel(disassembly);
 		} else {
 			final Code codeAttribute = method.getCodeAttribute();
-			code = codeAttribute.getBytecode();
-			frame = new JVMFrame(javaClass, codeAttribute.getMaxLocals(), code);
+			// Disassembled once per method; stepping only moves the current marker
+			disassembly = new Disassembly(codeAttribute.getBytecode());
+			bytecode.setModel(disassembly);
+			frame = new JVMFrame(javaClass, method);
 			getArguments(name, method);
-			displayCode();
-			displayLocals();
-			displayStack();
+			display(new Snapshot(frame));
 		}
 	}
 	private void getArguments(final String name, final Method method) {
@@ -111,16 +194,28 @@ public class JVMulator extends JPanel {
 			l[l.length - i - 1] = toSlot(types[i], values[i]);
 		}
 	}
+	private void returned() {
+		pc = -1;
+		JOptionPane.showMessageDialog(null, "Return value: " + frame.getReturnValue(), "Returned",
+				JOptionPane.INFORMATION_MESSAGE);
+	}
+	// Executes at full speed until the frame returns, reaches the target pc or a breakpoint; -1 has no target
+	void run(final int target) {
+		if (runner == null && pc >= 0 && frame != null) {
+			enableActions(false);
+			runner = new Runner(target);
+			runner.execute();
+		}
+	}
 	public void step() {
+		if (runner != null) {
+			return;
+		}
 		if (pc >= 0 && frame.step()) {
 			pc = frame.getPC();
-			displayCode();
-			displayLocals();
-			displayStack();
+			display(new Snapshot(frame));
 		} else {
-			pc = -1;
-			JOptionPane.showMessageDialog(null, "Return value: " + frame.getReturnValue(), "Returned",
-					JOptionPane.INFORMATION_MESSAGE);
+			returned();
 		}
 	}
 	private Slot toSlot(final Class<?> type, final String value) {
@@ -1,31 +1,119 @@
 package com.bandlem.jvm.jvmulator.ui;
-import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
 public class OutTextArea extends PrintStream {
+	private static final int FLUSH_MILLIS = 50;
+	private static final int MAX_LINES = 1000;
+	private static final int MAX_PENDING = 64 * 1024;
 	private final JTextArea console;
+	private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final int maxLines;
+	// Ring buffer of bytes not yet drained; the oldest are dropped once it is full
+	private final byte[] pending = new byte[MAX_PENDING];
+	private int pendingCount;
+	private int pendingStart;
+	// Trailing bytes of a character split across two flushes
+	private byte[] remainder = new byte[0];
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Timer timer;
 	public OutTextArea(final JTextArea console, final PrintStream wrapped) {
+		this(console, wrapped, MAX_LINES);
+	}
+	public OutTextArea(final JTextArea console, final PrintStream wrapped, final int maxLines) {
 		super(wrapped);
 		this.console = console;
+		this.maxLines = maxLines;
+		timer = new Timer(FLUSH_MILLIS, event -> drain());
+		timer.setRepeats(false);
 	}
-	@Override
-	public void write(final byte[] bytes) throws IOException {
-		console.append(new String(bytes));
+	// Runs on the event dispatch thread, at most once per FLUSH_MILLIS however often the program prints
+	private void drain() {
+		scheduled.set(false);
+		final byte[] bytes;
+		synchronized (pending) {
+			bytes = new byte[pendingCount];
+			final int first = Math.min(pendingCount, pending.length - pendingStart);
+			System.arraycopy(pending, pendingStart, bytes, 0, first);
+			System.arraycopy(pending, 0, bytes, first, pendingCount - first);
+			pendingStart = 0;
+			pendingCount = 0;
+		}
+		final ByteBuffer input = ByteBuffer.allocate(remainder.length + bytes.length).put(remainder).put(bytes).flip();
+		final CharBuffer output = CharBuffer.allocate((int) (input.remaining() * decoder.maxCharsPerByte()) + 1);
+		decoder.decode(input, output, false);
+		remainder = new byte[input.remaining()];
+		input.get(remainder);
+		console.append(lastLines(output.flip().toString()));
+		trim();
 		console.setVisible(true);
-		super.write(bytes);
+	}
+	// Caller holds the lock on pending and has made room for length bytes
+	private void enqueue(final byte[] bytes, final int offset, final int length) {
+		final int end = (pendingStart + pendingCount) % pending.length;
+		final int first = Math.min(length, pending.length - end);
+		System.arraycopy(bytes, offset, pending, end, first);
+		System.arraycopy(bytes, offset + first, pending, 0, length - first);
+		pendingCount += length;
+	}
+	private void free(final int length) {
+		final int drop = pendingCount + length - pending.length;
+		if (drop > 0) {
+			pendingStart = (pendingStart + drop) % pending.length;
+			pendingCount -= drop;
+		}
+	}
+	private String lastLines(final String text) {
+		int start = text.length();
+		for (int lines = 0; lines < maxLines && start > 0; lines++) {
+			start = text.lastIndexOf('\n', start - 1);
+			if (start < 0) {
+				return text;
+			}
+		}
+		return start == text.length() ? text : text.substring(start + 1);
+	}
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(timer::restart);
+		}
+	}
+	private void trim() {
+		final int excess = console.getLineCount() - maxLines;
+		if (excess > 0) {
+			try {
+				console.getDocument().remove(0, console.getLineStartOffset(excess));
+			} catch (final BadLocationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
 	}
 	@Override
 	public void write(final byte[] bytes, final int offset, final int length) {
-		console.append(new String(bytes, offset, length));
-		console.setVisible(true);
+		final int kept = Math.min(length, pending.length);
+		synchronized (pending) {
+			free(kept);
+			enqueue(bytes, offset + length - kept, kept);
+		}
+		schedule();
 		super.write(bytes, offset, length);
 	}
 	@Override
 	public void write(final int b) {
-		console.append(new String(new byte[] {
-				(byte) b
-		}));
-		console.setVisible(true);
+		synchronized (pending) {
+			free(1);
+			pending[(pendingStart + pendingCount++) % pending.length] = (byte) b;
+		}
+		schedule();
 		super.write(b);
 	}
 }
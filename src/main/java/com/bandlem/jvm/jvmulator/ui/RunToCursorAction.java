@@ -0,0 +1,15 @@
+package com.bandlem.jvm.jvmulator.ui;
+import java.awt.event.ActionEvent;
+import javax.swing.AbstractAction;
+class RunToCursorAction extends AbstractAction {
+	private static final long serialVersionUID = 1L;
+	private final JVMulator jvmulator;
+	RunToCursorAction(final JVMulator jvmulator) {
+		super("Run to Cursor");
+		this.jvmulator = jvmulator;
+	}
+	@Override
+	public void actionPerformed(final ActionEvent event) {
+		jvmulator.run(jvmulator.getSelectedOffset());
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+class AllocationFrameTest {
+	@Test
+	void testArray() {
+		final Allocations allocations = new Allocations();
+		final AllocationFrame frame = new AllocationFrame(null, 0, new byte[] {
+				BIPUSH, 0x7f, NEWARRAY, 'I', POP, NOP, RETURN
+		}, allocations, "array()V");
+		frame.step();
+		frame.step();
+		assertTrue(frame.getBytes()[NEWARRAY & 0xff] >= 127 * Integer.BYTES);
+		frame.run();
+		assertEquals(0, frame.getBytes()[NEWARRAY & 0xff]);
+		assertEquals(5, allocations.instructions());
+		final Map<String, Long> opcodes = allocations.opcodes();
+		assertTrue(opcodes.get("newarray") >= 127 * Integer.BYTES * 1_000_000L);
+		assertEquals(0, opcodes.get("nop"));
+		assertTrue(allocations.methods().get("array()V") >= 127 * Integer.BYTES * 1_000_000L / 5);
+	}
+	@Test
+	void testMethod() {
+		final Allocations allocations = new Allocations();
+		final Code code = new Code((short) 2, (short) 0, new byte[] {
+				ICONST_1, ICONST_1, IADD, IRETURN
+		}, new ExceptionTable(), new Attribute[0]);
+		final AllocationFrame frame = new AllocationFrame(null,
+				new Member.Method((short) 0, "two", "()I", new Attribute[] {
+						code
+				}), allocations);
+		assertEquals("two()I", frame.method);
+		assertEquals(2, frame.run().intValue());
+		assertEquals(4, allocations.instructions());
+		assertTrue(allocations.bytes() > 0);
+		assertTrue(allocations.methods().containsKey("two()I"));
+	}
+	@Test
+	void testUnknown() {
+		final Allocations allocations = new Allocations();
+		final AllocationFrame frame = new AllocationFrame(null, 0, new byte[] {
+				NOP, (byte) 0xcb
+		}, allocations, "unknown()V");
+		assertThrows(RuntimeException.class, frame::run);
+		assertEquals(2, allocations.instructions());
+		assertTrue(allocations.opcodes().containsKey("0xcb"));
+	}
+}
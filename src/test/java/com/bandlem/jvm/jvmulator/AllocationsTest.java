@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+class AllocationsTest {
+	@Test
+	void testEmpty() {
+		final Allocations allocations = new Allocations();
+		assertEquals(0, allocations.bytes());
+		assertEquals(0, allocations.bytesPerMillion());
+		assertEquals(0, allocations.instructions());
+		assertTrue(allocations.methods().isEmpty());
+		assertTrue(allocations.opcodes().isEmpty());
+	}
+	@Test
+	void testMeasure() {
+		final Allocations allocations = new Allocations();
+		final long start = allocations.allocated();
+		final long[] array = new long[1000];
+		assertTrue(allocations.since(start) >= array.length * Long.BYTES);
+		assertEquals(0, allocations.since(allocations.allocated()));
+	}
+	@Test
+	void testTotals() {
+		final Allocations allocations = new Allocations();
+		final long[] counts = new long[256];
+		final long[] bytes = new long[256];
+		counts[Opcodes.NOP & 0xff] = 3;
+		counts[Opcodes.ICONST_1 & 0xff] = 1;
+		bytes[Opcodes.ICONST_1 & 0xff] = 16;
+		allocations.add("one()I", counts, bytes);
+		counts[Opcodes.NOP & 0xff] = 0;
+		bytes[Opcodes.ICONST_1 & 0xff] = 32;
+		allocations.add("two()I", counts, bytes);
+		allocations.add(null, counts, bytes);
+		assertEquals(80, allocations.bytes());
+		assertEquals(6, allocations.instructions());
+		assertEquals(80_000_000 / 6, allocations.bytesPerMillion());
+		final Map<String, Long> opcodes = allocations.opcodes();
+		assertEquals(List.of("iconst_1", "nop"), List.copyOf(opcodes.keySet()));
+		assertEquals(80_000_000 / 3, opcodes.get("iconst_1"));
+		assertEquals(0, opcodes.get("nop"));
+		final Map<String, Long> methods = allocations.methods();
+		assertEquals(List.of("null", "two()I", "one()I"), List.copyOf(methods.keySet()));
+		assertEquals(4_000_000, methods.get("one()I"));
+		assertEquals(32_000_000, methods.get("two()I"));
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+class EmulatorMetricsTest {
+	@Test
+	void testCounters() {
+		final EmulatorMetrics metrics = new EmulatorMetrics();
+		metrics.fieldAccesses.add(3);
+		metrics.invocations.increment();
+		assertEquals(3, metrics.getFieldAccesses());
+		assertEquals(1, metrics.getInvocations());
+		assertEquals(0, metrics.getFramesCreated());
+		assertEquals(0, metrics.getInstructionsExecuted());
+	}
+	@Test
+	void testGlobal() {
+		final EmulatorMetrics metrics = EmulatorMetrics.global();
+		assertSame(metrics, EmulatorMetrics.global());
+		final long frames = metrics.getFramesCreated();
+		final long instructions = metrics.getInstructionsExecuted();
+		assertEquals(3, new JVMFrame(null, 0, new byte[] {
+				Opcodes.ICONST_1, Opcodes.ICONST_2, Opcodes.IADD, Opcodes.IRETURN
+		}).run().intValue());
+		assertEquals(frames + 1, metrics.getFramesCreated());
+		assertEquals(instructions + 4, metrics.getInstructionsExecuted());
+	}
+}
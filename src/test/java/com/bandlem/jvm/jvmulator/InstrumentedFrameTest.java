@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+class InstrumentedFrameTest {
+	@Test
+	void testCounts() {
+		final OpcodeCounters counters = new OpcodeCounters();
+		final InstrumentedFrame frame = new InstrumentedFrame(null, 1, new byte[] {
+				ICONST_1, ISTORE_0, ILOAD_0, ILOAD_0, IADD, IRETURN
+		}, counters);
+		assertEquals(2, frame.run().intValue());
+		assertEquals(0, frame.getCounts()[ILOAD_0 & 0xff]);
+		assertEquals(2, counters.count(ILOAD_0));
+		assertEquals(1, counters.count(IRETURN));
+		assertEquals(6L, counters.histogram().values().stream().mapToLong(Long::longValue).sum());
+	}
+	@Test
+	void testFlush() {
+		final OpcodeCounters counters = new OpcodeCounters();
+		final Code code = new Code((short) 2, (short) 0, new byte[] {
+				ICONST_1, ICONST_1, IADD, IRETURN
+		}, new ExceptionTable(), new Attribute[0]);
+		final InstrumentedFrame frame = new InstrumentedFrame(null,
+				new Member.Method((short) 0, "two", "()I", new Attribute[] {
+						code
+				}), counters);
+		frame.step();
+		frame.step();
+		assertEquals(2, frame.getCounts()[ICONST_1 & 0xff]);
+		assertEquals(0, counters.count(ICONST_1));
+		frame.flush();
+		assertEquals(2, counters.count(ICONST_1));
+		assertEquals(0, frame.getCounts()[ICONST_1 & 0xff]);
+		assertEquals(2, frame.run().intValue());
+		assertEquals(1, counters.count(IADD));
+	}
+	@Test
+	void testUnknown() {
+		final OpcodeCounters counters = new OpcodeCounters();
+		final InstrumentedFrame frame = new InstrumentedFrame(null, 0, new byte[] {
+				NOP, (byte) 0xcb
+		}, counters);
+		assertThrows(RuntimeException.class, frame::run);
+		assertEquals(1, counters.histogram().get("0xcb"));
+		assertEquals(1, counters.count(NOP));
+	}
+}
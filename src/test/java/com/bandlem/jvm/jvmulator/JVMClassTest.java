@@ -8,7 +8,9 @@
  */
 package com.bandlem.jvm.jvmulator;
 import static com.bandlem.jvm.jvmulator.Opcodes.ACONST_NULL;
+import static com.bandlem.jvm.jvmulator.Opcodes.ALOAD_0;
 import static com.bandlem.jvm.jvmulator.Opcodes.ARETURN;
+import static com.bandlem.jvm.jvmulator.Opcodes.CHECKCAST;
 import static com.bandlem.jvm.jvmulator.Opcodes.DCONST_1;
 import static com.bandlem.jvm.jvmulator.Opcodes.DRETURN;
 import static com.bandlem.jvm.jvmulator.Opcodes.FCONST_1;
@@ -30,14 +32,27 @@ import static com.bandlem.jvm.jvmulator.Opcodes.PUTSTATIC;
 import static com.bandlem.jvm.jvmulator.Opcodes.RETURN;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import com.bandlem.jvm.jvmulator.classfile.ClassRepository;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.ClassConstant;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.DoubleConstant;
@@ -50,6 +65,8 @@ import com.bandlem.jvm.jvmulator.classfile.ConstantPool.MethodRef;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.NameAndType;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.UTFConstant;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
 import com.bandlem.jvm.jvmulator.classfile.JavaClass;
 class JVMClassTest {
 	static class Sample {
@@ -246,6 +263,23 @@ class JVMClassTest {
 		assertThrows(IndexOutOfBoundsException.class, frame.stack::peek);
 	}
 	@Test
+	void testCheckCast() {
+		expect(Sample.ss, javaClass, 0, null, new byte[] {
+				LDC, constant_email, CHECKCAST, 0x00, constant_object, ARETURN
+		});
+		expect((Object) null, javaClass, 0, null, new byte[] {
+				ACONST_NULL, CHECKCAST, 0x00, constant_system, ARETURN
+		});
+		final JVMException thrown = assertThrows(JVMException.class, new JVMFrame(javaClass, 0, new byte[] {
+				LDC, constant_email, CHECKCAST, 0x00, constant_system, ARETURN
+		})::run);
+		assertTrue(thrown.getCause() instanceof ClassCastException);
+		final ExceptionTable table = new ExceptionTable(new Handler(0, 5, 6, "java/lang/ClassCastException"));
+		assertTrue(new JVMFrame(javaClass, 0, new byte[] {
+				LDC, constant_email, CHECKCAST, 0x00, constant_system, ARETURN, ARETURN
+		}, table).run().referenceValue() instanceof ClassCastException);
+	}
+	@Test
 	void testClassData() {
 		new Sample().reset();
 		assertEquals("alex.blewitt@gmail.com", pool.getString(constant_email_utf));
@@ -275,6 +309,50 @@ class JVMClassTest {
 		});
 	}
 	@Test
+	void testEvents(@TempDir final Path temp) throws IOException {
+		final Sample sample = new Sample();
+		final Path file = temp.resolve("events.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(FieldEvent.class).withoutThreshold();
+			recording.enable(FrameEvent.class).withoutThreshold();
+			recording.enable(InvokeEvent.class).withoutThreshold();
+			recording.start();
+			assertEquals(3.141f, new JVMFrame(javaClass, javaClass.getMethod("floaty")).run().floatValue());
+			final JVMFrame frame = new JVMFrame(javaClass, 1, new byte[] {
+					ALOAD_0, ALOAD_0, GETFIELD, 0x00, constant_field_i, PUTFIELD, 0x00, constant_field_i,
+					INVOKESTATIC, 0x00, constant_random, DRETURN
+			});
+			frame.getLocals()[0] = Slot.of(sample);
+			assertNotNull(frame.run());
+			recording.stop();
+			recording.dump(file);
+		}
+		// Events from one thread are written in the order they were committed
+		final Map<String, List<RecordedEvent>> events = new HashMap<>();
+		for (final RecordedEvent event : RecordingFile.readAllEvents(file)) {
+			events.computeIfAbsent(event.getEventType().getName(), name -> new ArrayList<>()).add(event);
+		}
+		final List<RecordedEvent> fields = events.get("com.bandlem.jvm.jvmulator.Field");
+		assertEquals(2, fields.size());
+		assertEquals(javaClass.this_class, fields.get(0).getString("className"));
+		assertEquals("i", fields.get(0).getString("field"));
+		assertEquals("I", fields.get(0).getString("descriptor"));
+		assertFalse(fields.get(0).getBoolean("write"));
+		assertEquals("i", fields.get(1).getString("field"));
+		assertTrue(fields.get(1).getBoolean("write"));
+		final List<RecordedEvent> invokes = events.get("com.bandlem.jvm.jvmulator.Invoke");
+		assertEquals(1, invokes.size());
+		assertEquals("random", invokes.get(0).getString("method"));
+		assertEquals("()D", invokes.get(0).getString("descriptor"));
+		final List<RecordedEvent> frames = events.get("com.bandlem.jvm.jvmulator.Frame");
+		assertEquals(2, frames.size());
+		assertEquals(javaClass.this_class, frames.get(0).getString("className"));
+		assertEquals("floaty()F", frames.get(0).getString("method"));
+		assertEquals(2, frames.get(0).getLong("instructions"));
+		assertNull(frames.get(1).getString("method"));
+		assertEquals(6, frames.get(1).getLong("instructions"));
+	}
+	@Test
 	void testFields() {
 		final Sample original = new Sample();
 		original.reset();
@@ -423,6 +501,54 @@ class JVMClassTest {
 		frame.stack.push(123);
 		final Slot negatedSlot = frame.invoke("negateExact", "(I)I", Math.class.getName(), classLoader);
 		assertEquals(-123, negatedSlot.intValue());
+		frame.stack.push("NaN");
+		final JVMException thrown = assertThrows(JVMException.class,
+				() -> frame.invoke("parseInt", "(Ljava/lang/String;)I", Integer.class.getName(), classLoader));
+		assertTrue(thrown.getCause() instanceof NumberFormatException);
+		frame.stack.push((Object) null);
+		final JVMException npe = assertThrows(JVMException.class,
+				() -> frame.invoke("length", "()I", String.class.getName(), classLoader));
+		assertTrue(npe.getCause() instanceof NullPointerException);
+	}
+	@Test
+	void testMethodFrame() {
+		assertEquals(3.141f, new JVMFrame(javaClass, javaClass.getMethod("floaty")).run().floatValue());
+	}
+	@Test
+	void testPinnedFrame(@TempDir final Path temp) throws IOException {
+		final String name = Sample.class.getName().replace('.', '/');
+		final Path file = temp.resolve("classes/" + name + ".class");
+		Files.createDirectories(file.getParent());
+		try (InputStream in = Sample.class.getResourceAsStream("/" + name + ".class")) {
+			Files.copy(in, file);
+		}
+		try (ClassRepository repository = new ClassRepository(null, 0)) {
+			repository.add(temp.resolve("classes"));
+			assertEquals(0, repository.cache().size());
+			final JavaClass sample = repository.get(name);
+			final JVMFrame frame = new JVMFrame(repository, sample, sample.getMethod("floaty"));
+			assertEquals(1, repository.cache().size());
+			assertEquals(3.141f, frame.run().floatValue());
+			assertEquals(0, repository.cache().size());
+			final JVMFrame stepped = new JVMFrame(repository, sample, sample.getMethod("floaty"));
+			while (stepped.step()) {
+				assertEquals(1, repository.cache().size());
+			}
+			assertEquals(0, repository.cache().size());
+			// An exception leaving the frame unpins the class, whether from the emulated code or the emulator
+			final JVMFrame uncaught = new JVMFrame(repository, sample, sample.getMethod("reset"));
+			uncaught.getLocals()[0] = Slot.of((Object) null);
+			assertThrows(JVMException.class, () -> {
+				while (uncaught.step()) {
+					assertEquals(1, repository.cache().size());
+				}
+			});
+			assertEquals(0, repository.cache().size());
+			final JVMFrame fault = new JVMFrame(repository, sample, sample.getMethod("reset"));
+			assertEquals(1, repository.cache().size());
+			assertThrows(IllegalStateException.class, fault::step);
+			assertEquals(0, repository.cache().size());
+		}
 	}
 	@Test
 	void testPut() {
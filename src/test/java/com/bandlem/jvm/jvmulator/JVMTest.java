@@ -15,9 +15,19 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
 import com.bandlem.jvm.jvmulator.classfile.JavaClass;
 class JVMTest {
+	// Runs the code with a handler covering all but the final instruction, which returns the caught exception
+	private Object caught(final String type, final byte[] code) {
+		final byte[] bytecode = Arrays.copyOf(code, code.length + 1);
+		bytecode[code.length] = ARETURN;
+		final ExceptionTable table = new ExceptionTable(new Handler(0, code.length, code.length, type));
+		return new JVMFrame(null, 0, bytecode, table).run().referenceValue();
+	}
 	private void expect(final Class<? extends Throwable> expected, final JavaClass javaClass, final int locals,
 			final byte[] code) {
 		final JVMFrame frame = new JVMFrame(javaClass, locals, code);
@@ -52,6 +62,10 @@ class JVMTest {
 		assertEquals(slot, frame.getReturnValue());
 		assertThrows(IndexOutOfBoundsException.class, frame.stack::peek);
 	}
+	private void expectThrown(final Class<? extends Throwable> expected, final byte[] code) {
+		final JVMFrame frame = new JVMFrame(null, 0, code);
+		assertEquals(expected, assertThrows(JVMException.class, frame::run).getCause().getClass());
+	}
 	@Test
 	void testArray() {
 		for (final byte b : new byte[] {
@@ -91,13 +105,18 @@ class JVMTest {
 		expect(IllegalStateException.class, null, 0, new byte[] {
 				ICONST_0, NEWARRAY, '?'
 		});
-		expect(IllegalStateException.class, null, 0, new byte[] {
+		expectThrown(NullPointerException.class, new byte[] {
 				ACONST_NULL, ARRAYLENGTH
 		});
-		expect(IllegalStateException.class, null, 0, new byte[] {
+		final JVMFrame string = new JVMFrame(null, 1, new byte[] {
+				ALOAD_0, ARRAYLENGTH, IRETURN
+		});
+		string.getLocals()[0] = Slot.of("string");
+		assertThrows(IllegalStateException.class, string::run);
+		expectThrown(NullPointerException.class, new byte[] {
 				ACONST_NULL, ICONST_0, AALOAD
 		});
-		expect(IllegalStateException.class, null, 0, new byte[] {
+		expectThrown(NullPointerException.class, new byte[] {
 				ACONST_NULL, ICONST_0, ICONST_1, AASTORE
 		});
 		expect(2, null, 0, new byte[] {
@@ -311,6 +330,97 @@ class JVMTest {
 		});
 	}
 	@Test
+	void testExceptions() {
+		final ExceptionTable table = new ExceptionTable(new Handler(0, 3, 3, "java/lang/IllegalStateException"),
+				new Handler(0, 3, 4, "java/lang/ArithmeticException"),
+				new Handler(0, 3, 6, "java/lang/NullPointerException"));
+		final IllegalStateException exception = new IllegalStateException();
+		final JVMFrame caught = new JVMFrame(null, 1, new byte[] {
+				ICONST_1, ALOAD_0, ATHROW, ARETURN, POP, ICONST_M1, IRETURN
+		}, table);
+		caught.getLocals()[0] = Slot.of(exception);
+		assertEquals(exception, caught.run().referenceValue());
+		final JVMFrame divide = new JVMFrame(null, 0, new byte[] {
+				ICONST_0, ICONST_1, IDIV, NOP, POP, ICONST_M1, IRETURN
+		}, table);
+		assertEquals(-1, divide.run().intValue());
+		final JVMFrame nullThrow = new JVMFrame(null, 0, new byte[] {
+				NOP, ACONST_NULL, ATHROW, NOP, NOP, NOP, ARETURN
+		}, table);
+		assertTrue(nullThrow.run().referenceValue() instanceof NullPointerException);
+		final JVMFrame uncaught = new JVMFrame(null, 1, new byte[] {
+				ALOAD_0, ATHROW
+		});
+		uncaught.getLocals()[0] = Slot.of(exception);
+		assertEquals(exception, assertThrows(JVMException.class, uncaught::run).getCause());
+		expectThrown(ArithmeticException.class, new byte[] {
+				ICONST_0, ICONST_1, IDIV, IRETURN
+		});
+		expectThrown(ArithmeticException.class, new byte[] {
+				ICONST_0, ICONST_1, IREM, IRETURN
+		});
+		expectThrown(ArithmeticException.class, new byte[] {
+				LCONST_0, LCONST_1, LDIV, LRETURN
+		});
+		expectThrown(ArithmeticException.class, new byte[] {
+				LCONST_0, LCONST_1, LREM, LRETURN
+		});
+	}
+	@Test
+	void testRuntimeExceptions() {
+		assertTrue(caught("java/lang/ArrayIndexOutOfBoundsException", new byte[] {
+				ICONST_1, NEWARRAY, 'I', ICONST_2, IALOAD, IRETURN
+		}) instanceof ArrayIndexOutOfBoundsException);
+		assertTrue(caught("java/lang/ArrayIndexOutOfBoundsException", new byte[] {
+				ICONST_1, NEWARRAY, 'I', ICONST_M1, ICONST_0, IASTORE, RETURN
+		}) instanceof ArrayIndexOutOfBoundsException);
+		assertTrue(caught("java/lang/NegativeArraySizeException", new byte[] {
+				ICONST_M1, NEWARRAY, 'I', ARETURN
+		}) instanceof NegativeArraySizeException);
+		assertTrue(caught("java/lang/NullPointerException", new byte[] {
+				ACONST_NULL, ICONST_0, IALOAD, IRETURN
+		}) instanceof NullPointerException);
+		assertTrue(caught("java/lang/NullPointerException", new byte[] {
+				ACONST_NULL, ICONST_0, ICONST_1, IASTORE, RETURN
+		}) instanceof NullPointerException);
+		assertTrue(caught("java/lang/NullPointerException", new byte[] {
+				ACONST_NULL, ARRAYLENGTH, IRETURN
+		}) instanceof NullPointerException);
+		assertTrue(caught(null, new byte[] {
+				ACONST_NULL, GETFIELD, 0, 1, IRETURN
+		}) instanceof NullPointerException);
+		assertTrue(caught(null, new byte[] {
+				ACONST_NULL, ICONST_1, PUTFIELD, 0, 1, RETURN
+		}) instanceof NullPointerException);
+		expectThrown(ArrayIndexOutOfBoundsException.class, new byte[] {
+				ICONST_0, NEWARRAY, 'I', ICONST_0, IALOAD, IRETURN
+		});
+		expectThrown(NegativeArraySizeException.class, new byte[] {
+				ICONST_M1, NEWARRAY, 'I', ARETURN
+		});
+		final ExceptionTable any = new ExceptionTable(new Handler(0, 2, 2, null));
+		assertThrows(IllegalStateException.class, new JVMFrame(null, 0, new byte[] {
+				ICONST_0, NEWARRAY, '?', ARETURN
+		}, any)::run);
+		// Faults in the emulator or the bytecode are not visible to the emulated handlers
+		final ExceptionTable all = new ExceptionTable(new Handler(0, 3, 3, null));
+		final IllegalStateException underflow = assertThrows(IllegalStateException.class, new JVMFrame(null, 0,
+				new byte[] {
+						NOP, IADD, IRETURN, ARETURN
+				}, all)::run);
+		assertTrue(underflow.getCause() instanceof IndexOutOfBoundsException);
+		final IllegalStateException overrun = assertThrows(IllegalStateException.class, new JVMFrame(null, 0,
+				new byte[] {
+						ICONST_0, POP
+				}, all)::run);
+		assertTrue(overrun.getCause() instanceof ArrayIndexOutOfBoundsException);
+		final IllegalStateException mismatch = assertThrows(IllegalStateException.class, new JVMFrame(null, 0,
+				new byte[] {
+						FCONST_0, ICONST_1, IADD, IRETURN
+				}, all)::run);
+		assertTrue(mismatch.getCause() instanceof ClassCastException);
+	}
+	@Test
 	void testFloat() {
 		expect(3.0F, null, 0, new byte[] {
 				FCONST_0, FCONST_1, FCONST_2, FADD, FADD, FRETURN
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+class OpcodeCountersTest {
+	@Test
+	void testConcurrent() {
+		final OpcodeCounters counters = new OpcodeCounters();
+		final long[] counts = new long[256];
+		counts[Opcodes.NOP & 0xff] = 1;
+		IntStream.range(0, 1000).parallel().forEach(i -> counters.add(counts));
+		assertEquals(1000, counters.count(Opcodes.NOP));
+	}
+	@Test
+	void testCounters() {
+		final OpcodeCounters counters = new OpcodeCounters();
+		final long[] counts = new long[256];
+		counts[Opcodes.IADD & 0xff] = 2;
+		counts[Opcodes.ICONST_1 & 0xff] = 5;
+		counts[Opcodes.IRETURN & 0xff] = 2;
+		counts[0xcb] = 1;
+		counters.add(counts);
+		counters.add(counts);
+		assertEquals(10, counters.count(Opcodes.ICONST_1));
+		assertEquals(0, counters.count(Opcodes.NOP));
+		final Map<String, Long> histogram = counters.histogram();
+		assertEquals(List.of("iconst_1", "iadd", "ireturn", "0xcb"), List.copyOf(histogram.keySet()));
+		assertEquals(4L, histogram.get("iadd"));
+		counters.reset();
+		assertTrue(counters.histogram().isEmpty());
+	}
+	@Test
+	void testGlobal() {
+		assertSame(OpcodeCounters.global(), OpcodeCounters.global());
+		assertEquals("nop", OpcodeCounters.nameOf(0));
+		assertEquals("0xcb", OpcodeCounters.nameOf(0xcb));
+	}
+}
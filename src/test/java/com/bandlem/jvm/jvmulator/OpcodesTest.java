@@ -25,6 +25,7 @@ import static com.bandlem.jvm.jvmulator.Opcodes.IFGE;
 import static com.bandlem.jvm.jvmulator.Opcodes.IFGT;
 import static com.bandlem.jvm.jvmulator.Opcodes.IFLE;
 import static com.bandlem.jvm.jvmulator.Opcodes.IFLT;
+import static com.bandlem.jvm.jvmulator.Opcodes.IFNE;
 import static com.bandlem.jvm.jvmulator.Opcodes.IFNONNULL;
 import static com.bandlem.jvm.jvmulator.Opcodes.IFNULL;
 import static com.bandlem.jvm.jvmulator.Opcodes.IF_ACMPEQ;
@@ -37,6 +38,7 @@ import static com.bandlem.jvm.jvmulator.Opcodes.IF_ICMPLT;
 import static com.bandlem.jvm.jvmulator.Opcodes.IF_ICMPNE;
 import static com.bandlem.jvm.jvmulator.Opcodes.IINC;
 import static com.bandlem.jvm.jvmulator.Opcodes.ILOAD;
+import static com.bandlem.jvm.jvmulator.Opcodes.IRETURN;
 import static com.bandlem.jvm.jvmulator.Opcodes.INSTANCEOF;
 import static com.bandlem.jvm.jvmulator.Opcodes.INVOKEDYNAMIC;
 import static com.bandlem.jvm.jvmulator.Opcodes.INVOKEINTERFACE;
@@ -55,6 +57,7 @@ import static com.bandlem.jvm.jvmulator.Opcodes.LSTORE;
 import static com.bandlem.jvm.jvmulator.Opcodes.MULTIANEWARRAY;
 import static com.bandlem.jvm.jvmulator.Opcodes.NEW;
 import static com.bandlem.jvm.jvmulator.Opcodes.NEWARRAY;
+import static com.bandlem.jvm.jvmulator.Opcodes.NOP;
 import static com.bandlem.jvm.jvmulator.Opcodes.PUTFIELD;
 import static com.bandlem.jvm.jvmulator.Opcodes.PUTSTATIC;
 import static com.bandlem.jvm.jvmulator.Opcodes.RET;
@@ -65,6 +68,24 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import org.junit.jupiter.api.Test;
 class OpcodesTest {
+	@Test
+	void testLength() {
+		final byte[] code = {
+				NOP, TABLESWITCH, 0, 0, 0, 0, 0, 20, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 10, 0, 0, 0, 12, //
+				LOOKUPSWITCH, 0, 0, 0, 0, 0, 0, 12, 0, 0, 0, 1, 0, 0, 0, 5, 0, 0, 0, 8, //
+				WIDE, ILOAD, 1, 0, //
+				WIDE, IINC, 1, 0, 0, 1, //
+				IFNE, 0, 3, //
+				IRETURN
+		};
+		assertEquals(1, Opcodes.length(code, 0));
+		assertEquals(23, Opcodes.length(code, 1));
+		assertEquals(20, Opcodes.length(code, 24));
+		assertEquals(4, Opcodes.length(code, 44));
+		assertEquals(6, Opcodes.length(code, 48));
+		assertEquals(3, Opcodes.length(code, 54));
+		assertEquals(1, Opcodes.length(code, 57));
+	}
 	@Test
 	void testOpcodeName() {
 		assertEquals("nop", Opcodes.name((byte) 0x0));
@@ -316,6 +337,7 @@ class OpcodesTest {
 			case IFGT:
 			case IFLE:
 			case IFLT:
+			case IFNE:
 			case IFNONNULL:
 			case IFNULL:
 			case IINC:
@@ -345,6 +367,7 @@ class OpcodesTest {
 			case TABLESWITCH:
 			case LOOKUPSWITCH:
 				operands = -1;
+				break;
 			default:
 				operands = 0;
 			}
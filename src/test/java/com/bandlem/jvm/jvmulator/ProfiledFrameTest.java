@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+class ProfiledFrameTest {
+	@Test
+	void testMethod() {
+		final Profiler profiler = new Profiler();
+		final Code code = new Code((short) 1, (short) 0, new byte[] {
+				ICONST_0, IRETURN
+		}, new ExceptionTable(), new Attribute[0]);
+		final ProfiledFrame frame = new ProfiledFrame(null, new Member.Method((short) 0, "zero", "()I",
+				new Attribute[] {
+						code
+				}), profiler, "Example.zero()I");
+		assertEquals(0, frame.run().intValue());
+		assertEquals(2L, profiler.inclusive().get("Example.zero()I"));
+	}
+	@Test
+	void testThrows() {
+		final Profiler profiler = new Profiler();
+		final ProfiledFrame frame = new ProfiledFrame(null, 0, new byte[] {
+				NOP, NOP, (byte) 0xcb
+		}, profiler, "unknown");
+		assertThrows(RuntimeException.class, frame::run);
+		assertEquals(3L, profiler.inclusive().get("unknown"));
+		profiler.sample();
+		assertTrue(profiler.samples().isEmpty());
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+class ProfilerTest {
+	private static ProfiledFrame add(final Profiler profiler, final String method) {
+		return new ProfiledFrame(null, 0, new byte[] {
+				ICONST_1, ICONST_2, IADD, IRETURN
+		}, profiler, method);
+	}
+	@Test
+	void testDeadThread() throws InterruptedException {
+		final Profiler profiler = new Profiler();
+		final Thread thread = new Thread(() -> add(profiler, "abandoned").step());
+		thread.start();
+		thread.join();
+		profiler.sample();
+		profiler.sample();
+		assertTrue(profiler.samples().isEmpty());
+		assertEquals(1L, profiler.exclusive().get("abandoned"));
+	}
+	@Test
+	void testNested() throws IOException {
+		final Profiler profiler = new Profiler();
+		final ProfiledFrame outer = add(profiler, "outer");
+		profiler.sample();
+		outer.step();
+		profiler.sample();
+		final ProfiledFrame inner = add(profiler, "inner");
+		inner.step();
+		profiler.sample();
+		profiler.sample();
+		assertEquals(3, inner.run().intValue());
+		assertEquals(3, outer.run().intValue());
+		profiler.sample();
+		assertEquals(Map.of("inner", 4L, "outer", 4L), profiler.exclusive());
+		assertEquals(Map.of("inner", 4L, "outer", 8L), profiler.inclusive());
+		final StringBuilder collapsed = new StringBuilder();
+		profiler.writeCollapsed(collapsed);
+		assertEquals("outer;@1 1\nouter;inner;@1 2\n", collapsed.toString());
+	}
+	@Test
+	void testRecursive() {
+		final Profiler profiler = new Profiler();
+		final ProfiledFrame outer = add(profiler, "recurse");
+		outer.step();
+		add(profiler, "recurse").run();
+		outer.run();
+		assertEquals(8L, profiler.exclusive().get("recurse"));
+		assertEquals(8L, profiler.inclusive().get("recurse"));
+	}
+	@Test
+	void testSampler() throws InterruptedException {
+		try (Profiler profiler = new Profiler()) {
+			final ProfiledFrame frame = add(profiler, "waiting");
+			frame.step();
+			profiler.start(1, TimeUnit.MILLISECONDS);
+			assertThrows(IllegalStateException.class, () -> profiler.start(1, TimeUnit.MILLISECONDS));
+			while (profiler.samples().isEmpty()) {
+				Thread.sleep(1);
+			}
+			profiler.close();
+			assertTrue(profiler.samples().get("waiting;@1") > 0);
+		}
+	}
+}
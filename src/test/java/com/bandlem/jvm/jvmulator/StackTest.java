@@ -31,6 +31,13 @@ public class StackTest {
 		assertThrows(IllegalStateException.class, stack::pop);
 	}
 	@Test
+	void testClear() {
+		stack.push(1L);
+		stack.push("two");
+		stack.clear();
+		assertEquals(0, stack.size());
+	}
+	@Test
 	void testDoublePushPeekPop() {
 		stack.push(8.0D);
 		final Slot s = stack.peek();
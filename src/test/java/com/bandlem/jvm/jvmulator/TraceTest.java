@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+class TraceTest {
+	@TempDir
+	Path temp;
+	private String[] decode(final Path path) throws IOException {
+		final StringBuilder out = new StringBuilder();
+		Trace.decode(path, out);
+		return out.toString().split(System.lineSeparator());
+	}
+	@Test
+	void testInvalid() throws IOException {
+		final Path path = Files.write(temp.resolve("invalid.trace"), new byte[Trace.HEADER]);
+		assertThrows(IllegalArgumentException.class, () -> Trace.decode(path, new StringBuilder()));
+	}
+	@Test
+	void testRing() throws IOException {
+		final Path path = temp.resolve("ring.trace");
+		try (Trace trace = Trace.open(path, 4)) {
+			final int method = trace.method("Example.loop()V");
+			for (int pc = 0; pc < 6; pc++) {
+				trace.record(method, pc, Opcodes.NOP, pc);
+			}
+			trace.record(method, 65535, (byte) 0xcb, 65535);
+			assertEquals(7, trace.count());
+		}
+		assertEquals(Trace.HEADER + 4 * Trace.RECORD, Files.size(path));
+		final String[] lines = decode(path);
+		assertEquals(4, lines.length);
+		assertEquals("Example.loop()V     3: nop             3", lines[0]);
+		assertEquals("Example.loop()V 65535: 0xcb            65535", lines[3]);
+		Files.delete(temp.resolve("ring.trace.methods"));
+		assertEquals("#0     3: nop             3", decode(path)[0]);
+	}
+	@Test
+	void testTrace() throws IOException {
+		final Path path = temp.resolve("example.trace");
+		try (Trace trace = Trace.open(path, 16)) {
+			assertEquals(0, trace.method("first"));
+			assertEquals(1, trace.method("second"));
+			trace.record(1, 7, Opcodes.IADD, 2);
+			trace.record(0, 0, Opcodes.ICONST_1, 0);
+		}
+		final String[] lines = decode(path);
+		assertEquals(2, lines.length);
+		assertEquals("second     7: iadd            2", lines[0]);
+		assertEquals("first     0: iconst_1        0", lines[1]);
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.Member;
+class TracingFrameTest {
+	@TempDir
+	Path temp;
+	@Test
+	void testTrace() throws IOException {
+		final Path path = temp.resolve("frame.trace");
+		try (Trace trace = Trace.open(path, 16)) {
+			final int add = trace.method("add");
+			assertEquals(3, new TracingFrame(null, 0, new byte[] {
+					ICONST_1, ICONST_2, IADD, IRETURN
+			}, trace, add).run().intValue());
+			final Code code = new Code((short) 1, (short) 0, new byte[] {
+					ICONST_0, IRETURN
+			}, new ExceptionTable(), new Attribute[0]);
+			final int zero = trace.method("zero");
+			assertEquals(0, new TracingFrame(null, new Member.Method((short) 0, "zero", "()I", new Attribute[] {
+					code
+			}), trace, zero).run().intValue());
+			assertEquals(6, trace.count());
+		}
+		final StringBuilder out = new StringBuilder();
+		Trace.decode(path, out);
+		final String[] lines = out.toString().split(System.lineSeparator());
+		assertEquals("add     2: iadd            2", lines[2]);
+		assertEquals("add     3: ireturn         1", lines[3]);
+		assertEquals("zero     1: ireturn         1", lines[5]);
+	}
+}
@@ -8,6 +8,7 @@
  */
 package com.bandlem.jvm.jvmulator.classfile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
@@ -20,7 +21,7 @@ public class AttributeTest {
 	@Test
 	void testCodeAttribute() {
 		final Code code = (Code) Attribute.of("Code", null, new byte[] {
-				0x00, 0x01, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, (byte) 0xca, (byte) 0xfe
+				0x00, 0x01, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02, (byte) 0xca, (byte) 0xfe, 0x00, 0x00, 0x00, 0x00
 		});
 		assertEquals("Code", code.attributeName);
 		assertEquals(1, code.getMaxStack());
@@ -29,6 +30,29 @@ public class AttributeTest {
 		assertEquals(2, bytecode.length);
 		assertEquals((byte) 0xca, bytecode[0]);
 		assertEquals((byte) 0xfe, bytecode[1]);
+		assertEquals(0, code.getExceptionTable().size());
+		assertEquals(0, code.getAttributes().length);
+	}
+	@Test
+	void testCodeExceptionTable() throws IOException {
+		final ConstantPool pool = new ConstantPool((short) 4, new DataInputStream(new ByteArrayInputStream(new byte[] {
+				ConstantPool.UTFConstant.TYPE, 0x00, 0x03, 'E', 'r', 'r', // 1
+				ConstantPool.ClassConstant.TYPE, 0x00, 0x01, // 2
+				ConstantPool.UTFConstant.TYPE, 0x00, 0x05, 'L', 'i', 'n', 'e', 's' // 3
+		})));
+		final Code code = (Code) Attribute.of("Code", pool, new byte[] {
+				0x00, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, (byte) 0xb1, // return
+				0x00, 0x02, // two handlers
+				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x02, // Err
+				0x00, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00, // any
+				0x00, 0x01, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00 // Lines
+		});
+		assertEquals(2, code.getExceptionTable().size());
+		assertEquals("Err", code.getExceptionTable().handlers[0].catchType);
+		assertNull(code.getExceptionTable().handlers[1].catchType);
+		assertEquals(1, code.getAttributes().length);
+		assertEquals("Lines", code.getAttribute("Lines").attributeName);
+		assertNull(code.getAttribute("Missing"));
 	}
 	@Test
 	void testIncompleteData() {
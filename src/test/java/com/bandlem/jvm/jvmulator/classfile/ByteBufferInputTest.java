@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+public class ByteBufferInputTest {
+	@Test
+	void testRead() throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(baos);
+		out.writeBoolean(true);
+		out.writeBoolean(false);
+		out.writeByte(-1);
+		out.writeByte(-1);
+		out.writeChar('J');
+		out.writeDouble(Math.PI);
+		out.writeFloat(2.5F);
+		out.writeInt(0xcafebabe);
+		out.writeLong(Long.MIN_VALUE);
+		out.writeShort(-2);
+		out.writeShort(-2);
+		out.writeUTF("alblue");
+		out.write(new byte[] {
+				1, 2, 3, 4
+		});
+		final ByteBufferInput in = new ByteBufferInput(ByteBuffer.wrap(baos.toByteArray()));
+		assertTrue(in.readBoolean());
+		assertFalse(in.readBoolean());
+		assertEquals(-1, in.readByte());
+		assertEquals(255, in.readUnsignedByte());
+		assertEquals('J', in.readChar());
+		assertEquals(Math.PI, in.readDouble());
+		assertEquals(2.5F, in.readFloat());
+		assertEquals(0xcafebabe, in.readInt());
+		assertEquals(Long.MIN_VALUE, in.readLong());
+		assertEquals(-2, in.readShort());
+		assertEquals(0xfffe, in.readUnsignedShort());
+		assertEquals("alblue", in.readUTF());
+		final byte[] one = new byte[1];
+		in.readFully(one);
+		assertEquals(1, one[0]);
+		assertEquals(1, in.skipBytes(1));
+		final byte[] two = new byte[3];
+		in.readFully(two, 1, 1);
+		assertEquals(3, two[1]);
+		assertEquals(1, in.skipBytes(10));
+		assertThrows(EOFException.class, in::readByte);
+		assertNull(in.readLine());
+	}
+	@Test
+	void testReadLine() {
+		final byte[] bytes = "one\ntwo\r\nthree\rfour\r\u00e9".getBytes(StandardCharsets.ISO_8859_1);
+		final ByteBufferInput in = new ByteBufferInput(ByteBuffer.wrap(bytes));
+		assertEquals("one", in.readLine());
+		assertEquals("two", in.readLine());
+		assertEquals("three", in.readLine());
+		assertEquals("four", in.readLine());
+		assertEquals("\u00e9", in.readLine());
+		assertNull(in.readLine());
+		assertEquals("", new ByteBufferInput(ByteBuffer.wrap(new byte[] {
+				'\r'
+		})).readLine());
+	}
+}
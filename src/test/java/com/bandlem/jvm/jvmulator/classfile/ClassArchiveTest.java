@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ClassRepository.Stamp;
+public class ClassArchiveTest {
+	private static final String ARCHIVE = "com/bandlem/jvm/jvmulator/classfile/ClassArchive";
+	private static final String OBJECT = "java/lang/Object";
+	private static ByteBuffer buffer(final int magic, final int version, final String name) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(baos);
+		out.writeInt(magic);
+		out.writeShort(version);
+		out.writeInt(1);
+		out.writeUTF(name);
+		out.writeInt(1);
+		out.writeInt(0);
+		out.writeLong(0);
+		out.writeLong(0);
+		out.writeInt(0);
+		out.writeInt(0);
+		return ByteBuffer.wrap(baos.toByteArray());
+	}
+	private Path classes;
+	@TempDir
+	Path temp;
+	private void assertMember(final Member expected, final Member actual) {
+		assertEquals(expected.flags, actual.flags);
+		assertEquals(expected.name, actual.name);
+		assertEquals(expected.descriptor, actual.descriptor);
+		assertEquals(expected.attributes.length, actual.attributes.length);
+		for (int i = 0; i < expected.attributes.length; i++) {
+			assertEquals(expected.attributes[i].getClass(), actual.attributes[i].getClass());
+			assertEquals(expected.attributes[i].attributeName, actual.attributes[i].attributeName);
+		}
+		final Code code = expected.getCodeAttribute();
+		if (code != null) {
+			assertEquals(code.getMaxStack(), actual.getCodeAttribute().getMaxStack());
+			assertEquals(code.getMaxLocals(), actual.getCodeAttribute().getMaxLocals());
+			assertArrayEquals(code.getBytecode(), actual.getCodeAttribute().getBytecode());
+			final ExceptionTable table = actual.getCodeAttribute().getExceptionTable();
+			assertEquals(code.getExceptionTable().size(), table.size());
+			for (int i = 0; i < table.size(); i++) {
+				assertEquals(code.getExceptionTable().handlers[i].startPC, table.handlers[i].startPC);
+				assertEquals(code.getExceptionTable().handlers[i].endPC, table.handlers[i].endPC);
+				assertEquals(code.getExceptionTable().handlers[i].handlerPC, table.handlers[i].handlerPC);
+				assertEquals(code.getExceptionTable().handlers[i].catchType, table.handlers[i].catchType);
+			}
+			assertEquals(code.getAttributes().length, actual.getCodeAttribute().getAttributes().length);
+		}
+	}
+	@BeforeEach
+	void setupClasses() throws IOException {
+		classes = Files.createDirectories(temp.resolve("classes"));
+		final Path dir = Files.createDirectories(classes.resolve("com/bandlem/jvm/jvmulator/classfile"));
+		Files.write(dir.resolve("ClassArchive.class"), ClassRepositoryTest.bytesOf(ClassArchive.class));
+		Files.write(dir.resolve("ConstantPool$Item.class"), ClassRepositoryTest.bytesOf(ConstantPool.Item.class));
+		Files.write(dir.resolve("ByteBufferInput.class"), ClassRepositoryTest.bytesOf(ByteBufferInput.class));
+		final Path lang = Files.createDirectories(classes.resolve("java/lang"));
+		final Path base = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules/java.base/java/lang");
+		Files.copy(base.resolve("Object.class"), lang.resolve("Object.class"));
+		Files.copy(base.resolve("Long.class"), lang.resolve("Long.class"));
+		Files.copy(base.resolve("ThreadGroup.class"), lang.resolve("ThreadGroup.class"));
+	}
+	@Test
+	void testArchive() throws IOException {
+		final ClassRepository original = new ClassRepository();
+		original.add(classes);
+		final Path file = temp.resolve("classes.jvma");
+		assertEquals(6, ClassArchive.write(file, original));
+		final ClassArchive archive = ClassArchive.open(file);
+		assertEquals(6, archive.size());
+		for (final String name : original.names()) {
+			final JavaClass expected = original.get(name);
+			final JavaClass actual = archive.get(name, original.stamp(name));
+			assertNotSame(actual, archive.get(name, original.stamp(name)));
+			assertNotNull(actual);
+			assertEquals(expected.minor, actual.minor);
+			assertEquals(expected.major, actual.major);
+			assertEquals(expected.flags, actual.flags);
+			assertEquals(expected.pool.size(), actual.pool.size());
+			assertEquals(expected.this_class, actual.this_class);
+			assertEquals(expected.super_class, actual.super_class);
+			assertArrayEquals(expected.interfaces, actual.interfaces);
+			assertEquals(expected.fields.length, actual.fields.length);
+			for (int i = 0; i < expected.fields.length; i++) {
+				assertMember(expected.fields[i], actual.fields[i]);
+			}
+			assertEquals(expected.methods.length, actual.methods.length);
+			for (int i = 0; i < expected.methods.length; i++) {
+				assertMember(expected.methods[i], actual.methods[i]);
+			}
+			assertEquals(expected.classAttributes.length, actual.classAttributes.length);
+		}
+		assertEquals("ClassArchive.java",
+				archive.get(ARCHIVE, original.stamp(ARCHIVE)).getAttribute("SourceFile").toString());
+		final Stamp object = original.stamp(OBJECT);
+		assertNull(archive.get(OBJECT, new Stamp(object.size + 1, object.checksum)));
+		assertNull(archive.get(OBJECT, new Stamp(object.size, object.checksum + 1)));
+		assertNull(archive.get("missing", object));
+		final ClassRepository warm = new ClassRepository(archive);
+		Files.write(classes.resolve("java/lang/Object.class"), ClassRepositoryTest.bytesOf(Member.class));
+		assertEquals(6, warm.add(classes));
+		assertEquals(ARCHIVE, warm.get(ARCHIVE).this_class);
+		assertNull(warm.get(OBJECT));
+		assertNotNull(warm.get("com/bandlem/jvm/jvmulator/classfile/Member"));
+		// Classes evicted from a bounded repository are not kept alive by the archive
+		final ClassRepository bounded = new ClassRepository(archive, 0);
+		bounded.add(classes);
+		final WeakReference<JavaClass> evicted = new WeakReference<>(bounded.get(ARCHIVE));
+		for (int i = 0; i < 100 && evicted.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(evicted.get());
+	}
+	@Test
+	void testInvalid() throws IOException {
+		assertThrows(IllegalArgumentException.class,
+				() -> new ClassArchive(buffer(0xcafebabe, ClassArchive.VERSION, "X")));
+		assertThrows(IllegalArgumentException.class, () -> new ClassArchive(buffer(ClassArchive.MAGIC, 0, "X")));
+		final ClassArchive truncated = new ClassArchive(buffer(ClassArchive.MAGIC, ClassArchive.VERSION, "X"));
+		assertThrows(IllegalArgumentException.class, () -> truncated.get("X", new Stamp(0, 0)));
+	}
+	@Test
+	void testSameSize() throws IOException {
+		final ClassRepository original = new ClassRepository();
+		original.add(classes);
+		final Path file = temp.resolve("classes.jvma");
+		ClassArchive.write(file, original);
+		// Rewrite the class with the same size and modification time, as a reproducible build would
+		final Path object = classes.resolve("java/lang/Object.class");
+		final FileTime modified = Files.getLastModifiedTime(object);
+		final String bytes = new String(Files.readAllBytes(object), StandardCharsets.ISO_8859_1);
+		Files.write(object, bytes.replace("Object.java", "Object.jbva").getBytes(StandardCharsets.ISO_8859_1));
+		Files.setLastModifiedTime(object, modified);
+		final ClassRepository warm = new ClassRepository(ClassArchive.open(file));
+		warm.add(classes);
+		assertEquals(original.stamp(OBJECT).size, warm.stamp(OBJECT).size);
+		assertEquals("Object.jbva", warm.get(OBJECT).getAttribute("SourceFile").toString());
+		assertEquals("ClassArchive.java", warm.get(ARCHIVE).getAttribute("SourceFile").toString());
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+public class ClassCacheTest {
+	private static final String CACHE = "ClassCache";
+	private static final String MEMBER = "Member";
+	private static final String SYMBOL = "Symbol";
+	private final Map<String, byte[]> classes = new HashMap<>();
+	private final AtomicInteger reads = new AtomicInteger();
+	private byte[] read(final String name) {
+		reads.incrementAndGet();
+		return classes.get(name);
+	}
+	@BeforeEach
+	void setupClasses() throws IOException {
+		classes.put(CACHE, ClassRepositoryTest.bytesOf(ClassCache.class));
+		classes.put(MEMBER, ClassRepositoryTest.bytesOf(Member.class));
+		classes.put(SYMBOL, ClassRepositoryTest.bytesOf(Symbol.class));
+	}
+	private long sizeOf(final String name) {
+		return ClassCache.sizeOf(new ClassCache(Long.MAX_VALUE, this::read).get(name));
+	}
+	@Test
+	void testConcurrentLoad() {
+		final ClassCache[] cache = new ClassCache[1];
+		cache[0] = new ClassCache(Long.MAX_VALUE, name -> {
+			// Simulates another thread loading the same class while this one parses
+			if (reads.incrementAndGet() == 1) {
+				cache[0].get(name);
+			}
+			return classes.get(name);
+		});
+		final JavaClass symbol = cache[0].get(SYMBOL);
+		assertEquals(2, reads.get());
+		assertEquals(1, cache[0].size());
+		assertEquals(ClassCache.sizeOf(symbol), cache[0].bytes());
+		assertSame(symbol, cache[0].get(SYMBOL));
+	}
+	@Test
+	void testEviction() {
+		final long cacheSize = sizeOf(CACHE);
+		final long memberSize = sizeOf(MEMBER);
+		final long symbolSize = sizeOf(SYMBOL);
+		assertTrue(cacheSize > symbolSize);
+		final ClassCache cache = new ClassCache(cacheSize + Math.max(memberSize, symbolSize), this::read);
+		reads.set(0);
+		final JavaClass javaClass = cache.get(CACHE);
+		assertEquals("com/bandlem/jvm/jvmulator/classfile/ClassCache", javaClass.this_class);
+		assertNotNull(cache.get(MEMBER));
+		assertSame(javaClass, cache.get(CACHE));
+		assertEquals(2, cache.misses());
+		assertEquals(1, cache.hits());
+		assertEquals(cacheSize + memberSize, cache.bytes());
+		assertNotNull(cache.get(SYMBOL));
+		assertEquals(1, cache.evictions());
+		assertEquals(2, cache.size());
+		assertEquals(cacheSize + symbolSize, cache.bytes());
+		assertSame(javaClass, cache.get(CACHE));
+		assertNotNull(cache.get(MEMBER));
+		assertEquals(2, cache.evictions());
+		assertNotNull(cache.get(SYMBOL));
+		assertEquals(3, cache.evictions());
+		assertEquals(2, cache.size());
+		assertEquals(memberSize + symbolSize, cache.bytes());
+		assertNotSame(javaClass, cache.get(CACHE));
+		assertEquals(6, reads.get());
+		assertNull(cache.get("Missing"));
+		assertThrows(IllegalStateException.class, () -> cache.unpin(SYMBOL));
+		assertEquals(7, cache.misses());
+		assertEquals(2, cache.hits());
+	}
+	@Test
+	void testPin() {
+		final ClassCache cache = new ClassCache(0, this::read);
+		final JavaClass member = cache.pin(MEMBER);
+		assertNotNull(member);
+		assertSame(member, cache.get(MEMBER));
+		assertSame(member, cache.pin(MEMBER));
+		assertNotNull(cache.get(SYMBOL));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.evictions());
+		cache.unpin(MEMBER);
+		assertSame(member, cache.get(MEMBER));
+		cache.unpin(MEMBER);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.bytes());
+		assertThrows(IllegalStateException.class, () -> cache.unpin(MEMBER));
+		assertNull(cache.pin("Missing"));
+		assertThrows(IllegalStateException.class, () -> cache.unpin("Missing"));
+		assertNotNull(cache.pin(SYMBOL));
+		cache.unpin(SYMBOL);
+		assertThrows(IllegalStateException.class, () -> cache.unpin(SYMBOL));
+	}
+	@Test
+	void testRemove() {
+		final ClassCache cache = new ClassCache(Long.MAX_VALUE, this::read);
+		final JavaClass member = cache.pin(MEMBER);
+		assertThrows(IllegalStateException.class, () -> cache.remove(MEMBER));
+		cache.unpin(MEMBER);
+		cache.remove(MEMBER);
+		cache.remove("Missing");
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.bytes());
+		assertNotSame(member, cache.get(MEMBER));
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+public class ClassMetricsTest {
+	@Test
+	void testCache() throws IOException {
+		final Map<String, byte[]> classes = Map.of("Member", ClassRepositoryTest.bytesOf(Member.class), "Symbol",
+				ClassRepositoryTest.bytesOf(Symbol.class));
+		final ClassMetrics metrics = ClassMetrics.global();
+		assertSame(metrics, ClassMetrics.global());
+		final long cached = metrics.getClassesCached();
+		final long evictions = metrics.getCacheEvictions();
+		final long hits = metrics.getCacheHits();
+		final long misses = metrics.getCacheMisses();
+		final long parsed = metrics.getClassesParsed();
+		final ClassCache cache = new ClassCache(1, classes::get);
+		cache.pin("Member");
+		cache.get("Member");
+		assertEquals(cached + 1, metrics.getClassesCached());
+		cache.get("Symbol");
+		assertEquals(cached + 1, metrics.getClassesCached());
+		assertEquals(evictions + 1, metrics.getCacheEvictions());
+		assertEquals(hits + 1, metrics.getCacheHits());
+		assertEquals(misses + 2, metrics.getCacheMisses());
+		assertEquals(parsed + 2, metrics.getClassesParsed());
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.Opcodes;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+public class ClassReaderTest {
+	private static class Recorder implements ClassVisitor {
+		final List<String> attributes = new ArrayList<>();
+		int constants;
+		final List<String> events = new ArrayList<>();
+		int handlers;
+		final List<Integer> lengths = new ArrayList<>();
+		int pc = -1;
+		@Override
+		public boolean visitAttribute(final String name, final int length) {
+			attributes.add(name);
+			return true;
+		}
+		@Override
+		public boolean visitCode(final short maxStack, final short maxLocals, final int length) {
+			lengths.add(length);
+			pc = -1;
+			return true;
+		}
+		@Override
+		public void visitConstant(final int index, final Item item) {
+			constants++;
+		}
+		@Override
+		public void visitEnd() {
+			events.add("end");
+		}
+		@Override
+		public boolean visitField(final short flags, final String name, final String descriptor) {
+			events.add("field " + name + descriptor);
+			return true;
+		}
+		@Override
+		public void visitHandler(final int startPC, final int endPC, final int handlerPC, final String catchType) {
+			handlers++;
+		}
+		@Override
+		public void visitInstruction(final int pc, final byte opcode, final byte[] code) {
+			assertTrue(pc > this.pc);
+			assertEquals(opcode, code[pc]);
+			this.pc = pc;
+		}
+		@Override
+		public boolean visitMethod(final short flags, final String name, final String descriptor) {
+			events.add("method " + name + descriptor);
+			return true;
+		}
+		@Override
+		public boolean visitPool(final int size) {
+			return true;
+		}
+	}
+	private static byte[] jrt(final String name) throws IOException {
+		return Files.readAllBytes(FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules/java.base", name));
+	}
+	// A class whose pool holds a string, a class and a wide constant, with the given this_class index
+	private static byte[] pool(final int thisClass, final int type) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(baos);
+		out.writeInt(0xcafebabe);
+		out.writeShort(0);
+		out.writeShort(52);
+		out.writeShort(6);
+		out.writeByte(1);
+		out.writeUTF("A");
+		out.writeByte(7);
+		out.writeShort(1);
+		out.writeByte(5);
+		out.writeLong(0);
+		out.writeByte(type);
+		out.writeShort(1);
+		out.writeShort(0);
+		out.writeShort(thisClass);
+		for (int i = 0; i < 5; i++) {
+			out.writeShort(0);
+		}
+		return baos.toByteArray();
+	}
+	private static DataInputStream stream(final byte[] bytes) {
+		return new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+	private void assertReads(final byte[] bytes) {
+		final JavaClass javaClass = new JavaClass(stream(bytes));
+		final Recorder recorder = new Recorder();
+		new ClassReader().accept(stream(bytes), recorder);
+		final List<String> events = new ArrayList<>();
+		int attributes = javaClass.classAttributes.length;
+		int handlers = 0;
+		final List<Integer> lengths = new ArrayList<>();
+		for (final Member field : javaClass.fields) {
+			events.add("field " + field.name + field.descriptor);
+			attributes += field.attributes.length;
+		}
+		for (final Member method : javaClass.methods) {
+			events.add("method " + method.name + method.descriptor);
+			attributes += method.attributes.length;
+			final Code code = method.getCodeAttribute();
+			if (code != null) {
+				attributes += code.getAttributes().length;
+				handlers += code.getExceptionTable().size();
+				lengths.add(code.getBytecode().length);
+			}
+		}
+		events.add("end");
+		assertEquals(events, recorder.events);
+		assertEquals(attributes, recorder.attributes.size());
+		assertEquals(handlers, recorder.handlers);
+		assertEquals(lengths, recorder.lengths);
+		assertTrue(recorder.constants > 0 && recorder.constants < javaClass.pool.size());
+	}
+	@Test
+	void testInvalid() throws IOException {
+		final byte[] bytes = ClassRepositoryTest.bytesOf(ClassReader.class);
+		final ClassReader reader = new ClassReader();
+		final ClassVisitor visitor = new ClassVisitor() {
+		};
+		final byte[] copy = bytes.clone();
+		copy[0] = 0;
+		assertThrows(IllegalArgumentException.class, () -> reader.accept(stream(copy), visitor));
+		final byte[] truncated = Arrays.copyOf(bytes, bytes.length - 4);
+		assertThrows(IllegalArgumentException.class, () -> reader.accept(stream(truncated), visitor));
+	}
+	@Test
+	void testPool() throws IOException {
+		final ClassReader reader = new ClassReader();
+		final List<String> names = new ArrayList<>();
+		final ClassVisitor visitor = new ClassVisitor() {
+			@Override
+			public boolean visitClass(final short minor, final short major, final short flags,
+					final String this_class, final String super_class, final String[] interfaces) {
+				names.add(this_class);
+				return true;
+			}
+		};
+		reader.accept(stream(ClassRepositoryTest.bytesOf(ClassReader.class)), visitor);
+		reader.accept(stream(pool(2, 8)), visitor);
+		assertEquals(List.of("com/bandlem/jvm/jvmulator/classfile/ClassReader", "A"), names);
+		for (final int index : new int[] {
+				0, 1, 4, 6, 200
+		}) {
+			assertThrows(IllegalArgumentException.class, () -> reader.accept(stream(pool(index, 8)), visitor));
+		}
+		assertThrows(IllegalArgumentException.class, () -> reader.accept(stream(pool(2, 2)), visitor));
+	}
+	@Test
+	void testRead() throws IOException {
+		assertReads(ClassRepositoryTest.bytesOf(ClassReader.class));
+		assertReads(ClassRepositoryTest.bytesOf(Opcodes.class));
+		assertReads(jrt("java/lang/Math.class"));
+		assertReads(jrt("java/lang/Object.class"));
+		assertReads(jrt("java/lang/ThreadGroup.class"));
+		assertReads(jrt("module-info.class"));
+	}
+	@Test
+	void testSkip() throws IOException {
+		final byte[] bytes = ClassRepositoryTest.bytesOf(ClassReader.class);
+		final List<String> events = new ArrayList<>();
+		new ClassReader().accept(stream(bytes), new ClassVisitor() {
+			@Override
+			public boolean visitClass(final short minor, final short major, final short flags,
+					final String this_class, final String super_class, final String[] interfaces) {
+				events.add(this_class);
+				events.add(super_class);
+				return false;
+			}
+			@Override
+			public void visitEnd() {
+				events.add("end");
+			}
+		});
+		assertEquals(List.of("com/bandlem/jvm/jvmulator/classfile/ClassReader", "java/lang/Object", "end"), events);
+		final List<String> attributes = new ArrayList<>();
+		new ClassReader().accept(stream(bytes), new ClassVisitor() {
+			@Override
+			public boolean visitAttribute(final String name, final int length) {
+				attributes.add(name);
+				return true;
+			}
+			@Override
+			public boolean visitMethod(final short flags, final String name, final String descriptor) {
+				return true;
+			}
+		});
+		assertFalse(attributes.isEmpty());
+		assertFalse(attributes.contains("LineNumberTable"));
+		assertTrue(attributes.contains(Code.NAME));
+		assertTrue(attributes.contains("SourceFile"));
+		final List<Integer> lengths = new ArrayList<>();
+		new ClassReader().accept(stream(jrt("java/lang/Thread.class")), new ClassVisitor() {
+			@Override
+			public boolean visitAttribute(final String name, final int length) {
+				return true;
+			}
+			@Override
+			public boolean visitCode(final short maxStack, final short maxLocals, final int length) {
+				lengths.add(length);
+				return true;
+			}
+			@Override
+			public boolean visitMethod(final short flags, final String name, final String descriptor) {
+				return true;
+			}
+			@Override
+			public boolean visitPool(final int size) {
+				return true;
+			}
+		});
+		assertFalse(lengths.isEmpty());
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+public class ClassRepositoryTest {
+	static byte[] bytesOf(final Class<?> clazz) throws IOException {
+		final String name = clazz.getName().replace('.', '/') + ".class";
+		try (InputStream stream = clazz.getClassLoader().getResourceAsStream(name)) {
+			return stream.readAllBytes();
+		}
+	}
+	private static void entry(final JarOutputStream jar, final String name, final byte[] bytes) throws IOException {
+		jar.putNextEntry(new JarEntry(name));
+		jar.write(bytes);
+		jar.closeEntry();
+	}
+	private static long sizeOf(final Class<?> clazz) throws IOException {
+		return ClassCache.sizeOf(new JavaClass(new DataInputStream(new ByteArrayInputStream(bytesOf(clazz)))));
+	}
+	@TempDir
+	Path temp;
+	@Test
+	void testBounded() throws IOException {
+		final Path dir = Files.createDirectories(temp.resolve("classes/com/example"));
+		Files.write(dir.resolve("Member.class"), bytesOf(Member.class));
+		Files.write(dir.resolve("Symbol.class"), bytesOf(Symbol.class));
+		final String member = "com/bandlem/jvm/jvmulator/classfile/Member";
+		final String symbol = "com/bandlem/jvm/jvmulator/classfile/Symbol";
+		// Room for either class, but not both
+		final long capacity = Math.max(sizeOf(Member.class), sizeOf(Symbol.class));
+		final ClassRepository repository = new ClassRepository(null, capacity);
+		assertEquals(2, repository.add(temp.resolve("classes")));
+		assertEquals(2, repository.size());
+		assertEquals(1, repository.cache().size());
+		assertNotNull(repository.pin(member));
+		assertEquals(symbol, repository.get(symbol).this_class);
+		assertEquals(1, repository.cache().size());
+		repository.unpin(member);
+		assertThrows(IllegalStateException.class, () -> repository.unpin(member));
+		assertNull(repository.get("com/example/Missing"));
+		assertNull(repository.pin("com/example/Missing"));
+		Files.write(dir.resolve("Member.class"), bytesOf(Member.class), StandardOpenOption.APPEND);
+		assertEquals(symbol, repository.get(symbol).this_class);
+		assertEquals(member, repository.get(member).this_class);
+		assertEquals(2 * bytesOf(Member.class).length, repository.stamp(member).size);
+		Files.delete(dir.resolve("Member.class"));
+		assertEquals(symbol, repository.get(symbol).this_class);
+		assertThrows(UncheckedIOException.class, () -> repository.get(member));
+	}
+	@Test
+	void testDefine() throws IOException {
+		final String member = "com/bandlem/jvm/jvmulator/classfile/Member";
+		final ClassRepository repository = new ClassRepository(null, 0);
+		assertNull(repository.get(member));
+		repository.define(member, ByteBuffer.wrap(bytesOf(Member.class)));
+		final JavaClass javaClass = repository.pin(member);
+		assertEquals(member, javaClass.this_class);
+		assertEquals(0, repository.size());
+		final ByteBuffer symbol = ByteBuffer.wrap(bytesOf(Symbol.class));
+		assertThrows(IllegalStateException.class, () -> repository.define(member, symbol));
+		repository.unpin(member);
+		assertNotSame(javaClass, repository.get(member));
+		repository.define(member, symbol);
+		assertEquals("com/bandlem/jvm/jvmulator/classfile/Symbol", repository.get(member).this_class);
+	}
+	@Test
+	void testDirectory() throws IOException {
+		final Path dir = Files.createDirectories(temp.resolve("classes/com/example"));
+		Files.write(dir.resolve("Repository.class"), bytesOf(ClassRepository.class));
+		Files.write(dir.resolve("Duplicate.class"), bytesOf(ClassRepository.class));
+		Files.write(dir.resolve("Readme.txt"), new byte[] {});
+		final ClassRepository repository = new ClassRepository();
+		assertEquals(2, repository.add(temp.resolve("classes")));
+		assertEquals(1, repository.size());
+		final JavaClass javaClass = repository.get("com/bandlem/jvm/jvmulator/classfile/ClassRepository");
+		assertNotNull(javaClass);
+		assertEquals("java/lang/Object", javaClass.super_class);
+		assertNull(repository.get("com/example/Repository"));
+		assertThrows(IllegalArgumentException.class, () -> repository.stamp("com/example/Repository"));
+	}
+	@Test
+	void testJar() throws IOException {
+		final Path jarFile = temp.resolve("test.jar");
+		try (OutputStream out = Files.newOutputStream(jarFile); JarOutputStream jar = new JarOutputStream(out)) {
+			entry(jar, "com/bandlem/jvm/jvmulator/classfile/JavaClass.class", bytesOf(JavaClass.class));
+			entry(jar, "com/bandlem/jvm/jvmulator/classfile/Member.class", bytesOf(Member.class));
+			entry(jar, "META-INF/versions/11/com/bandlem/jvm/jvmulator/classfile/Member.class", new byte[] {});
+			entry(jar, "module-info.class", new byte[] {});
+		}
+		try (ClassRepository repository = new ClassRepository(null, 0)) {
+			assertEquals(2, repository.add(jarFile));
+			assertTrue(repository.names().contains("com/bandlem/jvm/jvmulator/classfile/JavaClass"));
+			assertTrue(repository.names().contains("com/bandlem/jvm/jvmulator/classfile/Member"));
+			assertEquals(0, repository.cache().size());
+			assertEquals("java/lang/Object", repository.get("com/bandlem/jvm/jvmulator/classfile/Member").super_class);
+		}
+	}
+	@Test
+	void testModule() throws IOException {
+		final ClassRepository repository = new ClassRepository();
+		final int count = repository.addModule("java.base");
+		assertTrue(count > 1000);
+		assertEquals(count, repository.size());
+		assertNull(repository.get("java/lang/Object").super_class);
+		assertEquals("java/lang/Object", repository.get("java/lang/String").super_class);
+	}
+	@Test
+	void testUnreadable() throws IOException {
+		Files.createDirectories(temp.resolve("Directory.class"));
+		assertThrows(UncheckedIOException.class, () -> new ClassRepository().add(temp));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.SourceFile;
+public class ClassWriterTest {
+	static byte[] jrt(final String name) throws IOException {
+		return Files.readAllBytes(FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules/java.base", name));
+	}
+	private static JavaClass parse(final byte[] bytes) {
+		return new JavaClass(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+	private static byte[] write(final JavaClass javaClass) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ClassWriter.write(javaClass, out);
+		return out.toByteArray();
+	}
+	@Test
+	void testAddedNames() throws IOException {
+		final JavaClass original = parse(ClassRepositoryTest.bytesOf(ClassWriter.class));
+		final JavaClass renamed = new JavaClass(original.minor, original.major, original.pool, original.flags,
+				"com/example/Renamed", original.super_class, new String[] {
+						"java/lang/Runnable"
+				}, original.fields, original.methods, new Attribute[] {
+						new SourceFile("Renamed.java")
+				});
+		final JavaClass written = parse(write(renamed));
+		assertEquals("com/example/Renamed", written.this_class);
+		assertArrayEquals(new String[] {
+				"java/lang/Runnable"
+		}, written.interfaces);
+		assertEquals("Renamed.java", written.getAttribute(SourceFile.NAME).toString());
+		assertEquals(original.pool.size() + 5, written.pool.size());
+		assertEquals(original.methods.length, written.methods.length);
+	}
+	@Test
+	void testRoundTrip() throws IOException {
+		for (final byte[] bytes : new byte[][] {
+				ClassRepositoryTest.bytesOf(ClassWriter.class), ClassRepositoryTest.bytesOf(ConstantPool.class),
+				ClassRepositoryTest.bytesOf(ExceptionTable.class), ClassRepositoryTest.bytesOf(ClassArchive.class),
+				jrt("java/lang/Object.class"),
+				jrt("java/lang/Math.class"), jrt("java/lang/ThreadGroup.class")
+		}) {
+			assertArrayEquals(bytes, write(parse(bytes)));
+		}
+	}
+}
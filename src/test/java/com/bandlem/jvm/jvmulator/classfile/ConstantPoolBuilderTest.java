@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+public class ConstantPoolBuilderTest {
+	private static JavaClass parse(final Class<?> clazz) throws IOException {
+		return new JavaClass(new DataInputStream(new ByteArrayInputStream(ClassRepositoryTest.bytesOf(clazz))));
+	}
+	@Test
+	void testAdd() throws IOException {
+		final JavaClass javaClass = parse(ClassArchive.class);
+		final ConstantPoolBuilder builder = new ConstantPoolBuilder(javaClass.pool);
+		final int size = javaClass.pool.size();
+		assertEquals(size, builder.size());
+		final int thisClass = builder.addClass(javaClass.this_class);
+		assertEquals(javaClass.this_class, javaClass.pool.getClassName(thisClass));
+		final int magic = builder.addInteger(ClassArchive.MAGIC);
+		assertEquals(ClassArchive.MAGIC, ((IntConstant) javaClass.pool.getItem(magic)).value);
+		final int code = builder.addUTF("Code");
+		assertEquals("Code", javaClass.pool.getString(code));
+		assertEquals(size, builder.size());
+		assertEquals(size + 1, builder.addClass("com/example/Missing"));
+		assertEquals(size + 1, builder.addClass("com/example/Missing"));
+		assertEquals("com/example/Missing", builder.getString(size));
+		assertEquals(size + 2, builder.addInteger(0x12345678));
+		assertEquals(size + 2, builder.addInteger(0x12345678));
+		assertEquals(size + 3, builder.addUTF("alblue"));
+		final ConstantPool pool = builder.build();
+		assertEquals(size + 4, pool.size());
+		assertEquals("com/example/Missing", pool.getClassName(size + 1));
+		assertEquals(0x12345678, ((IntConstant) pool.getItem(size + 2)).value);
+		assertEquals("alblue", pool.getString(size + 3));
+		assertThrows(IllegalArgumentException.class, () -> builder.getItem(0));
+	}
+	@Test
+	void testFull() throws IOException {
+		final ConstantPoolBuilder builder = new ConstantPoolBuilder(parse(ConstantPoolBuilder.class).pool);
+		assertThrows(IllegalStateException.class, () -> {
+			for (int i = 0; i < 0x10000; i++) {
+				builder.addInteger(i + 0x10000);
+			}
+		});
+		assertEquals(0xffff, builder.size());
+	}
+}
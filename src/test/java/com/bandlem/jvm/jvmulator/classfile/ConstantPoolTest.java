@@ -7,12 +7,17 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import org.junit.jupiter.api.Test;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.ClassConstant;
 import com.bandlem.jvm.jvmulator.classfile.ConstantPool.DoubleConstant;
@@ -110,9 +115,39 @@ public class ConstantPoolTest {
 		}));
 		assertEquals("alblue", single.getString(1));
 		assertEquals("alblue", single.getClassName(2));
+		assertSame(Symbol.of("alblue"), single.getSymbol(1));
+		assertEquals(single.getSymbol(1).value, single.getString(1));
 		assertEquals(1, empty.size());
 		assertEquals(3, single.size());
 	}
+	@Test
+	void testWrite() throws IOException {
+		final byte[] bytes = new byte[] {
+				0x01, 0x00, 0x06, 0x61, 0x6c, 0x62, 0x6c, 0x75, 0x65, // UTF-8
+				0x03, 0x00, 0x00, 0x00, 0x01, // int
+				0x04, 0x7f, (byte) 0x80, 0x00, 0x00, // float
+				0x05, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x02, // long (wide)
+				0x06, (byte) 0xff, (byte) 0xf0, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, // double (wide)
+				0x07, 0x00, 0x01, // class
+				0x08, 0x00, 0x01, // string
+				0x09, 0x00, 0x08, 0x00, 0x0d, // field ref
+				0x0a, 0x00, 0x08, 0x00, 0x0d, // method ref
+				0x0b, 0x00, 0x08, 0x00, 0x0d, // interface method ref
+				0x0c, 0x00, 0x01, 0x00, 0x01, // name and type
+				0x0f, 0x03, 0x00, 0x09, // method handle
+				0x10, 0x00, 0x01, // method type
+				0x12, 0x00, 0x00, 0x00, 0x0d, // invoke dynamic
+				0x13, 0x00, 0x01, // module
+				0x14, 0x00, 0x01, // package
+		};
+		final ConstantPool pool = new ConstantPool((short) 19, with(bytes));
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		pool.write(new DataOutputStream(baos));
+		final byte[] written = baos.toByteArray();
+		assertEquals(0, written[0]);
+		assertEquals(19, written[1]);
+		assertArrayEquals(bytes, Arrays.copyOfRange(written, 2, written.length));
+	}
 	DataInput with(final byte... data) throws IOException {
 		return new DataInputStream(new ByteArrayInputStream(data));
 	}
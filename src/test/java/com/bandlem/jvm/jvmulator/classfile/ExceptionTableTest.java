@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.net.URL;
+import java.net.URLClassLoader;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+public class ExceptionTableTest {
+	public static class Custom extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		public Custom() {
+		}
+	}
+	@Test
+	void testCatches() {
+		final Handler any = new Handler(0, 1, 2, null);
+		assertTrue(any.catches(new Error()));
+		final Handler runtime = new Handler(0, 1, 2, "java/lang/RuntimeException");
+		assertFalse(runtime.catches(new Exception()));
+		assertTrue(runtime.catches(new IllegalStateException()));
+		assertTrue(runtime.catches(new UnsupportedOperationException()));
+		assertFalse(runtime.catches(new Error()));
+		assertFalse(new Handler(0, 1, 2, "com/example/Missing").catches(new Error()));
+	}
+	@Test
+	void testCatchesOtherLoader() throws Exception {
+		final URL location = Custom.class.getProtectionDomain().getCodeSource().getLocation();
+		try (URLClassLoader loader = new URLClassLoader(new URL[] {
+				location
+		}, null)) {
+			final Class<?> type = loader.loadClass(Custom.class.getName());
+			final Throwable custom = (Throwable) type.getConstructor().newInstance();
+			final Handler handler = new Handler(0, 1, 2, Custom.class.getName().replace('.', '/'));
+			assertTrue(handler.catches(new Custom()));
+			assertTrue(handler.catches(custom));
+			assertTrue(handler.catches(new Custom()));
+			assertFalse(handler.catches(new RuntimeException()));
+		}
+	}
+	@Test
+	void testLookup() {
+		final Handler outer = new Handler(2, 20, 30, "java/lang/Exception");
+		final Handler inner = new Handler(5, 10, 40, "java/lang/IllegalStateException");
+		final Handler finale = new Handler(5, 25, 50, null);
+		final ExceptionTable table = new ExceptionTable(inner, outer, finale);
+		assertEquals(3, table.size());
+		assertEquals(0, table.handlersAt(0).length);
+		assertArrayEquals(new Handler[] {
+				outer
+		}, table.handlersAt(2));
+		assertArrayEquals(new Handler[] {
+				outer
+		}, table.handlersAt(4));
+		assertArrayEquals(new Handler[] {
+				inner, outer, finale
+		}, table.handlersAt(5));
+		assertArrayEquals(new Handler[] {
+				inner, outer, finale
+		}, table.handlersAt(9));
+		assertArrayEquals(new Handler[] {
+				outer, finale
+		}, table.handlersAt(10));
+		assertArrayEquals(new Handler[] {
+				finale
+		}, table.handlersAt(24));
+		assertEquals(0, table.handlersAt(25).length);
+		assertEquals(0, table.handlersAt(100).length);
+		assertEquals(inner, table.find(7, new IllegalStateException()));
+		assertEquals(outer, table.find(7, new Exception()));
+		assertEquals(finale, table.find(7, new Error()));
+		assertNull(table.find(3, new Error()));
+		assertNull(new ExceptionTable().find(0, new Error()));
+		final Handler missing = new Handler(5, 10, 60, "com/example/Missing");
+		assertEquals(finale, new ExceptionTable(missing, finale).find(7, new Error()));
+	}
+}
@@ -1,14 +1,23 @@
 package com.bandlem.jvm.jvmulator.classfile;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import com.bandlem.jvm.jvmulator.Opcodes;
 public class JavaClassTest {
 	private static class ClassUnderTest implements Runnable {
@@ -63,6 +72,20 @@ public class JavaClassTest {
 		assertEquals(System.getProperty("java.class.version"), classUnderTest.major + "." + classUnderTest.minor);
 	}
 	@Test
+	void testEvents(@TempDir final Path temp) throws IOException {
+		final Path file = temp.resolve("events.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(ParseEvent.class);
+			recording.start();
+			setupClass();
+			recording.stop();
+			recording.dump(file);
+		}
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		assertEquals(1, events.size());
+		assertEquals(classUnderTest.this_class, events.get(0).getString("className"));
+	}
+	@Test
 	void testInvalidClass() {
 		assertThrows(IllegalArgumentException.class,
 				() -> new JavaClass(dis((byte) 0xb0, (byte) 0x00, (byte) 0xb0, (byte) 0x00)));
@@ -74,5 +97,27 @@ public class JavaClassTest {
 		assertNotNull(classUnderTest.getField("field"));
 		assertNull(classUnderTest.getMethod("Not present"));
 		assertNotNull(classUnderTest.getMethod("run"));
+		final Symbol field = Symbol.of("field");
+		final Symbol string = Symbol.of("Ljava/lang/String;");
+		final Symbol run = Symbol.of("run");
+		final Symbol voidMethod = Symbol.of("()V");
+		assertSame(classUnderTest.fields[0], classUnderTest.getField(field, string));
+		assertNull(classUnderTest.getField(field, voidMethod));
+		assertNull(classUnderTest.getField(run, string));
+		assertSame(classUnderTest.getMethod("run"), classUnderTest.getMethod(run, voidMethod));
+		assertNull(classUnderTest.getMethod(run, string));
+		assertNull(classUnderTest.getMethod(field, voidMethod));
+	}
+	@Test
+	void testSymbols() {
+		setupClass();
+		final JavaClass other = classUnderTest;
+		setupClass();
+		assertNotSame(other, classUnderTest);
+		assertSame(other.this_class, classUnderTest.this_class);
+		assertSame(Symbol.of("java/lang/Object").value, classUnderTest.super_class);
+		assertSame(Symbol.of("java/lang/Runnable").value, classUnderTest.interfaces[0]);
+		assertSame(Symbol.of("run").value, classUnderTest.getMethod("run").name);
+		assertSame(Symbol.of("()V").value, classUnderTest.getMethod("run").descriptor);
 	}
 }
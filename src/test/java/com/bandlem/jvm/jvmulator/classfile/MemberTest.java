@@ -46,7 +46,7 @@ public class MemberTest {
 	void testMethod() {
 		final Attribute[] attributes = new Attribute[] {
 				Attribute.of(Attribute.Code.NAME, null, new byte[] {
-						0x00, 0x01, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00
+						0x00, 0x01, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00
 				}), Attribute.of("Unknown", null, "Unknown".getBytes(StandardCharsets.UTF_8))
 		};
 		final Method method = new Method((short) 34, "MyMethod", "(I)V", attributes);
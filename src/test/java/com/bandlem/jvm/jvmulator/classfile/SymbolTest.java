@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.classfile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+public class SymbolTest {
+	@Test
+	void testConcurrent() {
+		final Set<Symbol> symbols = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 10000).parallel().forEach(i -> symbols.add(Symbol.of(new String("concurrent" + i % 10))));
+		assertEquals(10, symbols.size());
+	}
+	@Test
+	void testIntern() {
+		final String object = new String("java/lang/Object");
+		final Symbol symbol = Symbol.of(object);
+		assertSame(symbol, Symbol.of(new String("java/lang/Object")));
+		assertNotSame(symbol, Symbol.of("java/lang/String"));
+		assertEquals("java/lang/Object", symbol.toString());
+		assertTrue(symbol.is(symbol.value));
+		assertFalse(symbol.is(new String("java/lang/Object")));
+		assertTrue(Symbol.size() >= 2);
+	}
+	@Test
+	void testStale() {
+		final Symbol stale = Symbol.of(new String("stale"));
+		// Cleared but not yet enqueued, as when the symbol has been collected and the table not yet purged
+		Symbol.SYMBOLS.get("stale").clear();
+		final Symbol symbol = Symbol.of("stale");
+		assertNotSame(stale, symbol);
+		assertSame(symbol, Symbol.of(new String("stale")));
+		// Another thread interning the same name after this one missed keeps the first symbol
+		assertSame(symbol, Symbol.intern(new String("stale")));
+		Symbol.SYMBOLS.get("stale").enqueue();
+		Symbol.size();
+		assertFalse(Symbol.SYMBOLS.containsKey("stale"));
+	}
+	@Test
+	void testWeak() {
+		final WeakReference<Symbol> weak = new WeakReference<>(Symbol.of(new String("unreferenced")));
+		for (int i = 0; i < 100 && weak.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(weak.get());
+		final Symbol symbol = Symbol.of(new String("unreferenced"));
+		assertSame(symbol, Symbol.of("unreferenced"));
+	}
+}
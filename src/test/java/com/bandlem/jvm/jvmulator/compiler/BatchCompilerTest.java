@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.compiler.BatchCompiler.Batch;
+public class BatchCompilerTest {
+	private static final SourceFile BROKEN = new SourceFile("Broken", "public class Broken { int }");
+	private static final SourceFile CALLER = new SourceFile("Caller",
+			"public class Caller { int x = new Callee().y; }");
+	private static final SourceFile CALLEE = new SourceFile("Callee", "public class Callee { int y = 1; }");
+	private static final SourceFile PACKAGED = new SourceFile("com/example/Packaged",
+			"package com.example; public class Packaged { Object o = new Packaged(); }");
+	private static final SourceFile STANDALONE = new SourceFile("Standalone", "public class Standalone { }");
+	@Test
+	void testCompile() throws IOException {
+		try (CompilerPool pool = new CompilerPool(2, 2)) {
+			final BatchCompiler compiler = new BatchCompiler(pool);
+			final Batch batch = compiler.compile(CALLER, STANDALONE, CALLEE, PACKAGED);
+			assertTrue(batch.isSuccess());
+			assertEquals(4, batch.classes.size());
+			assertEquals(Set.of("Caller"), batch.classes.get(CALLER).keySet());
+			assertEquals(Set.of("Callee"), batch.classes.get(CALLEE).keySet());
+			assertNotNull(batch.classes.get(PACKAGED).get("com.example.Packaged"));
+			assertTrue(batch.diagnostics.get(STANDALONE).isEmpty());
+			final Batch broken = compiler.compile(List.of("-Xlint:all"), STANDALONE, BROKEN);
+			assertFalse(broken.isSuccess());
+			assertEquals(1, broken.failed.size());
+			assertTrue(broken.failed.contains(BROKEN));
+			assertFalse(broken.diagnostics.get(BROKEN).isEmpty());
+			assertTrue(broken.diagnostics.get(STANDALONE).isEmpty());
+			assertNotNull(broken.classes.get(STANDALONE).get("Standalone"));
+			assertTrue(broken.classes.get(BROKEN).isEmpty());
+			final Batch processing = compiler.compile(List.of("-proc:only"), CALLER, CALLEE);
+			assertTrue(processing.isSuccess());
+			assertTrue(processing.classes.get(CALLER).isEmpty());
+			assertFalse(processing.diagnostics.get(CALLER).isEmpty());
+			assertEquals(processing.diagnostics.get(CALLER), processing.diagnostics.get(CALLEE));
+			assertTrue(compiler.compile().isSuccess());
+		}
+	}
+	@Test
+	void testSameName() throws IOException {
+		final SourceFile first = new SourceFile("Solution",
+				"public class Solution { int answer() { return 1; } } class Node { }");
+		final SourceFile second = new SourceFile("Solution",
+				"public class Solution { int answer() { return new Node().value; } } class Node { int value = 2; }");
+		assertEquals(List.of(List.of(first), List.of(second)), BatchCompiler.partition(first, second));
+		try (CompilerPool pool = new CompilerPool(2, 2)) {
+			final Batch batch = new BatchCompiler(pool).compile(first, second);
+			assertTrue(batch.isSuccess());
+			assertEquals(Set.of("Solution", "Node"), batch.classes.get(first).keySet());
+			assertEquals(Set.of("Solution", "Node"), batch.classes.get(second).keySet());
+			assertNotEquals(batch.classes.get(first).get("Node"), batch.classes.get(second).get("Node"));
+		}
+	}
+	@Test
+	void testPartition() {
+		final List<List<SourceFile>> groups = BatchCompiler.partition(CALLER, STANDALONE, BROKEN, CALLEE, PACKAGED);
+		assertEquals(List.of(List.of(CALLER, CALLEE), List.of(STANDALONE), List.of(BROKEN), List.of(PACKAGED)),
+				groups);
+		final SourceFile duplicate = new SourceFile("other/Callee", "package other; public class Callee { }");
+		assertEquals(List.of(List.of(CALLER, CALLEE, duplicate)), BatchCompiler.partition(CALLER, CALLEE, duplicate));
+		final SourceFile other = new SourceFile("Caller", "public class Caller { Callee callee; }");
+		assertEquals(List.of(List.of(CALLER, CALLEE), List.of(other)), BatchCompiler.partition(CALLER, CALLEE, other));
+		final SourceFile x = new SourceFile("X", "class X { Y first; Y second; }");
+		final SourceFile y = new SourceFile("Y", "class Y { X x; }");
+		assertEquals(List.of(List.of(x, y)), BatchCompiler.partition(x, y));
+	}
+}
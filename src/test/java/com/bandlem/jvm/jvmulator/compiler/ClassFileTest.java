@@ -8,14 +8,16 @@
  */
 package com.bandlem.jvm.jvmulator.compiler;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import org.junit.jupiter.api.Test;
 public class ClassFileTest {
 	@Test
 	void testClassFile() throws IOException {
-		final byte[][] datas = new byte[1][1];
+		final ByteBuffer[] datas = new ByteBuffer[1];
 		final ClassFile classFile = new ClassFile("Output", (data) -> {
 			datas[0] = data;
 		});
@@ -23,7 +25,9 @@ public class ClassFileTest {
 		final String message = "Hello World!";
 		writer.write(message);
 		writer.close();
-		assertEquals(message.getBytes().length, datas[0].length);
+		assertEquals(message.getBytes().length, datas[0].remaining());
+		assertEquals("/com/example/Output.class", new ClassFile("com.example.Output", datas[0]).toUri().getPath());
+		assertThrows(UnsupportedOperationException.class, classFile::openInputStream);
 	}
 	@Test
 	void testSourceFile() throws IOException {
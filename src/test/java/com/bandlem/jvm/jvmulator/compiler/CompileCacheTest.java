@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache.Result;
+public class CompileCacheTest {
+	private static final SourceFile BROKEN = new SourceFile("Broken", "public class Broken { int }");
+	private static final String EXAMPLE = "Example";
+	private static final String EXAMPLE_SOURCE = "public class Example { int answer() { return 42; } }";
+	private static final SourceFile SOURCE = new SourceFile(EXAMPLE, EXAMPLE_SOURCE);
+	@TempDir
+	Path temp;
+	@Test
+	void testCompile() throws IOException, ReflectiveOperationException {
+		try (CompileCache cache = new CompileCache()) {
+			testCompile(cache);
+		}
+	}
+	private void testCompile(final CompileCache cache) throws ReflectiveOperationException {
+		final Result result = cache.compile(SOURCE);
+		assertTrue(result.success);
+		assertTrue(result.diagnostics.isEmpty());
+		assertEquals(1, result.classes.size());
+		assertNotNull(result.getBytes(EXAMPLE));
+		assertTrue(result.getBuffer(EXAMPLE).isReadOnly());
+		assertNull(result.getBuffer("Missing"));
+		assertNull(result.getBytes("Missing"));
+		assertEquals(EXAMPLE, result.newClassLoader().loadClass(EXAMPLE).getName());
+		assertSame(result, cache.compile(new SourceFile(EXAMPLE, EXAMPLE_SOURCE)));
+		assertEquals(1, cache.hits());
+		assertEquals(1, cache.misses());
+		final Result debug = cache.compile(List.of("-g"), SOURCE);
+		assertNotSame(result, debug);
+		assertEquals(2, cache.misses());
+		final Result broken = cache.compile(BROKEN);
+		assertFalse(broken.success);
+		assertFalse(broken.diagnostics.isEmpty());
+		assertTrue(broken.classes.isEmpty());
+		assertSame(broken, cache.compile(BROKEN));
+		assertEquals(2, cache.hits());
+	}
+	@Test
+	void testCapacity() throws IOException {
+		try (CompileCache cache = new CompileCache(null, 1)) {
+			final Result result = cache.compile(SOURCE);
+			assertSame(result, cache.compile(SOURCE));
+			cache.compile(BROKEN);
+			assertNotSame(result, cache.compile(SOURCE));
+			assertEquals(1, cache.hits());
+			assertEquals(3, cache.misses());
+		}
+	}
+	@Test
+	void testCorrupt() throws IOException {
+		final Path entry = temp.resolve("entry");
+		assertNull(CompileCache.read(entry));
+		for (final byte[] data : List.of(new byte[] {
+				1, 0, 0, 0, 1, 0x7f, -1, -1, -1
+		}, new byte[] {
+				1, 0, 0, 0, 1, -1, -1, -1, -1
+		}, new byte[] {
+				1, 0, 0, 0, 0, 0, 0, 0, 0, 0
+		})) {
+			Files.write(entry, data);
+			assertNull(CompileCache.read(entry));
+			assertFalse(Files.exists(entry));
+		}
+		Files.write(entry, new byte[] {
+				1, 0, 0, 0, 0, 0, 0, 0, 0
+		});
+		assertTrue(CompileCache.read(entry).success);
+		final Path directory = Files.createDirectories(temp.resolve("directory"));
+		Files.write(directory.resolve("file"), new byte[0]);
+		assertNull(CompileCache.read(directory));
+		assertTrue(Files.exists(directory));
+	}
+	@Test
+	void testDisk() throws IOException {
+		final Path directory = temp.resolve("cache");
+		final Result result;
+		final Result broken;
+		try (CompileCache first = new CompileCache(directory)) {
+			result = first.compile(SOURCE);
+			broken = first.compile(BROKEN);
+			assertEquals(2, first.misses());
+		}
+		final Path entry = directory.resolve(CompileCache.key("SHA-256", List.of(), SOURCE));
+		assertTrue(Files.isRegularFile(entry));
+		try (CompileCache second = new CompileCache(directory)) {
+			final Result cached = second.compile(SOURCE);
+			assertEquals(1, second.hits());
+			assertEquals(0, second.misses());
+			assertTrue(cached.success);
+			assertArrayEquals(result.getBytes(EXAMPLE), cached.getBytes(EXAMPLE));
+			// Callers get their own copy of the bytes; the shared buffers are only handed out read-only
+			cached.getBytes(EXAMPLE)[0] = 0;
+			assertArrayEquals(result.getBytes(EXAMPLE), cached.getBytes(EXAMPLE));
+			assertTrue(cached.getBuffer(EXAMPLE).isReadOnly());
+			assertTrue(cached.classes.get(EXAMPLE).isReadOnly());
+			assertSame(cached, second.compile(SOURCE));
+			assertEquals(broken.diagnostics, second.compile(BROKEN).diagnostics);
+			assertFalse(second.compile(BROKEN).success);
+		}
+		Files.write(entry, new byte[] {
+				1, 0, 0
+		});
+		try (CompileCache truncated = new CompileCache(directory)) {
+			assertArrayEquals(result.getBytes(EXAMPLE), truncated.compile(SOURCE).getBytes(EXAMPLE));
+			assertEquals(1, truncated.misses());
+		}
+		assertTrue(Files.size(entry) > 3);
+	}
+	@Test
+	void testKey() {
+		final String key = CompileCache.key("SHA-256", List.of(), SOURCE);
+		assertEquals(64, key.length());
+		assertEquals(key, CompileCache.key("SHA-256", List.of(), new SourceFile(EXAMPLE, EXAMPLE_SOURCE)));
+		assertNotEquals(key, CompileCache.key("SHA-256", List.of("-g"), SOURCE));
+		assertNotEquals(key, CompileCache.key("SHA-256", List.of(), BROKEN));
+		assertThrows(IllegalStateException.class, () -> CompileCache.key("Missing", List.of(), SOURCE));
+	}
+	@Test
+	void testPool() throws IOException {
+		try (CompilerPool pool = new CompilerPool(1, 4)) {
+			try (CompileCache cache = new CompileCache(null, 1, pool)) {
+				assertTrue(cache.compile(SOURCE).success);
+				assertEquals(1, cache.misses());
+			}
+			try (CompileCache cache = new CompileCache(null, 1, pool)) {
+				assertTrue(cache.compile(SOURCE).success);
+				assertEquals(1, cache.misses());
+			}
+			assertTrue(pool.compile(SOURCE).join().success);
+		}
+	}
+	@Test
+	void testUnwritable() throws IOException {
+		final Path file = Files.write(temp.resolve("file"), new byte[0]);
+		final long failures = CompilerMetrics.global().getCacheWriteFailures();
+		try (CompileCache cache = new CompileCache(file)) {
+			final Result result = cache.compile(SOURCE);
+			assertTrue(result.success);
+			assertEquals(1, cache.writeFailures());
+			assertEquals(failures + 1, CompilerMetrics.global().getCacheWriteFailures());
+			assertSame(result, cache.compile(SOURCE));
+			assertEquals(1, cache.writeFailures());
+		}
+		final Path directory = Files.createDirectories(temp.resolve("directory"));
+		final Path blocked = Files.createDirectory(directory.resolve(CompileCache.key("SHA-256", List.of(), SOURCE)));
+		Files.write(blocked.resolve("file"), new byte[0]);
+		try (CompileCache cache = new CompileCache(directory)) {
+			assertTrue(cache.compile(SOURCE).success);
+			assertEquals(1, cache.writeFailures());
+		}
+		try (Stream<Path> entries = Files.list(directory)) {
+			assertEquals(List.of(blocked), entries.collect(Collectors.toList()));
+		}
+	}
+}
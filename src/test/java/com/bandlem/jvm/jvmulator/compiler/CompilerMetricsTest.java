@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+public class CompilerMetricsTest {
+	@Test
+	void testAverage() {
+		final CompilerMetrics metrics = new CompilerMetrics();
+		assertEquals(0, metrics.getAverageCompileMillis());
+		metrics.compiles.add(4);
+		metrics.nanos.add(10_000_000);
+		assertEquals(2.5, metrics.getAverageCompileMillis());
+	}
+	@Test
+	void testGlobal() throws IOException {
+		final CompilerMetrics metrics = CompilerMetrics.global();
+		assertSame(metrics, CompilerMetrics.global());
+		try (CompileCache cache = new CompileCache()) {
+			// The first compile waits for the cache's worker to finish warming up, which is also counted
+			final SourceFile source = new SourceFile("Metrics", "class Metrics { }");
+			assertTrue(cache.compile(source).success);
+			final long compiles = metrics.getCompiles();
+			final long failures = metrics.getFailedCompiles();
+			final long hits = metrics.getCacheHits();
+			final long misses = metrics.getCacheMisses();
+			assertTrue(cache.compile(source).success);
+			assertTrue(cache.compile(new SourceFile("Other", "class Other { }")).success);
+			assertFalse(cache.compile(new SourceFile("Broken", "class Broken {")).success);
+			assertEquals(compiles + 2, metrics.getCompiles());
+			assertEquals(failures + 1, metrics.getFailedCompiles());
+			assertEquals(hits + 1, metrics.getCacheHits());
+			assertEquals(misses + 2, metrics.getCacheMisses());
+			assertTrue(metrics.getAverageCompileMillis() > 0);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.compiler.CompileCache.Result;
+public class CompilerPoolTest {
+	private static final SourceFile BROKEN_B = new SourceFile("B", "public class B { int }");
+	private static SourceFile source(final String name) {
+		return new SourceFile(name, "public class " + name + " { String name() { return \"" + name + "\"; } }");
+	}
+	@Test
+	void testCompile() throws IOException {
+		try (CompilerPool pool = new CompilerPool(2, 16)) {
+			assertEquals(2, pool.workers());
+			final List<CompletableFuture<Result>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(pool.compile(source("Unit" + i)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				final Result result = futures.get(i).join();
+				assertTrue(result.success);
+				assertEquals(1, result.classes.size());
+				assertNotNull(result.getBytes("Unit" + i));
+			}
+			final Result broken = pool.compile(List.of("-Werror"), new SourceFile("Broken", "class Broken { int }"))
+					.join();
+			assertFalse(broken.success);
+			assertFalse(broken.diagnostics.isEmpty());
+			assertTrue(broken.classes.isEmpty());
+		}
+	}
+	@Test
+	void testFailedWarmUp() throws IOException {
+		final AtomicBoolean warm = new AtomicBoolean();
+		try (CompilerPool pool = new CompilerPool(1, 1) {
+			@Override
+			JavaC newJavaC(final InMemoryFileManager fileManager) {
+				if (warm.compareAndSet(false, true)) {
+					throw new IllegalStateException("Warm-up failed");
+				}
+				return super.newJavaC(fileManager);
+			}
+		}) {
+			assertTrue(pool.compile(source("Cold")).join().success);
+			assertTrue(warm.get());
+		}
+	}
+	@Test
+	void testInterrupted() throws IOException, InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CompilerPool pool = new CompilerPool(1, 1);
+		final CompletableFuture<InMemoryFileManager> blocked = pool.submit(fileManager -> {
+			started.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return fileManager;
+		});
+		started.await();
+		Thread.currentThread().interrupt();
+		pool.close();
+		assertTrue(Thread.interrupted());
+		assertThrows(CompletionException.class, blocked::join);
+	}
+	@Test
+	void testIsolation() throws IOException {
+		try (CompilerPool pool = new CompilerPool(1, 1)) {
+			final Result first = pool.compile(source("First")).join();
+			final Result second = pool.compile(source("Second")).join();
+			assertNotNull(first.getBytes("First"));
+			assertNull(second.getBytes("First"));
+			assertNotNull(second.getBytes("Second"));
+			assertFalse(pool.compile(new SourceFile("Dependent", "class Dependent { First first; }")).join().success);
+		}
+	}
+	@Test
+	void testRejected() throws IOException, InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		try (CompilerPool pool = new CompilerPool(1, 1)) {
+			final CompletableFuture<InMemoryFileManager> blocked = pool.submit(fileManager -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return fileManager;
+			});
+			started.await();
+			final CompletableFuture<Result> queued = pool.compile(source("Queued"));
+			assertThrows(RejectedExecutionException.class, () -> pool.compile(source("Rejected")));
+			release.countDown();
+			final InMemoryFileManager fileManager = blocked.join();
+			assertTrue(queued.join().success);
+			assertSame(fileManager, pool.submit(each -> each).join());
+		}
+	}
+	@Test
+	void testSharedClasses() throws IOException {
+		try (CompilerPool pool = new CompilerPool(2, 2, true)) {
+			final Result a = pool.compile(new SourceFile("A", "public class A { static int answer() { return 42; } }"))
+					.join();
+			assertTrue(a.success);
+			assertFalse(pool.compile(BROKEN_B).join().success);
+			final Result b = pool.compile(new SourceFile("B", "public class B { int answer = A.answer(); }")).join();
+			assertTrue(b.success, b.diagnostics::toString);
+			assertNotNull(b.getBytes("B"));
+			assertNull(b.getBytes("A"));
+			assertNull(b.getBytes("WarmUp"));
+			assertFalse(pool.compile(new SourceFile("C", "class C { WarmUp warmUp; }")).join().success);
+		}
+	}
+	@Test
+	void testTimeout() throws IOException, InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CompilerPool pool = new CompilerPool(1, 1);
+		final CompletableFuture<InMemoryFileManager> blocked = pool.submit(fileManager -> {
+			started.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (final InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return fileManager;
+		});
+		started.await();
+		pool.close(10, TimeUnit.MILLISECONDS);
+		assertFalse(Thread.currentThread().isInterrupted());
+		assertThrows(CompletionException.class, blocked::join);
+	}
+}
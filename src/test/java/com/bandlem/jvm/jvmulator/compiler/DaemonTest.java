@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.EmulatorMetrics;
+import com.bandlem.jvm.jvmulator.Slot;
+import com.bandlem.jvm.jvmulator.classfile.ClassMetrics;
+public class DaemonTest {
+	private static final String EXAMPLE = "public class Example {" //
+			+ " static byte asByte(int i) { return (byte) i; }" //
+			+ " static char asChar(int i) { return (char) i; }" //
+			+ " static short asShort(int i) { return (short) i; }" //
+			+ " static double doubled(double d) { return d * 2; }" //
+			+ " static String echo(String s) { return s; }" //
+			+ " static boolean not(boolean b) { return !b; }" //
+			+ " static void nothing() { }" //
+			+ " static float scale(float f, long l) { return f * l; }" //
+			+ " static long sum(long a, int b) { return a + b; }" //
+			+ " static int version() { return 1; } }";
+	private static void compile(final DataOutputStream out, final String name, final String source,
+			final String... options) throws IOException {
+		out.writeByte(Daemon.COMPILE);
+		out.writeInt(options.length);
+		for (final String option : options) {
+			Daemon.writeString(out, option);
+		}
+		out.writeInt(1);
+		Daemon.writeString(out, name);
+		Daemon.writeString(out, source);
+	}
+	private static void emulate(final DataOutputStream out, final String method, final String descriptor)
+			throws IOException {
+		out.writeByte(Daemon.EMULATE);
+		Daemon.writeString(out, "Example");
+		Daemon.writeString(out, method);
+		Daemon.writeString(out, descriptor);
+	}
+	private static Map<String, byte[]> readCompiled(final DataInputStream in, final byte status)
+			throws IOException {
+		assertEquals(status, in.readByte());
+		for (int i = in.readInt(); i > 0; i--) {
+			assertFalse(Daemon.readString(in).isEmpty());
+		}
+		final Map<String, byte[]> classes = new HashMap<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			final String name = Daemon.readString(in);
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			classes.put(name, bytes);
+		}
+		return classes;
+	}
+	private static String readError(final DataInputStream in) throws IOException {
+		assertEquals(Daemon.ERROR, in.readByte());
+		return Daemon.readString(in);
+	}
+	// Serves the request and returns the messages of the error responses, which must be all that was sent
+	private static List<String> serve(final ByteArrayOutputStream request) throws IOException {
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (Daemon daemon = new Daemon()) {
+			daemon.serve(new ByteArrayInputStream(request.toByteArray()), response);
+		}
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.toByteArray()));
+		final List<String> errors = new ArrayList<>();
+		for (int status = in.read(); status != -1; status = in.read()) {
+			assertEquals(Daemon.ERROR, status);
+			errors.add(Daemon.readString(in).replace(IllegalArgumentException.class.getName() + ": ", ""));
+		}
+		return errors;
+	}
+	@Test
+	void testArguments() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte('D');
+		out.writeDouble(1.5);
+		out.writeByte('F');
+		out.writeFloat(2.5F);
+		out.writeByte('I');
+		out.writeInt(3);
+		out.writeByte('J');
+		out.writeLong(4L);
+		out.writeByte('L');
+		Daemon.writeString(out, "five");
+		out.writeByte('Z');
+		out.writeBoolean(true);
+		out.writeByte('X');
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(1.5, Daemon.readArgument(in).doubleValue());
+		assertEquals(2.5F, Daemon.readArgument(in).floatValue());
+		assertEquals(3, Daemon.readArgument(in).intValue());
+		assertEquals(4L, Daemon.readArgument(in).longValue());
+		assertEquals("five", Daemon.readArgument(in).referenceValue());
+		assertTrue(Daemon.readArgument(in).booleanValue());
+		assertThrows(IllegalArgumentException.class, () -> Daemon.readArgument(in));
+	}
+	@Test
+	void testFraming() throws IOException {
+		final ByteArrayOutputStream argument = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(argument);
+		emulate(out, "version", "()I");
+		out.writeInt(1);
+		out.writeByte('Q');
+		out.writeInt(0x43434343);
+		out.writeByte(Daemon.RESET);
+		assertEquals(List.of("Unknown argument type Q"), serve(argument));
+		final ByteArrayOutputStream type = new ByteArrayOutputStream();
+		type.write('?');
+		type.write(Daemon.RESET);
+		assertEquals(List.of("Unknown request type 63"), serve(type));
+		final ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+		emulate(new DataOutputStream(truncated), "version", "()I");
+		assertThrows(EOFException.class, () -> serve(truncated));
+	}
+	@Test
+	void testMain() throws IOException {
+		final InputStream stdin = System.in;
+		final PrintStream stdout = System.out;
+		try {
+			System.setIn(new ByteArrayInputStream(new byte[] {
+					Daemon.RESET
+			}));
+			final ByteArrayOutputStream response = new ByteArrayOutputStream();
+			System.setOut(new PrintStream(response));
+			Daemon.main(new String[0]);
+			assertSame(System.err, System.out);
+			assertEquals(1, response.size());
+			assertEquals(Daemon.OK, response.toByteArray()[0]);
+		} finally {
+			System.setIn(stdin);
+			System.setOut(stdout);
+		}
+	}
+	@Test
+	void testRegister() throws JMException {
+		final MBeanServer server = MBeanServerFactory.newMBeanServer();
+		Daemon.register(server);
+		Daemon.register(server);
+		assertTrue(server.getAttribute(new ObjectName(EmulatorMetrics.NAME), "FramesCreated") instanceof Long);
+		assertTrue(server.getAttribute(new ObjectName(ClassMetrics.NAME), "ClassesParsed") instanceof Long);
+		assertTrue(server.getAttribute(new ObjectName(CompilerMetrics.NAME), "AverageCompileMillis") instanceof Double);
+		final MBeanServer failing = (MBeanServer) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {
+				MBeanServer.class
+		}, (proxy, method, args) -> {
+			if (method.getName().equals("isRegistered")) {
+				return false;
+			}
+			throw new NotCompliantMBeanException();
+		});
+		assertThrows(IllegalStateException.class, () -> Daemon.register(failing));
+	}
+	@Test
+	void testServe() throws IOException {
+		final ByteArrayOutputStream request = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(request);
+		compile(out, "Example", EXAMPLE, "-g");
+		compile(out, "User", "public class User { int version() { return Example.version(); } }");
+		compile(out, "Broken", "public class Broken { int }");
+		compile(out, "Bad", "class Bad { }", "-bogus");
+		emulate(out, "asByte", "(I)B");
+		out.writeInt(1);
+		out.writeByte('I');
+		out.writeInt(0x1ff);
+		emulate(out, "asChar", "(I)C");
+		out.writeInt(1);
+		out.writeByte('I');
+		out.writeInt(65);
+		emulate(out, "asShort", "(I)S");
+		out.writeInt(1);
+		out.writeByte('I');
+		out.writeInt(0x18000);
+		emulate(out, "doubled", "(D)D");
+		out.writeInt(1);
+		out.writeByte('D');
+		out.writeDouble(5);
+		emulate(out, "echo", "(Ljava/lang/String;)Ljava/lang/String;");
+		out.writeInt(1);
+		out.writeByte('L');
+		Daemon.writeString(out, "hello");
+		emulate(out, "not", "(Z)Z");
+		out.writeInt(1);
+		out.writeByte('Z');
+		out.writeBoolean(true);
+		emulate(out, "nothing", "()V");
+		out.writeInt(0);
+		emulate(out, "scale", "(FJ)F");
+		out.writeInt(2);
+		out.writeByte('F');
+		out.writeFloat(1.5F);
+		out.writeByte('J');
+		out.writeLong(4);
+		emulate(out, "sum", "(JI)J");
+		out.writeInt(2);
+		out.writeByte('J');
+		out.writeLong(1L << 40);
+		out.writeByte('I');
+		out.writeInt(2);
+		emulate(out, "missing", "()V");
+		out.writeInt(0);
+		emulate(out, "version", "()I");
+		out.writeInt(0);
+		compile(out, "Example", EXAMPLE.replace("return 1;", "return 2;"));
+		emulate(out, "version", "()I");
+		out.writeInt(0);
+		out.writeByte(Daemon.RESET);
+		emulate(out, "version", "()I");
+		out.writeInt(0);
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (Daemon daemon = new Daemon()) {
+			daemon.serve(new ByteArrayInputStream(request.toByteArray()), response);
+		}
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.toByteArray()));
+		final Map<String, byte[]> example = readCompiled(in, Daemon.OK);
+		assertEquals(1, example.size());
+		assertEquals(0xcafebabe, new DataInputStream(new ByteArrayInputStream(example.get("Example"))).readInt());
+		assertEquals(1, readCompiled(in, Daemon.OK).size());
+		assertTrue(readCompiled(in, Daemon.FAILED).isEmpty());
+		assertTrue(readError(in).contains("-bogus"));
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(-1, in.readInt());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals('A', in.readInt());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(Short.MIN_VALUE, in.readInt());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(10.0, in.readDouble());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals("hello", Daemon.readString(in));
+		assertEquals(Daemon.OK, in.readByte());
+		assertFalse(in.readBoolean());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(6F, in.readFloat());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals((1L << 40) + 2, in.readLong());
+		assertTrue(readError(in).contains("Example.missing()V"));
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(1, in.readInt());
+		assertEquals(1, readCompiled(in, Daemon.OK).size());
+		assertEquals(Daemon.OK, in.readByte());
+		assertEquals(2, in.readInt());
+		assertEquals(Daemon.OK, in.readByte());
+		assertTrue(readError(in).contains("Example has not been compiled"));
+		assertEquals(-1, in.read());
+	}
+	@Test
+	void testThrowable() throws IOException {
+		final ByteArrayOutputStream request = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(request);
+		emulate(out, "failing", "()V");
+		out.writeInt(0);
+		emulate(out, "deep", "()V");
+		out.writeInt(0);
+		out.writeByte(Daemon.RESET);
+		final ByteArrayOutputStream response = new ByteArrayOutputStream();
+		try (Daemon daemon = new Daemon() {
+			@Override
+			Slot emulate(final String className, final String methodName, final String descriptor,
+					final Slot... arguments) {
+				if (methodName.equals("deep")) {
+					throw new StackOverflowError(methodName);
+				}
+				throw new IllegalStateException(methodName);
+			}
+		}) {
+			assertThrows(StackOverflowError.class,
+					() -> daemon.serve(new ByteArrayInputStream(request.toByteArray()), response));
+		}
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(response.toByteArray()));
+		assertTrue(readError(in).contains("IllegalStateException: failing"));
+		assertEquals(-1, in.read());
+	}
+	@Test
+	void testWarmClasses() throws IOException {
+		try (Daemon daemon = new Daemon()) {
+			assertThrows(IllegalArgumentException.class, () -> daemon.getJavaClass("WarmUp"));
+			assertThrows(IllegalArgumentException.class, () -> daemon.emulate("Missing", "run", "()V", Slot.of(1)));
+		}
+	}
+}
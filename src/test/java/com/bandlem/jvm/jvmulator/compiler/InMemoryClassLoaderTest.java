@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.JVMFrame;
+import com.bandlem.jvm.jvmulator.Slot;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+public class InMemoryClassLoaderTest {
+	@Test
+	void testJavaClass() throws ReflectiveOperationException {
+		final JavaC javac = new JavaC();
+		assertTrue(javac.compile(new SourceFile("Twice", "public class Twice { public static int twice(int i) {"
+				+ " return i + i; } }")));
+		final InMemoryClassLoader loader = javac.newClassLoader();
+		final JavaClass javaClass = loader.getJavaClass("Twice");
+		assertEquals("Twice", javaClass.this_class);
+		assertSame(javaClass, loader.getJavaClass("Twice"));
+		assertNull(loader.getJavaClass("Missing"));
+		final Object expected = loader.loadClass("Twice").getMethod("twice", int.class).invoke(null, 21);
+		final JVMFrame frame = new JVMFrame(javaClass, javaClass.getMethod("twice"));
+		frame.getLocals()[0] = Slot.of(21);
+		assertEquals(expected, frame.run().intValue());
+	}
+	@Test
+	void testLoad() throws ReflectiveOperationException {
+		final JavaC javac = new JavaC();
+		assertTrue(javac.compile(new SourceFile("Twice", "public class Twice { public static int twice(int i) {"
+				+ " return i + i; } }"), new SourceFile("Other", "class Other { }")));
+		final ClassLoader loader = javac.newClassLoader();
+		assertTrue(loader.isRegisteredAsParallelCapable());
+		final List<CompletableFuture<Class<?>>> loads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			final String name = i % 2 == 0 ? "Twice" : "Other";
+			loads.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return loader.loadClass(name);
+				} catch (final ClassNotFoundException e) {
+					throw new IllegalStateException(e);
+				}
+			}));
+		}
+		final Class<?> twice = loads.get(0).join();
+		for (int i = 0; i < loads.size(); i++) {
+			assertSame(i % 2 == 0 ? twice : loads.get(1).join(), loads.get(i).join());
+		}
+		assertThrows(ClassNotFoundException.class, () -> loader.loadClass("Missing"));
+	}
+}
@@ -7,14 +7,94 @@
  * http://www.eclipse.org/legal/epl-v10.html
  */
 package com.bandlem.jvm.jvmulator.compiler;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
 import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
 public class InMemoryFileManagerTest {
+	@Test
+	void testBuffers() throws IOException, ReflectiveOperationException {
+		try (final InMemoryFileManager inMemory = new InMemoryFileManager()) {
+			final JavaC javac = new JavaC(new DiagnosticCollector<JavaFileObject>(),
+					ToolProvider.getSystemJavaCompiler(), inMemory);
+			assertTrue(javac.compile(new SourceFile("Buffered", "public class Buffered { }")));
+			final ByteBuffer buffer = javac.getBuffer("Buffered");
+			assertTrue(buffer.isReadOnly());
+			assertArrayEquals(javac.getBytes("Buffered"), InMemoryFileManager.toBytes(buffer));
+			assertEquals("Buffered", new JavaClass(buffer).this_class);
+			assertEquals(0, buffer.position());
+			final Map<String, ByteBuffer> classes = javac.getClasses();
+			assertTrue(classes.get("Buffered").isReadOnly());
+			assertThrows(UnsupportedOperationException.class, () -> classes.remove("Buffered"));
+			assertEquals("Buffered", javac.newClassLoader().loadClass("Buffered").getName());
+			inMemory.reset();
+			assertNull(inMemory.getBuffer("Buffered"));
+			assertEquals(1, classes.size());
+		}
+	}
+	@Test
+	void testClassPath() throws IOException, ReflectiveOperationException {
+		try (final InMemoryFileManager inMemory = new InMemoryFileManager()) {
+			final JavaC javac = new JavaC(new DiagnosticCollector<JavaFileObject>(),
+					ToolProvider.getSystemJavaCompiler(), inMemory);
+			assertTrue(javac.compile(new SourceFile("lib/Base", "package lib; public class Base {"
+					+ " public static class Inner { public int answer() { return 42; } } }")));
+			assertTrue(javac.compile(new SourceFile("app/Main",
+					"package app; public class Main { public int call() { return new lib.Base.Inner().answer(); } }")));
+			assertEquals(3, inMemory.getClasses().size());
+			final Class<?> main = javac.newClassLoader().loadClass("app.Main");
+			assertEquals(42, main.getMethod("call").invoke(main.getConstructor().newInstance()));
+			final Set<Kind> classes = EnumSet.of(Kind.CLASS);
+			int count = 0;
+			for (final JavaFileObject file : inMemory.list(StandardLocation.CLASS_PATH, "lib", classes, false)) {
+				if (file instanceof ClassFile) {
+					final String name = inMemory.inferBinaryName(StandardLocation.CLASS_PATH, file);
+					assertEquals("/" + name.replace('.', '/') + ".class", file.toUri().getPath());
+					assertEquals(0xcafebabe, new DataInputStream(file.openInputStream()).readInt());
+					count++;
+				}
+			}
+			assertEquals(2, count);
+			assertFalse(inMemory.list(StandardLocation.SOURCE_PATH, "lib", classes, false).iterator().hasNext());
+			assertFalse(inMemory.list(StandardLocation.CLASS_PATH, "lib", EnumSet.of(Kind.SOURCE), true).iterator()
+					.hasNext());
+			assertThrows(IllegalArgumentException.class,
+					() -> inMemory.inferBinaryName(StandardLocation.CLASS_PATH, new SourceFile("X", "")));
+			inMemory.reset();
+			assertFalse(javac.compile(new SourceFile("app/Main",
+					"package app; public class Main { lib.Base base; }")));
+		}
+	}
 	@Test
 	void testInMemory() throws IOException {
 		try (final InMemoryFileManager inMemory = new InMemoryFileManager()) {
 			assertNull(inMemory.getBytes("Missing"));
+			assertNull(inMemory.getBuffer("Missing"));
 		}
 	}
+	@Test
+	void testInPackage() {
+		assertTrue(InMemoryFileManager.inPackage("Top", "", false));
+		assertFalse(InMemoryFileManager.inPackage("a.b.C", "", false));
+		assertTrue(InMemoryFileManager.inPackage("a.b.C", "", true));
+		assertTrue(InMemoryFileManager.inPackage("a.b.C", "a.b", false));
+		assertFalse(InMemoryFileManager.inPackage("a.b.C", "a", false));
+		assertTrue(InMemoryFileManager.inPackage("a.b.C", "a", true));
+		assertFalse(InMemoryFileManager.inPackage("ab.C", "a", true));
+	}
 }
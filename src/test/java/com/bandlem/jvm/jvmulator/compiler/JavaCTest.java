@@ -8,10 +8,18 @@
  */
 package com.bandlem.jvm.jvmulator.compiler;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 public class JavaCTest {
 	private static final String TEST_PROPERTY = "com.bandlem.jvm.jvmulator.example.run";
 	private SourceFile getSourceFile() {
@@ -40,6 +48,24 @@ public class JavaCTest {
 		assertEquals("true", System.getProperty(TEST_PROPERTY));
 	}
 	@Test
+	void testEvents(@TempDir final Path temp) throws IOException {
+		final Path file = temp.resolve("events.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(CompileEvent.class);
+			recording.start();
+			assertTrue(new JavaC().compile(getSourceFile()));
+			assertFalse(new JavaC().compile(new SourceFile("Broken", "class Broken {"), getSourceFile()));
+			recording.stop();
+			recording.dump(file);
+		}
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		assertEquals(2, events.size());
+		assertEquals(1, events.get(0).getInt("sources"));
+		assertTrue(events.get(0).getBoolean("success"));
+		assertEquals(2, events.get(1).getInt("sources"));
+		assertFalse(events.get(1).getBoolean("success"));
+	}
+	@Test
 	void testNotFound() {
 		final JavaC javac = new JavaC();
 		assertThrows(ClassNotFoundException.class, () -> javac.newClassLoader().loadClass("missing"));
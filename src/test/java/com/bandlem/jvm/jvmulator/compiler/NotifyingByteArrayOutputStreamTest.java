@@ -8,26 +8,31 @@
  */
 package com.bandlem.jvm.jvmulator.compiler;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 public class NotifyingByteArrayOutputStreamTest {
 	@Test
 	void testNBAOS() throws IOException {
-		final byte[][] result = new byte[1][];
-		final Consumer<byte[]> listener = (data) -> {
+		final ByteBuffer[] result = new ByteBuffer[1];
+		final Consumer<ByteBuffer> listener = (data) -> {
 			result[0] = data;
 		};
-		try (final NotifyingByteArrayOutputStream nbaos = new NotifyingByteArrayOutputStream(0, listener)) {
+		try (final NotifyingByteArrayOutputStream nbaos = new NotifyingByteArrayOutputStream(64, listener)) {
 			final String message = "Hello World!";
 			nbaos.write(message.getBytes());
 			assertNull(result[0]);
 			nbaos.flush();
 			assertNull(result[0]);
 			nbaos.close();
-			assertArrayEquals(message.getBytes(), result[0]);
+			assertArrayEquals(message.getBytes(), InMemoryFileManager.toBytes(result[0]));
+			// The view shares the stream's own buffer rather than a trimmed copy
+			assertEquals(64, result[0].array().length);
+			assertEquals(message.length(), result[0].remaining());
 		}
 	}
 	@Test
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.JVMFrame;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ClassWriter;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member.Method;
+public class CodeRewriterTest {
+	@Test
+	void testOptimise() throws IOException {
+		final JavaClass constants = InstructionsTest.constants();
+		final Method answer = new Method((short) (Modifier.PUBLIC | Modifier.STATIC), "answer", "()I",
+				new Attribute[] {
+						new Code((short) 2, (short) 0, new byte[] {
+								BIPUSH, 100, SIPUSH, 4, 0, IMUL, ICONST_0, IFNE, 0, 8, NOP, GOTO, 0, 3, IRETURN,
+								ICONST_0, IRETURN
+						}, new ExceptionTable(), new Attribute[0]), new Unknown("Deprecated", new byte[0])
+				});
+		final JavaClass original = new JavaClass(constants.minor, constants.major, constants.pool, constants.flags,
+				constants.this_class, constants.super_class, constants.interfaces, constants.fields, new Method[] {
+						answer
+				}, constants.classAttributes);
+		assertEquals(102400, new JVMFrame(original, answer).run().intValue());
+		final JavaClass optimised = CodeRewriter.optimiser().rewrite(original);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ClassWriter.write(optimised, bytes);
+		final JavaClass written = new JavaClass(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		final Method method = written.getMethod("answer");
+		final Code code = method.getCodeAttribute();
+		assertEquals(1, code.getMaxStack());
+		assertEquals(3, code.getBytecode().length);
+		assertEquals(LDC, code.getBytecode()[0]);
+		assertEquals(IRETURN, code.getBytecode()[2]);
+		assertEquals("Deprecated", method.attributes[1].attributeName);
+		assertEquals(102400, new JVMFrame(written, method).run().intValue());
+	}
+	@Test
+	void testUnchanged() {
+		final JavaClass javaClass = InstructionsTest.constants();
+		final JavaClass rewritten = CodeRewriter.optimiser().rewrite(javaClass);
+		assertEquals(javaClass.pool.size(), rewritten.pool.size());
+		assertEquals(javaClass.methods.length, rewritten.methods.length);
+		for (int i = 0; i < javaClass.methods.length; i++) {
+			assertSame(javaClass.methods[i].getCodeAttribute(), rewritten.methods[i].getCodeAttribute());
+		}
+		final Code code = javaClass.getMethod("values").getCodeAttribute();
+		assertSame(code, new CodeRewriter().rewrite(code, new ConstantPoolBuilder(javaClass.pool)));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+public class ConstantFoldingTest {
+	private static byte[] fold(final byte[] bytecode) {
+		final Instructions instructions = InstructionsTest.instructions(bytecode);
+		new ConstantFolding().apply(instructions);
+		return instructions.toCode().getBytecode();
+	}
+	@Test
+	void testApply() {
+		assertArrayEquals(new byte[] {
+				BIPUSH, 7, IRETURN
+		}, fold(new byte[] {
+				ICONST_2, ICONST_3, IADD, ICONST_2, IADD, IRETURN
+		}));
+		assertArrayEquals(new byte[] {
+				BIPUSH, -3, IRETURN
+		}, fold(new byte[] {
+				ICONST_3, INEG, IRETURN
+		}));
+		assertArrayEquals(new byte[] {
+				GOTO, 0, 4, NOP, ICONST_1, IRETURN
+		}, fold(new byte[] {
+				ICONST_0, IFEQ, 0, 4, NOP, ICONST_1, IRETURN
+		}));
+		assertArrayEquals(new byte[] {
+				NOP, ICONST_1, IRETURN
+		}, fold(new byte[] {
+				ICONST_1, IFEQ, 0, 4, NOP, ICONST_1, IRETURN
+		}));
+		final byte[] unchanged = {
+				ICONST_1, ICONST_0, IDIV, ICONST_1, ILOAD_0, IADD, ICONST_1, ICONST_2, SWAP, IADD, IRETURN
+		};
+		assertArrayEquals(unchanged, fold(unchanged));
+		final byte[] trailing = {
+				ICONST_1, ICONST_2
+		};
+		assertArrayEquals(trailing, fold(trailing));
+		assertArrayEquals(new byte[] {
+				ICONST_1, ICONST_2, IADD, IFEQ, -1, -1, ICONST_3, IRETURN
+		}, fold(new byte[] {
+				ICONST_1, ICONST_2, IADD, IFEQ, -1, -1, ICONST_1, ICONST_2, IADD, IRETURN
+		}));
+		final Instructions instructions = InstructionsTest.instructions(new byte[] {
+				ICONST_1, GOTO, 0, 4, ICONST_2, IRETURN
+		});
+		assertFalse(new ConstantFolding().apply(instructions));
+		instructions.replace(0, 1, new Instruction(ICONST_1), new Instruction(ICONST_2), new Instruction(IADD));
+		instructions.retarget(instructions.get(3), instructions.get(1));
+		assertFalse(new ConstantFolding().apply(instructions));
+	}
+	@Test
+	void testFold() {
+		assertEquals(23, ConstantFolding.fold(IADD, 20, 3));
+		assertEquals(17, ConstantFolding.fold(ISUB, 20, 3));
+		assertEquals(60, ConstantFolding.fold(IMUL, 20, 3));
+		assertEquals(6, ConstantFolding.fold(IDIV, 20, 3));
+		assertNull(ConstantFolding.fold(IDIV, 20, 0));
+		assertEquals(2, ConstantFolding.fold(IREM, 20, 3));
+		assertNull(ConstantFolding.fold(IREM, 20, 0));
+		assertEquals(0, ConstantFolding.fold(IAND, 20, 3));
+		assertEquals(23, ConstantFolding.fold(IOR, 20, 3));
+		assertEquals(23, ConstantFolding.fold(IXOR, 20, 3));
+		assertEquals(160, ConstantFolding.fold(ISHL, 20, 3));
+		assertEquals(-3, ConstantFolding.fold(ISHR, -20, 3));
+		assertEquals(0x1ffffffd, ConstantFolding.fold(IUSHR, -20, 3));
+		assertNull(ConstantFolding.fold(LADD, 20, 3));
+	}
+	@Test
+	void testPush() {
+		final ConstantPoolBuilder pool = new ConstantPoolBuilder(InstructionsTest.constants().pool);
+		for (int i = -1; i <= 5; i++) {
+			assertEquals(ICONST_0 + i, ConstantFolding.push(i, pool).opcode);
+		}
+		assertEquals(BIPUSH, ConstantFolding.push(-128, pool).opcode);
+		assertEquals(SIPUSH, ConstantFolding.push(1000, pool).opcode);
+		final Instruction ldc = ConstantFolding.push(100000, pool);
+		assertEquals(LDC, ldc.opcode);
+		assertEquals(100000, ((IntConstant) pool.getItem(ldc.index())).value);
+		while (pool.size() < 256) {
+			pool.addUTF("filler" + pool.size());
+		}
+		final Instruction wide = ConstantFolding.push(200000, pool);
+		assertEquals(LDC_W, wide.opcode);
+		assertEquals(200000, ((IntConstant) pool.getItem(wide.index())).value);
+		assertEquals(200000, ConstantFolding.value(wide, pool));
+	}
+	@Test
+	void testTaken() {
+		assertTrue(ConstantFolding.taken(IFEQ, 0));
+		assertTrue(ConstantFolding.taken(IFNE, 1));
+		assertTrue(ConstantFolding.taken(IFLT, -1));
+		assertTrue(ConstantFolding.taken(IFGE, 0));
+		assertTrue(ConstantFolding.taken(IFGT, 1));
+		assertTrue(ConstantFolding.taken(IFLE, 0));
+		assertFalse(ConstantFolding.taken(IFLT, 0));
+		assertFalse(ConstantFolding.taken(IFGE, -1));
+		assertFalse(ConstantFolding.taken(IFGT, 0));
+		assertFalse(ConstantFolding.taken(IFLE, 1));
+		assertNull(ConstantFolding.taken(GOTO, 0));
+	}
+	@Test
+	void testValue() {
+		final ConstantPoolBuilder pool = new ConstantPoolBuilder(InstructionsTest.constants().pool);
+		assertEquals(-1, ConstantFolding.value(new Instruction(ICONST_M1), pool));
+		assertEquals(5, ConstantFolding.value(new Instruction(ICONST_5), pool));
+		assertEquals(-2, ConstantFolding.value(new Instruction(BIPUSH, (byte) -2), pool));
+		assertEquals(-2, ConstantFolding.value(new Instruction(SIPUSH, (byte) -1, (byte) -2), pool));
+		final int integer = InstructionsTest.index(pool, IntConstant.class);
+		assertEquals(100000, ConstantFolding.value(new Instruction(LDC, (byte) integer), pool));
+		final int string = InstructionsTest.index(pool, StringConstant.class);
+		assertNull(ConstantFolding.value(new Instruction(LDC, (byte) string), pool));
+		assertNull(ConstantFolding.value(new Instruction(ILOAD_0), pool));
+	}
+}
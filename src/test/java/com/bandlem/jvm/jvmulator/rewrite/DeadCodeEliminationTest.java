@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+public class DeadCodeEliminationTest {
+	@Test
+	void testApply() {
+		final Instructions instructions = new Instructions(InstructionsTest.code(new byte[] {
+				ILOAD_0, IFEQ, 0, 6, ICONST_1, IRETURN, ICONST_2, ICONST_0, IRETURN, ICONST_3, IRETURN, ATHROW, ATHROW
+		}, new Handler(4, 6, 11, null), new Handler(9, 11, 12, null)), new ConstantPoolBuilder(
+				InstructionsTest.constants().pool));
+		assertTrue(new DeadCodeElimination().apply(instructions));
+		assertFalse(new DeadCodeElimination().apply(instructions));
+		final Code code = instructions.toCode();
+		assertArrayEquals(new byte[] {
+				ILOAD_0, IFEQ, 0, 5, ICONST_1, IRETURN, ICONST_0, IRETURN, ATHROW
+		}, code.getBytecode());
+		assertEquals(1, code.getExceptionTable().size());
+		assertEquals(4, code.getExceptionTable().handlers[0].startPC);
+		assertEquals(6, code.getExceptionTable().handlers[0].endPC);
+		assertEquals(8, code.getExceptionTable().handlers[0].handlerPC);
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+public class InstructionTest {
+	@Test
+	void testBranch() {
+		assertTrue(Instruction.isBranch(IFEQ));
+		assertTrue(Instruction.isBranch(JSR));
+		assertTrue(Instruction.isBranch(IFNULL));
+		assertTrue(Instruction.isBranch(JSR_W));
+		assertFalse(Instruction.isBranch(NOP));
+		assertFalse(Instruction.isBranch(ARETURN));
+		assertFalse(Instruction.isBranch((byte) 0xca));
+		assertTrue(Instruction.isSwitch(TABLESWITCH));
+		assertTrue(Instruction.isSwitch(LOOKUPSWITCH));
+		assertFalse(Instruction.isSwitch(GOTO));
+	}
+	@Test
+	void testSize() {
+		final Instruction target = new Instruction(RETURN);
+		assertEquals(1, target.size(0));
+		assertEquals(2, new Instruction(BIPUSH, (byte) 1).size(0));
+		assertEquals(3, new Instruction(GOTO, target).size(0));
+		assertEquals(5, new Instruction(GOTO_W, target).size(0));
+		assertEquals(5, new Instruction(JSR_W, target).size(0));
+		final Instruction[] targets = {
+				target, target
+		};
+		assertEquals(24, new Instruction(TABLESWITCH, new byte[0], target, targets, new int[2]).size(0));
+		assertEquals(21, new Instruction(TABLESWITCH, new byte[0], target, targets, new int[2]).size(3));
+		assertEquals(27, new Instruction(LOOKUPSWITCH, new byte[0], target, targets, new int[2]).size(1));
+	}
+	@Test
+	void testTargets() {
+		final Instruction first = new Instruction(ICONST_0);
+		final Instruction second = new Instruction(ICONST_1);
+		final Instruction other = new Instruction(RETURN);
+		final Instruction lookup = new Instruction(LOOKUPSWITCH, new byte[0], other, new Instruction[] {
+				first, second
+		}, new int[2]);
+		assertTrue(lookup.references(other));
+		assertTrue(lookup.references(second));
+		assertFalse(lookup.references(new Instruction(NOP)));
+		assertFalse(lookup.fallsThrough());
+		lookup.retarget(second, first);
+		assertSame(first, lookup.targets[1]);
+		assertFalse(lookup.references(second));
+		lookup.retarget(other, first);
+		assertSame(first, lookup.target);
+		final Instruction branch = new Instruction(IFEQ, other);
+		assertTrue(branch.fallsThrough());
+		assertFalse(branch.references(first));
+		branch.retarget(first, second);
+		assertSame(other, branch.target);
+		assertEquals("lookupswitch", lookup.toString());
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.Attribute;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Code;
+import com.bandlem.jvm.jvmulator.classfile.Attribute.Unknown;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable;
+import com.bandlem.jvm.jvmulator.classfile.ExceptionTable.Handler;
+import com.bandlem.jvm.jvmulator.classfile.JavaClass;
+import com.bandlem.jvm.jvmulator.classfile.Member.Method;
+public class InstructionsTest {
+	static class Constants {
+		static Object[] values() {
+			return new Object[] {
+					2.5F, "text", 100000, String.class, 123456789L
+			};
+		}
+	}
+	static Code code(final byte[] bytecode, final Handler... handlers) {
+		return new Code((short) 0, (short) 2, bytecode, new ExceptionTable(handlers), new Attribute[0]);
+	}
+	static JavaClass constants() {
+		final String name = Constants.class.getName().replace('.', '/') + ".class";
+		try (InputStream stream = Constants.class.getClassLoader().getResourceAsStream(name)) {
+			return new JavaClass(new DataInputStream(stream));
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	static int index(final ConstantPoolBuilder pool, final Class<? extends Item> type) {
+		for (int i = 1; i < pool.size(); i++) {
+			if (type.isInstance(pool.getItem(i))) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(type.getName());
+	}
+	static Instructions instructions(final byte[] bytecode) {
+		return new Instructions(code(bytecode), new ConstantPoolBuilder(constants().pool));
+	}
+	@Test
+	void testBranchOutOfRange() {
+		final Instructions instructions = instructions(new byte[] {
+				GOTO, 0, 3, RETURN
+		});
+		final Instruction[] nops = new Instruction[40000];
+		for (int i = 0; i < nops.length; i++) {
+			nops[i] = new Instruction(NOP);
+		}
+		instructions.replace(1, 0, nops);
+		assertThrows(IllegalStateException.class, instructions::toCode);
+	}
+	@Test
+	void testEdit() {
+		final Instructions instructions = instructions(new byte[] {
+				ICONST_0, IFEQ, 0, 4, ICONST_1, IRETURN
+		});
+		final Code unchanged = instructions.toCode();
+		assertSame(unchanged, instructions.toCode());
+		assertFalse(instructions.isChanged());
+		assertEquals(4, instructions.size());
+		assertEquals("ifeq", instructions.get(1).toString());
+		assertTrue(instructions.isTarget(instructions.get(3)));
+		assertFalse(instructions.isTarget(instructions.get(2)));
+		assertEquals(-1, instructions.indexOf(new Instruction(NOP)));
+		assertEquals(2, instructions.indexOf(instructions.get(2)));
+		instructions.retarget(instructions.get(1), instructions.get(2));
+		assertTrue(instructions.isChanged());
+		assertArrayEquals(new byte[] {
+				ICONST_0, IFEQ, 0, 3, ICONST_1, IRETURN
+		}, instructions.toCode().getBytecode());
+		instructions.replace(2, 2);
+		assertNull(instructions.get(1).target);
+	}
+	@Test
+	void testHandlers() {
+		final Instructions instructions = new Instructions(code(new byte[] {
+				ICONST_0, ICONST_1, IRETURN, ATHROW
+		}, new Handler(0, 3, 3, null), new Handler(1, 4, 3, "java/lang/Exception")), new ConstantPoolBuilder(
+				constants().pool));
+		assertTrue(instructions.isTarget(instructions.get(3)));
+		assertFalse(instructions.isTarget(instructions.get(2)));
+		assertEquals(2, instructions.maxStack());
+		instructions.replace(1, 1);
+		final Code code = instructions.toCode();
+		assertArrayEquals(new byte[] {
+				ICONST_0, IRETURN, ATHROW
+		}, code.getBytecode());
+		assertEquals(1, code.getMaxStack());
+		assertEquals(2, code.getMaxLocals());
+		final Handler[] handlers = code.getExceptionTable().handlers;
+		assertEquals(2, handlers.length);
+		assertEquals(0, handlers[0].startPC);
+		assertEquals(2, handlers[0].endPC);
+		assertEquals(1, handlers[1].startPC);
+		assertEquals(3, handlers[1].endPC);
+		assertEquals(2, handlers[1].handlerPC);
+		assertEquals("java/lang/Exception", handlers[1].catchType);
+		instructions.replace(0, 3);
+		assertEquals(0, instructions.toCode().getExceptionTable().size());
+		final byte[] bytecode = {
+				ICONST_0, IRETURN, ATHROW
+		};
+		final Instructions trailing = new Instructions(code(bytecode, new Handler(0, 1, 2, null)),
+				new ConstantPoolBuilder(constants().pool));
+		assertTrue(trailing.isTarget(trailing.get(0)));
+		assertTrue(trailing.isTarget(trailing.get(2)));
+		trailing.replace(2, 1);
+		assertEquals(0, trailing.toCode().getExceptionTable().size());
+		final Instructions empty = new Instructions(code(bytecode, new Handler(0, 1, 2, null)),
+				new ConstantPoolBuilder(constants().pool));
+		empty.replace(0, 1);
+		assertEquals(0, empty.toCode().getExceptionTable().size());
+	}
+	@Test
+	void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> instructions(new byte[] {
+				GOTO, -1, -1
+		}));
+		assertThrows(IllegalArgumentException.class, () -> instructions(new byte[] {
+				GOTO, 0, 4
+		}));
+		assertThrows(IllegalArgumentException.class, () -> instructions(new byte[] {
+				GOTO, 0, 4, SIPUSH, 0, 0, RETURN
+		}));
+	}
+	@Test
+	void testLineNumbers() {
+		final Instructions instructions = new Instructions(new Code((short) 1, (short) 0, new byte[] {
+				ICONST_0, ICONST_1, IRETURN
+		}, new ExceptionTable(), new Attribute[] {
+				new Unknown(Instructions.LINE_NUMBERS, new byte[] {
+						0, 2, 0, 0, 0, 10, 0, 1, 0, 11
+				}), new Unknown("StackMapTable", new byte[] {
+						0, 0
+				})
+		}), new ConstantPoolBuilder(constants().pool));
+		instructions.replace(0, 1);
+		Attribute[] attributes = instructions.toCode().getAttributes();
+		assertEquals(1, attributes.length);
+		assertArrayEquals(new byte[] {
+				0, 1, 0, 0, 0, 11
+		}, ((Unknown) attributes[0]).data);
+		instructions.replace(0, 2);
+		attributes = instructions.toCode().getAttributes();
+		assertEquals(0, attributes.length);
+	}
+	@Test
+	void testMaxStack() {
+		assertEquals(1, instructions(new byte[] {
+				JSR, 0, 4, RETURN, ASTORE_1, RET, 1
+		}).maxStack());
+		assertEquals(2, instructions(new byte[] {
+				WIDE, LLOAD, 0, 0, LRETURN
+		}).maxStack());
+		assertEquals(3, instructions(new byte[] {
+				ICONST_1, ICONST_2, ICONST_3, MULTIANEWARRAY, 0, 1, 3, ARETURN
+		}).maxStack());
+		assertEquals(0, instructions(new byte[] {
+				GOTO_W, 0, 0, 0, 5, RETURN
+		}).maxStack());
+		assertEquals(1, Instructions.slots("[J", true));
+		assertEquals(2, Instructions.slots("J", true));
+		assertEquals(2, Instructions.slots("(I[JLjava/lang/String;)D", false));
+		assertEquals(3, Instructions.slots("(I[JLjava/lang/String;)D", true));
+		assertEquals(0, Instructions.slots("()V", false));
+	}
+	@Test
+	void testRoundTrip() throws IOException {
+		final Path base = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules/java.base/java");
+		try (Stream<Path> paths = Stream.concat(Files.walk(base.resolve("lang")), Files.walk(base.resolve("util")))) {
+			final Iterator<Path> classes = paths.filter(path -> path.toString().endsWith(".class")).iterator();
+			while (classes.hasNext()) {
+				final JavaClass javaClass = new JavaClass(
+						new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(classes.next()))));
+				final ConstantPoolBuilder pool = new ConstantPoolBuilder(javaClass.pool);
+				for (final Method method : javaClass.methods) {
+					final Code code = method.getCodeAttribute();
+					if (code != null) {
+						final String name = javaClass.this_class + "." + method.name;
+						final Instructions instructions = new Instructions(code, pool);
+						instructions.replace(0, 1, instructions.get(0));
+						final Code rewritten = instructions.toCode();
+						assertEquals(code.getMaxStack(), rewritten.getMaxStack(), name);
+						assertArrayEquals(code.getBytecode(), rewritten.getBytecode(), name);
+						final Handler[] expected = code.getExceptionTable().handlers;
+						final Handler[] actual = rewritten.getExceptionTable().handlers;
+						assertEquals(expected.length, actual.length, name);
+						for (int i = 0; i < expected.length; i++) {
+							assertEquals(expected[i].startPC, actual[i].startPC, name);
+							assertEquals(expected[i].endPC, actual[i].endPC, name);
+							assertEquals(expected[i].handlerPC, actual[i].handlerPC, name);
+							assertEquals(expected[i].catchType, actual[i].catchType, name);
+						}
+					}
+				}
+			}
+		}
+	}
+	@Test
+	void testWide() {
+		final byte[] bytecode = {
+				GOTO_W, 0, 0, 0, 5, JSR_W, 0, 0, 0, 6, RETURN, ASTORE_1, RET, 1
+		};
+		final Instructions instructions = instructions(bytecode);
+		assertEquals(1, instructions.maxStack());
+		instructions.replace(0, 0, new Instruction(NOP));
+		final byte[] expected = new byte[bytecode.length + 1];
+		System.arraycopy(bytecode, 0, expected, 1, bytecode.length);
+		assertArrayEquals(expected, instructions.toCode().getBytecode());
+	}
+	@Test
+	void testSwitches() {
+		final byte[] bytecode = {
+				ILOAD_0, TABLESWITCH, 0, 0, 0, 0, 0, 43, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 23, 0, 0, 0, 44, //
+				ILOAD_0, LOOKUPSWITCH, 0, 0, 0, 0, 0, 19, 0, 0, 0, 1, 0, 0, 0, 7, -1, -1, -1, -1, //
+				ICONST_0, IRETURN
+		};
+		final Instructions instructions = instructions(bytecode);
+		assertEquals(1, instructions.maxStack());
+		instructions.replace(0, 1, new Instruction(ILOAD_1));
+		final byte[] expected = bytecode.clone();
+		expected[0] = ILOAD_1;
+		assertArrayEquals(expected, instructions.toCode().getBytecode());
+		instructions.replace(0, 0, new Instruction(NOP));
+		final byte[] shifted = instructions.toCode().getBytecode();
+		assertEquals(bytecode.length, shifted.length);
+		assertEquals(TABLESWITCH, shifted[2]);
+		assertArrayEquals(new byte[] {
+				0, 0, 0, 42, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 22, 0, 0, 0, 43
+		}, Arrays.copyOfRange(shifted, 4, 24));
+		assertArrayEquals(Arrays.copyOfRange(bytecode, 24, 46), Arrays.copyOfRange(shifted, 24, 46));
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020, Alex Blewitt, Bandlem Ltd
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package com.bandlem.jvm.jvmulator.rewrite;
+import static com.bandlem.jvm.jvmulator.Opcodes.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.ClassConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.FloatConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.IntConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.Item;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPool.StringConstant;
+import com.bandlem.jvm.jvmulator.classfile.ConstantPoolBuilder;
+public class PeepholeTest {
+	private static byte[] optimise(final byte[] bytecode) {
+		final Instructions instructions = InstructionsTest.instructions(bytecode);
+		new Peephole().apply(instructions);
+		return instructions.toCode().getBytecode();
+	}
+	@Test
+	void testApply() {
+		assertArrayEquals(new byte[] {
+				RETURN
+		}, optimise(new byte[] {
+				NOP, ICONST_1, POP, LCONST_0, POP2, GOTO, 0, 3, NOP, RETURN
+		}));
+		assertArrayEquals(new byte[] {
+				ILOAD_0, IFEQ, 0, 3, RETURN
+		}, optimise(new byte[] {
+				ILOAD_0, IFEQ, 0, 6, GOTO, 0, 3, GOTO, 0, 3, RETURN
+		}));
+		assertArrayEquals(new byte[] {
+				GOTO, 0, 0
+		}, optimise(new byte[] {
+				GOTO, 0, 3, GOTO, -1, -3
+		}));
+		final byte[] loop = {
+				ILOAD_0, IFEQ, 0, 3, GOTO, 0, 0, ICONST_0
+		};
+		assertArrayEquals(loop, optimise(loop));
+		final byte[] unchanged = {
+				ICONST_1, ISTORE_1, ICONST_1, POP2, ILOAD_1, IFEQ, 0, 4, ICONST_1, POP, RETURN
+		};
+		assertArrayEquals(unchanged, optimise(unchanged));
+		final Instructions instructions = InstructionsTest.instructions(new byte[] {
+				TABLESWITCH, 0, 0, 0, 0, 0, 0, 20, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 20, RETURN
+		});
+		assertFalse(new Peephole().apply(instructions));
+	}
+	@Test
+	void testCycle() {
+		final byte[] cycle = {
+				ILOAD_0, IFEQ, 0, 4, RETURN, GOTO, 0, 4, RETURN, GOTO, -1, -4
+		};
+		assertArrayEquals(cycle, assertTimeoutPreemptively(Duration.ofSeconds(10), () -> optimise(cycle)));
+		assertArrayEquals(new byte[] {
+				ILOAD_0, IFEQ, 0, 8, RETURN, GOTO, 0, 4, RETURN, GOTO, 0, 4, RETURN, GOTO, -1, -4
+		}, assertTimeoutPreemptively(Duration.ofSeconds(10), () -> optimise(new byte[] {
+				ILOAD_0, IFEQ, 0, 4, RETURN, GOTO, 0, 4, RETURN, GOTO, 0, 4, RETURN, GOTO, -1, -4
+		})));
+	}
+	@Test
+	void testPushed() {
+		final ConstantPoolBuilder pool = new ConstantPoolBuilder(InstructionsTest.constants().pool);
+		assertEquals(1, Peephole.pushed(new Instruction(ALOAD_3), pool));
+		assertEquals(2, Peephole.pushed(new Instruction(DLOAD_3), pool));
+		assertEquals(0, Peephole.pushed(new Instruction(IADD), pool));
+		for (final Class<? extends Item> type : List.of(IntConstant.class, FloatConstant.class, StringConstant.class)) {
+			final int index = InstructionsTest.index(pool, type);
+			assertEquals(1, Peephole.pushed(new Instruction(LDC_W, (byte) 0, (byte) index), pool));
+		}
+		final int type = InstructionsTest.index(pool, ClassConstant.class);
+		assertEquals(0, Peephole.pushed(new Instruction(LDC, (byte) type), pool));
+	}
+}